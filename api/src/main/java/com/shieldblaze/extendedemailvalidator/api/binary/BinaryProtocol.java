@@ -0,0 +1,157 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.api.binary;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+/**
+ * Compact length-prefixed binary protocol for internal callers. All integers are big-endian.
+ * <pre>
+ *     Request:  int length | long correlationId | byte mode | UTF-8 email address
+ *     Response: int length | long correlationId | short status | byte failureCode
+ * </pre>
+ * {@code length} counts the bytes after it. {@code mode} is {@link #MODE_DEFAULT} or the ordinal of a
+ * {@link ValidationMode} plus one. Requests may be pipelined; responses are sent as validations complete,
+ * not necessarily in request order, and are matched to requests by their correlation id.
+ */
+public final class BinaryProtocol {
+
+    /**
+     * Length of the fixed part of a request: correlation id and mode
+     */
+    public static final int REQUEST_HEADER_LENGTH = 9;
+
+    /**
+     * Maximum length of an email address in bytes
+     */
+    public static final int MAX_ADDRESS_LENGTH = 1024;
+
+    /**
+     * Length of a response, excluding the length prefix
+     */
+    public static final int RESPONSE_LENGTH = 11;
+
+    /**
+     * Validate in the configured {@code default-validation-mode}
+     */
+    public static final byte MODE_DEFAULT = 0;
+
+    // Status bits, one per result of the validation
+    public static final short STATUS_ADDRESS_PASSED = 1;
+    public static final short STATUS_BLOCKLIST_PASSED = 1 << 1;
+    public static final short STATUS_MX_PASSED = 1 << 2;
+    public static final short STATUS_CONNECTION_PASSED = 1 << 3;
+    public static final short STATUS_MAILBOX_PASSED = 1 << 4;
+    public static final short STATUS_MAILBOX_INCONCLUSIVE = 1 << 5;
+    public static final short STATUS_TRUSTED = 1 << 6;
+    public static final short STATUS_INCONCLUSIVE = 1 << 7;
+    public static final short STATUS_CATCH_ALL = 1 << 8;
+
+    // Failure codes, for requests which could not be validated at all
+    public static final byte FAILURE_NONE = 0;
+    public static final byte FAILURE_INVALID_REQUEST = 1;
+    public static final byte FAILURE_OVERLOADED = 2;
+    public static final byte FAILURE_ERROR = 3;
+
+    /**
+     * Create a decoder which cuts requests into frames without the length prefix. Requests with an address
+     * longer than {@link #MAX_ADDRESS_LENGTH} fail with {@link io.netty.handler.codec.TooLongFrameException}.
+     */
+    public static LengthFieldBasedFrameDecoder requestDecoder() {
+        // The maximum frame length counts the length prefix too
+        return new LengthFieldBasedFrameDecoder(4 + REQUEST_HEADER_LENGTH + MAX_ADDRESS_LENGTH, 0, 4, 0, 4);
+    }
+
+    /**
+     * Resolve the mode byte of a request
+     *
+     * @param mode        Mode byte
+     * @param defaultMode {@link ValidationMode} for {@link #MODE_DEFAULT}
+     * @return {@link ValidationMode} or {@code null} if the byte is not a known mode
+     */
+    public static ValidationMode mode(byte mode, ValidationMode defaultMode) {
+        if (mode == MODE_DEFAULT) {
+            return defaultMode;
+        }
+
+        ValidationMode[] modes = ValidationMode.values();
+        return mode > 0 && mode <= modes.length ? modes[mode - 1] : null;
+    }
+
+    /**
+     * Status bitfield of the result of a validation
+     *
+     * @param validationContext {@link ValidationContext} of the validation
+     * @return Status bitfield
+     */
+    public static short status(ValidationContext validationContext) {
+        int status = 0;
+        if (validationContext.addressValidationPassed()) {
+            status |= STATUS_ADDRESS_PASSED;
+        }
+        if (validationContext.blocklistValidationPassed()) {
+            status |= STATUS_BLOCKLIST_PASSED;
+        }
+        if (validationContext.mxValidationPassed()) {
+            status |= STATUS_MX_PASSED;
+        }
+        if (validationContext.mailServerConnectionPassed()) {
+            status |= STATUS_CONNECTION_PASSED;
+        }
+        if (validationContext.mailboxValidationPassed()) {
+            status |= STATUS_MAILBOX_PASSED;
+        }
+        if (validationContext.mailboxInconclusive()) {
+            status |= STATUS_MAILBOX_INCONCLUSIVE;
+        }
+        if (validationContext.trusted()) {
+            status |= STATUS_TRUSTED;
+        }
+        if (validationContext.inconclusive()) {
+            status |= STATUS_INCONCLUSIVE;
+        }
+        if (validationContext.catchAll()) {
+            status |= STATUS_CATCH_ALL;
+        }
+        return (short) status;
+    }
+
+    /**
+     * Encode a response, including its length prefix
+     *
+     * @param allocator     {@link ByteBufAllocator} to allocate the response with
+     * @param correlationId Correlation id of the request
+     * @param status        Status bitfield
+     * @param failureCode   Failure code
+     * @return Encoded response
+     */
+    public static ByteBuf response(ByteBufAllocator allocator, long correlationId, short status, byte failureCode) {
+        return allocator.ioBuffer(4 + RESPONSE_LENGTH)
+                .writeInt(RESPONSE_LENGTH)
+                .writeLong(correlationId)
+                .writeShort(status)
+                .writeByte(failureCode);
+    }
+
+    private BinaryProtocol() {
+        // Prevent outside initialization
+    }
+}
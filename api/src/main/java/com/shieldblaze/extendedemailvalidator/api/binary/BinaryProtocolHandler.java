@@ -0,0 +1,147 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.api.binary;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.shieldblaze.extendedemailvalidator.api.binary.BinaryProtocol.FAILURE_ERROR;
+import static com.shieldblaze.extendedemailvalidator.api.binary.BinaryProtocol.FAILURE_INVALID_REQUEST;
+import static com.shieldblaze.extendedemailvalidator.api.binary.BinaryProtocol.FAILURE_NONE;
+import static com.shieldblaze.extendedemailvalidator.api.binary.BinaryProtocol.FAILURE_OVERLOADED;
+import static com.shieldblaze.extendedemailvalidator.api.binary.BinaryProtocol.REQUEST_HEADER_LENGTH;
+
+/**
+ * Validates the request frames of a connection and writes back their responses.
+ * <p>
+ * Requests are validated concurrently. Once {@code maxInFlight} of them are pending,
+ * reading from the connection pauses until half of them have completed.
+ * Responses completing together are written with a single flush.
+ */
+final class BinaryProtocolHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final BinaryProtocolServer server;
+    private final int maxInFlight;
+
+    // Only accessed from the event loop of the connection
+    private int inFlight;
+    private boolean flushScheduled;
+
+    BinaryProtocolHandler(BinaryProtocolServer server, int maxInFlight) {
+        this.server = server;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame = (ByteBuf) msg;
+        long correlationId;
+        ValidationMode mode;
+        String email;
+        try {
+            if (frame.readableBytes() < REQUEST_HEADER_LENGTH) {
+                logger.debug("Closing connection: {} after truncated request frame", ctx.channel().remoteAddress());
+                ctx.close();
+                return;
+            }
+
+            correlationId = frame.readLong();
+            mode = BinaryProtocol.mode(frame.readByte(), server.defaultMode());
+            email = frame.toString(frame.readerIndex(), frame.readableBytes(), StandardCharsets.UTF_8);
+        } finally {
+            frame.release();
+        }
+
+        if (mode == null) {
+            respond(ctx, correlationId, (short) 0, FAILURE_INVALID_REQUEST);
+            return;
+        }
+
+        if (++inFlight >= maxInFlight) {
+            ctx.channel().config().setAutoRead(false);
+        }
+
+        CompletableFuture<ValidationContext> validation;
+        try {
+            validation = server.validate(email, mode);
+        } catch (Exception e) {
+            validation = CompletableFuture.failedFuture(e);
+        }
+
+        validation.whenComplete((validationContext, throwable) -> {
+            short status = validationContext == null ? 0 : BinaryProtocol.status(validationContext);
+            byte failureCode = failureCode(throwable);
+            if (ctx.executor().inEventLoop()) {
+                completed(ctx, correlationId, status, failureCode);
+            } else {
+                ctx.executor().execute(() -> completed(ctx, correlationId, status, failureCode));
+            }
+        });
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.debug("Closing connection: {}", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+
+    private void completed(ChannelHandlerContext ctx, long correlationId, short status, byte failureCode) {
+        if (--inFlight <= maxInFlight / 2 && !ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+        respond(ctx, correlationId, status, failureCode);
+    }
+
+    private void respond(ChannelHandlerContext ctx, long correlationId, short status, byte failureCode) {
+        ctx.write(BinaryProtocol.response(ctx.alloc(), correlationId, status, failureCode), ctx.voidPromise());
+
+        // Flush once after every response ready in this turn of the event loop has been written
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.executor().execute(() -> {
+                flushScheduled = false;
+                ctx.flush();
+            });
+        }
+    }
+
+    private static byte failureCode(Throwable throwable) {
+        if (throwable == null) {
+            return FAILURE_NONE;
+        }
+
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof RejectedExecutionException) {
+            return FAILURE_OVERLOADED;
+        }
+
+        logger.debug("Error validating email address", cause);
+        return FAILURE_ERROR;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.api.binary;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Listener of the {@link BinaryProtocol}, validating with the same {@link ValidatingChain} as the HTTP API.
+ * It only listens if {@code binary-protocol-enabled} is set.
+ */
+@Component
+public class BinaryProtocolServer {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final ValidatingChain validatingChain;
+    private final boolean enabled;
+    private final int port;
+    private final int maxInFlight;
+    private final ValidationMode defaultMode;
+    private final Duration deadline;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    public BinaryProtocolServer(ValidatingChain validatingChain,
+                                @Value("${binary-protocol-enabled}") boolean enabled,
+                                @Value("${binary-protocol-port}") int port,
+                                @Value("${binary-protocol-max-in-flight}") int maxInFlight,
+                                @Value("${default-validation-mode}") String defaultMode,
+                                @Value("${validation-deadline}") long deadlineMillis) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        this.validatingChain = validatingChain;
+        this.enabled = enabled;
+        this.port = port;
+        this.maxInFlight = maxInFlight;
+        this.defaultMode = ValidationMode.of(defaultMode);
+        this.deadline = deadlineMillis > 0 ? Duration.ofMillis(deadlineMillis) : null;
+    }
+
+    @PostConstruct
+    public void start() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(BinaryProtocol.requestDecoder())
+                                .addLast(new BinaryProtocolHandler(BinaryProtocolServer.this, maxInFlight));
+                    }
+                })
+                .bind(port)
+                .sync()
+                .channel();
+
+        logger.info("Binary protocol listening on port: {}", port());
+    }
+
+    /**
+     * Port the listener is bound to, {@code -1} if it is not listening
+     */
+    public int port() {
+        return serverChannel == null ? -1 : ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    ValidationMode defaultMode() {
+        return defaultMode;
+    }
+
+    /**
+     * Validate within the deadline, if one is configured, without blocking the event loop
+     */
+    CompletableFuture<ValidationContext> validate(String email, ValidationMode mode) {
+        return deadline == null ? validatingChain.validateAsync(email, mode) : validatingChain.validateAsync(email, mode, deadline);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+        }
+    }
+}
@@ -17,22 +17,31 @@
 package com.shieldblaze.extendedemailvalidator.api.controllers;
 
 import com.shieldblaze.extendedemailvalidator.api.dto.EmailValidation;
+import com.shieldblaze.extendedemailvalidator.api.internal.BulkValidationResult;
 import com.shieldblaze.extendedemailvalidator.api.internal.DelegatingValidationContext;
 import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
 import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.shieldblaze.extendedemailvalidator.api.internal.Responses.badRequest;
 import static com.shieldblaze.extendedemailvalidator.api.internal.Responses.ok;
+import static com.shieldblaze.extendedemailvalidator.api.internal.Responses.serviceUnavailable;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @RestController
 @RequestMapping("/api/v1/validate")
@@ -41,21 +50,82 @@ public class ValidationController {
     private static final Logger logger = LogManager.getLogger();
 
     private final ValidatingChain validatingChain;
+    private final int bulkConcurrency;
+    private final ValidationMode defaultMode;
+    private final Duration deadline;
 
-    public ValidationController(ValidatingChain validatingChain) {
+    public ValidationController(ValidatingChain validatingChain,
+                                @Value("${bulk-concurrency}") int bulkConcurrency,
+                                @Value("${default-validation-mode}") String defaultMode,
+                                @Value("${validation-deadline}") long deadlineMillis) {
         this.validatingChain = validatingChain;
+        this.bulkConcurrency = bulkConcurrency;
+        this.defaultMode = ValidationMode.of(defaultMode);
+        this.deadline = deadlineMillis > 0 ? Duration.ofMillis(deadlineMillis) : null;
     }
 
     @PostMapping(value = "/email", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
-    public CompletableFuture<ResponseEntity<String>> validate(@RequestBody EmailValidation emailValidation) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                ValidationContext result = validatingChain.validate(emailValidation.emailAddress());
-                return ok(new DelegatingValidationContext(result));
-            } catch (Exception e) {
-                logger.debug("Error validating email address", e);
-                throw new RuntimeException(e);
-            }
-        }).exceptionally(throwable -> badRequest(throwable.getMessage()));
+    public Mono<ResponseEntity<String>> validate(@RequestBody EmailValidation emailValidation) {
+        ValidationMode mode;
+        try {
+            mode = emailValidation.validationMode(defaultMode);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(badRequest(e.getMessage()));
+        }
+
+        return Mono.fromFuture(() -> validate(emailValidation, mode))
+                .map(result -> ok(new DelegatingValidationContext(result)))
+                // Overloaded, reject right away instead of queuing
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(serviceUnavailable(e.getMessage())))
+                .onErrorResume(e -> {
+                    logger.debug("Error validating email address", e);
+                    return Mono.just(badRequest(e.getMessage()));
+                });
+    }
+
+    /**
+     * Validate a stream of email addresses given as a JSON array or as NDJSON.
+     * Results are streamed back as NDJSON in completion order. At most {@code bulk-concurrency}
+     * addresses are in flight at once and the request body is only read as fast as results are produced.
+     */
+    @PostMapping(value = "/emails", consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE}, produces = APPLICATION_NDJSON_VALUE)
+    public Flux<BulkValidationResult> validateAll(@RequestBody Flux<EmailValidation> emailValidations) {
+        return emailValidations
+                .index()
+                .flatMap(indexed -> validate(indexed.getT2(), indexed.getT1()), bulkConcurrency);
+    }
+
+    private Mono<BulkValidationResult> validate(EmailValidation emailValidation, long index) {
+        String requestId = requestId(emailValidation, index);
+        return Mono.fromFuture(() -> validate(emailValidation, emailValidation.validationMode(defaultMode)))
+                .map(result -> new BulkValidationResult(requestId, emailValidation.emailAddress(), new DelegatingValidationContext(result), null))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(rejected(emailValidation, index, e)))
+                .onErrorResume(e -> {
+                    logger.debug("Error validating email address", e);
+                    return Mono.just(new BulkValidationResult(requestId, emailValidation.emailAddress(), null, String.valueOf(e.getMessage())));
+                });
+    }
+
+    /**
+     * Validate within the deadline, if one is configured, without blocking the calling thread.
+     * Debug requests record the time spent in each validator.
+     */
+    private CompletableFuture<ValidationContext> validate(EmailValidation emailValidation, ValidationMode mode) {
+        ValidationContext validationContext = ValidationContext.create();
+        if (deadline != null) {
+            validationContext.deadline(System.nanoTime() + deadline.toNanos());
+        }
+        if (emailValidation.debug()) {
+            validationContext.recordTimings();
+        }
+        return validatingChain.validateAsync(validationContext, emailValidation.emailAddress(), mode);
+    }
+
+    private static BulkValidationResult rejected(EmailValidation emailValidation, long index, RejectedExecutionException e) {
+        return new BulkValidationResult(requestId(emailValidation, index), emailValidation.emailAddress(), null, e.getMessage());
+    }
+
+    private static String requestId(EmailValidation emailValidation, long index) {
+        return emailValidation.requestId() == null ? String.valueOf(index) : emailValidation.requestId();
     }
 }
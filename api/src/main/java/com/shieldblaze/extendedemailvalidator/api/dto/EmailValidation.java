@@ -17,6 +17,27 @@
 package com.shieldblaze.extendedemailvalidator.api.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
 
-public record EmailValidation(@JsonProperty String emailAddress) {
+/**
+ * Email address to validate.
+ *
+ * @param emailAddress Email address
+ * @param requestId    Optional identifier echoed back by the bulk endpoint
+ * @param mode         Optional validation depth: {@code syntax}, {@code dns}, {@code connect} or {@code deep}
+ * @param debug        Return the time spent in each validator along with the result
+ */
+public record EmailValidation(@JsonProperty String emailAddress, @JsonProperty String requestId, @JsonProperty String mode,
+                              @JsonProperty boolean debug) {
+
+    /**
+     * {@link ValidationMode} of this request
+     *
+     * @param defaultMode {@link ValidationMode} if the request has none
+     * @return {@link ValidationMode}
+     * @throws IllegalArgumentException If the mode is unknown
+     */
+    public ValidationMode validationMode(ValidationMode defaultMode) {
+        return mode == null ? defaultMode : ValidationMode.of(mode);
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.api.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One line of the bulk validation response.
+ *
+ * @param requestId    Request id given by the caller, or the zero-based position of the address in the request body
+ * @param emailAddress Email address which was validated
+ * @param result       {@link DelegatingValidationContext} if validation completed
+ * @param error        Error message if validation could not be completed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkValidationResult(@JsonProperty String requestId,
+                                   @JsonProperty String emailAddress,
+                                   @JsonProperty DelegatingValidationContext result,
+                                   @JsonProperty String error) {
+}
@@ -16,14 +16,28 @@
  */
 package com.shieldblaze.extendedemailvalidator.api.internal;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.shieldblaze.extendedemailvalidator.core.StageTiming;
 import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
 
+import java.util.List;
+
 public record DelegatingValidationContext(@JsonProperty boolean addressValidationPassed,
+                                          @JsonProperty boolean blocklistValidationPassed,
                                           @JsonProperty boolean mxValidationPassed,
-                                          @JsonProperty boolean mailServerConnectionPassed) {
+                                          @JsonProperty boolean mailServerConnectionPassed,
+                                          @JsonProperty boolean mailboxValidationPassed,
+                                          @JsonProperty boolean mailboxInconclusive,
+                                          @JsonProperty boolean catchAll,
+                                          @JsonProperty boolean trusted,
+                                          @JsonProperty String inconclusiveReason,
+                                          @JsonProperty @JsonInclude(JsonInclude.Include.NON_NULL) List<StageTiming> timings) {
 
     public DelegatingValidationContext(ValidationContext validationContext) {
-        this(validationContext.addressValidationPassed(), validationContext.mxValidationPassed(), validationContext.mailServerConnectionPassed());
+        this(validationContext.addressValidationPassed(), validationContext.blocklistValidationPassed(),
+                validationContext.mxValidationPassed(), validationContext.mailServerConnectionPassed(), validationContext.mailboxValidationPassed(),
+                validationContext.mailboxInconclusive(), validationContext.catchAll(), validationContext.trusted(), validationContext.inconclusiveReason(),
+                validationContext.timings());
     }
 }
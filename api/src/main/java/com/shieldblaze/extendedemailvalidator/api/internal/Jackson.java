@@ -27,7 +27,7 @@ public final class Jackson {
 
     public static String toJson(Object object) {
         try {
-            return JSON_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(object);
+            return JSON_MAPPER.writeValueAsString(object);
         } catch (Exception e) {
             throw new RuntimeException("Failed to convert " + object.getClass().getName() + " to Json String", e);
         }
@@ -22,6 +22,7 @@ import org.springframework.http.ResponseEntity;
 import static com.shieldblaze.extendedemailvalidator.api.internal.Jackson.toJson;
 import static java.util.Collections.singletonMap;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 /**
  * This class contains methods to generate {@link ResponseEntity} with JSON body.
@@ -66,6 +67,22 @@ public final class Responses {
         return ResponseEntity.status(BAD_REQUEST).body(toJson(singletonMap("error", object)));
     }
 
+    /**
+     * This method generates {@link ResponseEntity} with status code 503 and a JSON body with the given object
+     * and transforms it to JSON string.
+     *
+     * <br></br>
+     * This method creates a JSON body with the following format:
+     * <pre>
+     *     {
+     *       "error": "object"
+     *     }
+     * </pre>
+     */
+    public static ResponseEntity<String> serviceUnavailable(Object object) {
+        return ResponseEntity.status(SERVICE_UNAVAILABLE).body(toJson(singletonMap("error", object)));
+    }
+
     private Responses() {
         // Prevent outside initialization
     }
@@ -17,22 +17,39 @@
 package com.shieldblaze.extendedemailvalidator.api.internal;
 
 import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
 import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
 import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.cache.NegativeCache;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.dns.MxResolver;
+import com.shieldblaze.extendedemailvalidator.core.snapshot.CacheSnapshot;
+import com.shieldblaze.extendedemailvalidator.core.snapshot.SnapshotWriter;
 import com.shieldblaze.extendedemailvalidator.core.validators.AddressValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.DomainBlocklistValidator;
 import com.shieldblaze.extendedemailvalidator.core.validators.MXRecordValidator;
 import com.shieldblaze.extendedemailvalidator.core.validators.MailServerConnection;
+import com.shieldblaze.extendedemailvalidator.core.validators.SmtpMailboxValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.TrustedDomainValidator;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
-import java.net.UnknownHostException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class ValidationBean {
 
+    private static final Logger logger = LogManager.getLogger();
+
     @Value("${dns-servers}")
     private List<String> dnsServers;
 
@@ -42,29 +59,184 @@ public class ValidationBean {
     @Value("${socket-timeout}")
     private Integer socketTimeout;
 
+    @Value("${dns-cache-size}")
+    private Integer dnsCacheSize;
+
+    @Value("${dns-cache-min-ttl}")
+    private Integer dnsCacheMinTtl;
+
+    @Value("${dns-cache-max-ttl}")
+    private Integer dnsCacheMaxTtl;
+
+    @Value("${negative-cache-ttl}")
+    private Integer negativeCacheTtl;
+
+    @Value("${probe-cache-ttl}")
+    private Integer probeCacheTtl;
+
+    @Value("${snapshot-path}")
+    private String snapshotPath;
+
+    @Value("${snapshot-interval}")
+    private Integer snapshotInterval;
+
+    @Value("${blocklist-path}")
+    private String blocklistPath;
+
+    @Value("${trusted-domains}")
+    private List<String> trustedDomains;
+
+    @Value("${politeness-host-concurrency}")
+    private Integer politenessHostConcurrency;
+
+    @Value("${politeness-host-rate}")
+    private Double politenessHostRate;
+
+    @Value("${politeness-subnet-concurrency}")
+    private Integer politenessSubnetConcurrency;
+
+    @Value("${politeness-subnet-rate}")
+    private Double politenessSubnetRate;
+
+    @Value("${politeness-max-waiting}")
+    private Integer politenessMaxWaiting;
+
     @Value("${mx-validator-enabled}")
     private Boolean mxValidatorEnabled;
 
     @Value("${server-connection-validator-enabled}")
     private Boolean serverConnectionValidator;
 
+    @Value("${smtp-validator-enabled}")
+    private Boolean smtpValidatorEnabled;
+
+    @Value("${smtp-helo-hostname}")
+    private String smtpHeloHostname;
+
+    @Value("${smtp-mail-from}")
+    private String smtpMailFrom;
+
+    @Value("${smtp-port}")
+    private Integer smtpPort;
+
+    @Value("${smtp-timeout}")
+    private Integer smtpTimeout;
+
+    @Value("${smtp-max-sessions-per-host}")
+    private Integer smtpMaxSessionsPerHost;
+
+    @Value("${smtp-max-recipients-per-transaction}")
+    private Integer smtpMaxRecipientsPerTransaction;
+
+    @Value("${smtp-session-idle-timeout}")
+    private Integer smtpSessionIdleTimeout;
+
+    @Value("${smtp-catch-all-ttl}")
+    private Integer smtpCatchAllTtl;
+
+    @Value("${validation-executor-virtual-threads}")
+    private Boolean validationExecutorVirtualThreads;
+
+    @Value("${validation-executor-threads}")
+    private Integer validationExecutorThreads;
+
+    @Value("${validation-executor-max-in-flight}")
+    private Integer validationExecutorMaxInFlight;
+
+    private SnapshotWriter snapshotWriter;
+    private DomainBlocklistValidator domainBlocklistValidator;
+    private MailServerConnection mailServerConnection;
+    private SmtpMailboxValidator smtpMailboxValidator;
+
+    @Bean
+    public ValidationExecutor validationExecutor() {
+        if (validationExecutorVirtualThreads) {
+            return ValidationExecutor.virtualThreads(validationExecutorMaxInFlight);
+        } else {
+            return ValidationExecutor.platformThreads(validationExecutorThreads, validationExecutorMaxInFlight);
+        }
+    }
+
     @Bean
-    public ValidatingChain validatingChain() throws UnknownHostException {
-        NetworkConfig networkConfig = new NetworkConfig(dnsServers, dnsTimeout, socketTimeout);
+    public ValidatingChain validatingChain(ValidationExecutor validationExecutor) throws IOException {
+        NetworkConfig networkConfig = new NetworkConfig(dnsServers, dnsTimeout, socketTimeout, dnsCacheSize, dnsCacheMinTtl, dnsCacheMaxTtl, negativeCacheTtl, probeCacheTtl);
+        NegativeCache negativeCache = new NegativeCache(networkConfig);
+        MxResolver mxResolver = new MxResolver(networkConfig, negativeCache);
+        ProbeCache probeCache = new ProbeCache(networkConfig);
+
+        // Warm the caches from the snapshot of the previous run and keep the snapshot up to date
+        if (!snapshotPath.isBlank()) {
+            CacheSnapshot cacheSnapshot = CacheSnapshot.open(Path.of(snapshotPath));
+            mxResolver.warmStart(cacheSnapshot);
+            probeCache.warmStart(cacheSnapshot);
+            snapshotWriter = new SnapshotWriter(Path.of(snapshotPath), cacheSnapshot, mxResolver, probeCache);
+            snapshotWriter.start(Duration.ofSeconds(snapshotInterval));
+        }
+
         List<Validator> validators = new ArrayList<>();
         validators.add(new AddressValidator());
 
+        // Add blocklist validator if a blocklist is configured, before any network validator
+        if (!blocklistPath.isBlank()) {
+            domainBlocklistValidator = new DomainBlocklistValidator(Path.of(blocklistPath));
+            domainBlocklistValidator.watch();
+            validators.add(domainBlocklistValidator);
+        }
+
+        // Add trusted domain validator if any domain is trusted, network validators are skipped for them
+        if (trustedDomains.stream().anyMatch(domain -> !domain.isBlank())) {
+            validators.add(new TrustedDomainValidator(trustedDomains));
+        }
+
         // Add MX validator if enabled
         if (mxValidatorEnabled) {
-            validators.add(new MXRecordValidator(networkConfig));
+            validators.add(new MXRecordValidator(mxResolver));
         }
 
         // Add server connection validator if enabled
         if (serverConnectionValidator) {
-            validators.add(new MailServerConnection(networkConfig));
+            PolitenessConfig politenessConfig = new PolitenessConfig(politenessHostConcurrency, politenessHostRate,
+                    politenessSubnetConcurrency, politenessSubnetRate, politenessMaxWaiting);
+            mailServerConnection = new MailServerConnection(networkConfig, politenessConfig, negativeCache, probeCache);
+            validators.add(mailServerConnection);
+        }
+
+        // Add SMTP mailbox validator if enabled, it needs the mail server addresses found by the MX validator
+        if (smtpValidatorEnabled) {
+            SmtpConfig smtpConfig = new SmtpConfig(smtpHeloHostname, smtpMailFrom, smtpPort, smtpTimeout, smtpMaxSessionsPerHost,
+                    smtpMaxRecipientsPerTransaction, smtpSessionIdleTimeout, smtpCatchAllTtl);
+            smtpMailboxValidator = new SmtpMailboxValidator(smtpConfig);
+            validators.add(smtpMailboxValidator);
+        }
+
+        // Create validating chain with all validators, blocking validators are run on the validation executor
+        return new ValidatingChain(validationExecutor, validators.toArray(Validator[]::new));
+    }
+
+    @PreDestroy
+    public void close() {
+        // Write a last snapshot, so the next start is as warm as possible
+        if (snapshotWriter != null) {
+            snapshotWriter.close();
+        }
+
+        // Stop the blocklist watcher thread
+        if (domainBlocklistValidator != null) {
+            try {
+                domainBlocklistValidator.close();
+            } catch (IOException e) {
+                logger.error("Failed to stop watching the blocklist", e);
+            }
         }
 
-        // Create validating chain with all validators
-        return new ValidatingChain(validators.toArray(Validator[]::new));
+        // Stop the probe engine's selector thread
+        if (mailServerConnection != null) {
+            mailServerConnection.close();
+        }
+
+        // Say goodbye to the mail servers we kept sessions with
+        if (smtpMailboxValidator != null) {
+            smtpMailboxValidator.close();
+        }
     }
 }
@@ -0,0 +1,96 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.api.internal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated {@link Executor} for blocking validation work, so slow DNS and mail servers
+ * never stall {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+ * <p>
+ * Admission is bounded: at most {@code maxInFlight} tasks may be running or waiting at once.
+ * Tasks beyond that are rejected right away with {@link RejectedExecutionException}.
+ */
+public final class ValidationExecutor implements Executor, AutoCloseable {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    private ValidationExecutor(ExecutorService delegate, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Create a {@link ValidationExecutor} which runs every task on a new virtual thread
+     *
+     * @param maxInFlight Maximum number of tasks running or waiting at once
+     */
+    public static ValidationExecutor virtualThreads(int maxInFlight) {
+        ThreadFactory threadFactory = Thread.ofVirtual().name("validation-", 0).factory();
+        return new ValidationExecutor(Executors.newThreadPerTaskExecutor(threadFactory), maxInFlight);
+    }
+
+    /**
+     * Create a {@link ValidationExecutor} backed by a fixed pool of platform threads
+     *
+     * @param threads     Number of threads
+     * @param maxInFlight Maximum number of tasks running or waiting at once
+     */
+    public static ValidationExecutor platformThreads(int threads, int maxInFlight) {
+        ThreadFactory threadFactory = Thread.ofPlatform().name("validation-", 0).daemon(true).factory();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        return new ValidationExecutor(threadPoolExecutor, maxInFlight);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many validations in flight");
+        }
+
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
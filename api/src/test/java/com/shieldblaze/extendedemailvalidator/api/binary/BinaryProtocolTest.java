@@ -0,0 +1,219 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.api.binary;
+
+import com.shieldblaze.extendedemailvalidator.core.AsyncValidator;
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.validators.AddressValidator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryProtocolTest {
+
+    @Test
+    void decodeMode() {
+        assertEquals(ValidationMode.DNS, BinaryProtocol.mode(BinaryProtocol.MODE_DEFAULT, ValidationMode.DNS));
+        assertEquals(ValidationMode.SYNTAX, BinaryProtocol.mode((byte) 1, ValidationMode.DNS));
+        assertEquals(ValidationMode.DEEP, BinaryProtocol.mode((byte) ValidationMode.values().length, ValidationMode.DNS));
+        assertNull(BinaryProtocol.mode((byte) (ValidationMode.values().length + 1), ValidationMode.DNS));
+        assertNull(BinaryProtocol.mode((byte) -1, ValidationMode.DNS));
+    }
+
+    @Test
+    void encodeStatus() {
+        ValidationContext validationContext = ValidationContext.create();
+        assertEquals(0, BinaryProtocol.status(validationContext));
+
+        validationContext.markAddressValidationPassed();
+        validationContext.markMxValidationPassed();
+        validationContext.markMailboxCatchAll();
+        validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+        assertEquals(BinaryProtocol.STATUS_ADDRESS_PASSED | BinaryProtocol.STATUS_MX_PASSED | BinaryProtocol.STATUS_MAILBOX_INCONCLUSIVE
+                | BinaryProtocol.STATUS_CATCH_ALL | BinaryProtocol.STATUS_INCONCLUSIVE, BinaryProtocol.status(validationContext));
+    }
+
+    @Test
+    void encodeResponse() {
+        ByteBuf response = BinaryProtocol.response(ByteBufAllocator.DEFAULT, 0x0102030405060708L, (short) 0x0180, BinaryProtocol.FAILURE_ERROR);
+        try {
+            assertEquals(4 + BinaryProtocol.RESPONSE_LENGTH, response.readableBytes());
+            assertEquals(BinaryProtocol.RESPONSE_LENGTH, response.readInt());
+            assertEquals(0x0102030405060708L, response.readLong());
+            assertEquals((short) 0x0180, response.readShort());
+            assertEquals(BinaryProtocol.FAILURE_ERROR, response.readByte());
+        } finally {
+            response.release();
+        }
+    }
+
+    @Test
+    void validatePipelinedRequests() {
+        EmbeddedChannel channel = channel(16, new AddressValidator());
+
+        // Both requests in one read, the second split across two
+        ByteBuf first = request(1, BinaryProtocol.MODE_DEFAULT, "alice@example.com");
+        ByteBuf second = request(2, (byte) (ValidationMode.SYNTAX.ordinal() + 1), "not-an-address");
+        channel.writeInbound(Unpooled.wrappedBuffer(first, second.readRetainedSlice(6)));
+        channel.writeInbound(second);
+
+        List<Response> responses = responses(channel);
+        assertEquals(2, responses.size());
+        assertEquals(new Response(1, BinaryProtocol.STATUS_ADDRESS_PASSED, BinaryProtocol.FAILURE_NONE), responses.get(0));
+        assertEquals(new Response(2, (short) 0, BinaryProtocol.FAILURE_NONE), responses.get(1));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void rejectUnknownMode() {
+        EmbeddedChannel channel = channel(16, new AddressValidator());
+        channel.writeInbound(request(7, (byte) 100, "alice@example.com"));
+
+        assertEquals(List.of(new Response(7, (short) 0, BinaryProtocol.FAILURE_INVALID_REQUEST)), responses(channel));
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void reportValidatorError() {
+        Validator failing = (validationContext, email) -> {
+            throw new IllegalStateException("Validator failed");
+        };
+        EmbeddedChannel channel = channel(16, failing);
+        channel.writeInbound(request(3, BinaryProtocol.MODE_DEFAULT, "alice@example.com"));
+
+        assertEquals(List.of(new Response(3, (short) 0, BinaryProtocol.FAILURE_ERROR)), responses(channel));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void closeOnTruncatedFrame() {
+        EmbeddedChannel channel = channel(16, new AddressValidator());
+        channel.writeInbound(Unpooled.buffer().writeInt(4).writeInt(0));
+
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void acceptAddressOfMaximumLength() {
+        List<String> emails = new ArrayList<>();
+        Validator recording = (validationContext, email) -> emails.add(email);
+        EmbeddedChannel channel = channel(16, recording);
+
+        String email = "a".repeat(BinaryProtocol.MAX_ADDRESS_LENGTH - "@example.com".length()) + "@example.com";
+        channel.writeInbound(request(4, BinaryProtocol.MODE_DEFAULT, email));
+
+        assertEquals(1, responses(channel).size());
+        assertEquals(List.of(email), emails);
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void closeOnTooLongAddress() {
+        EmbeddedChannel channel = channel(16, new AddressValidator());
+        String email = "a".repeat(BinaryProtocol.MAX_ADDRESS_LENGTH + 1 - "@example.com".length()) + "@example.com";
+        try {
+            channel.writeInbound(request(5, BinaryProtocol.MODE_DEFAULT, email));
+        } catch (TooLongFrameException e) {
+            // Rethrown by the embedded channel after the handler closed the connection
+        }
+
+        assertTrue(responses(channel).isEmpty());
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void pauseReadingWhenTooManyInFlight() {
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+        AsyncValidator pendingValidator = (validationContext, email) -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        };
+        EmbeddedChannel channel = channel(2, pendingValidator);
+
+        channel.writeInbound(request(1, BinaryProtocol.MODE_DEFAULT, "alice@example.com"));
+        assertTrue(channel.config().isAutoRead());
+        channel.writeInbound(request(2, BinaryProtocol.MODE_DEFAULT, "bob@example.com"));
+        assertFalse(channel.config().isAutoRead());
+
+        // Responses follow completion, not request order
+        pending.get(1).complete(true);
+        assertTrue(channel.config().isAutoRead());
+        pending.get(0).complete(true);
+
+        List<Response> responses = responses(channel);
+        assertEquals(2, responses.size());
+        assertEquals(2, responses.get(0).correlationId());
+        assertEquals(1, responses.get(1).correlationId());
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel channel(int maxInFlight, Validator... validators) {
+        BinaryProtocolServer server = new BinaryProtocolServer(new ValidatingChain(Runnable::run, validators), false, 0, maxInFlight, "deep", 0);
+        return new EmbeddedChannel(
+                BinaryProtocol.requestDecoder(),
+                new BinaryProtocolHandler(server, maxInFlight));
+    }
+
+    private static ByteBuf request(long correlationId, byte mode, String email) {
+        byte[] address = email.getBytes(StandardCharsets.UTF_8);
+        return Unpooled.buffer()
+                .writeInt(BinaryProtocol.REQUEST_HEADER_LENGTH + address.length)
+                .writeLong(correlationId)
+                .writeByte(mode)
+                .writeBytes(address);
+    }
+
+    private static List<Response> responses(EmbeddedChannel channel) {
+        channel.runPendingTasks();
+        List<Response> responses = new ArrayList<>();
+        ByteBuf response;
+        while ((response = channel.readOutbound()) != null) {
+            try {
+                assertEquals(BinaryProtocol.RESPONSE_LENGTH, response.readInt());
+                responses.add(new Response(response.readLong(), response.readShort(), response.readByte()));
+            } finally {
+                response.release();
+            }
+        }
+        return responses;
+    }
+
+    private record Response(long correlationId, short status, byte failureCode) {
+    }
+}
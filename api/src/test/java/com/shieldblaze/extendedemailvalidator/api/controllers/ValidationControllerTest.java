@@ -18,16 +18,25 @@ package com.shieldblaze.extendedemailvalidator.api.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shieldblaze.extendedemailvalidator.api.internal.BulkValidationResult;
 import com.shieldblaze.extendedemailvalidator.api.internal.DelegatingValidationContext;
+import com.shieldblaze.extendedemailvalidator.loadtest.FakeDnsServer;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -36,6 +45,18 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
 class ValidationControllerTest {
     private static final HttpClient HTTP_CLIENT = HttpClient.newHttpClient();
+    private static final FakeDnsServer DNS_SERVER = dnsServer();
+
+    @DynamicPropertySource
+    static void dnsServers(DynamicPropertyRegistry registry) {
+        // Resolve every domain in-process instead of depending on public DNS
+        registry.add("dns-servers", DNS_SERVER::address);
+    }
+
+    @AfterAll
+    static void closeDnsServer() {
+        DNS_SERVER.close();
+    }
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -59,4 +80,61 @@ class ValidationControllerTest {
         assertTrue(delegatingValidationContext.mxValidationPassed());
         assertFalse(delegatingValidationContext.mailServerConnectionPassed());
     }
+
+    @Test
+    void validateAllNdjson() throws IOException, InterruptedException {
+        String body = "{\"emailAddress\":\"not-an-address\",\"requestId\":\"first\"}\n" +
+                "{\"emailAddress\":\"also@@invalid\"}\n";
+
+        List<BulkValidationResult> results = validateAll(body, "application/x-ndjson");
+        assertEquals(2, results.size());
+
+        Set<String> requestIds = new HashSet<>();
+        for (BulkValidationResult result : results) {
+            requestIds.add(result.requestId());
+            assertFalse(result.result().addressValidationPassed());
+        }
+        assertEquals(Set.of("first", "1"), requestIds);
+    }
+
+    @Test
+    void validateAllJsonArray() throws IOException, InterruptedException {
+        String body = "[{\"emailAddress\":\"not-an-address\"},{\"emailAddress\":\"also@@invalid\"},{\"emailAddress\":\"\"}]";
+
+        List<BulkValidationResult> results = validateAll(body, "application/json");
+        assertEquals(3, results.size());
+        for (BulkValidationResult result : results) {
+            assertFalse(result.result().addressValidationPassed());
+        }
+    }
+
+    private List<BulkValidationResult> validateAll(String body, String contentType) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/api/v1/validate/emails"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", contentType)
+                .header("Accept", "application/x-ndjson")
+                .build();
+
+        HttpResponse<String> httpResponse = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, httpResponse.statusCode());
+
+        return httpResponse.body().lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, BulkValidationResult.class);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    private static FakeDnsServer dnsServer() {
+        try {
+            return new FakeDnsServer(300);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.benchmarks;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.validators.AddressValidator;
+import com.shieldblaze.extendedemailvalidator.loadtest.AddressCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-core cost of syntax validation with {@link AddressValidator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddressValidatorBenchmark {
+
+    @Param({"0.0", "0.1"})
+    private double invalidRatio;
+
+    private final AddressValidator addressValidator = new AddressValidator();
+    private String[] corpus;
+    private int index;
+
+    @Setup
+    public void setup() {
+        List<String> addresses = AddressCorpus.generate(4096, 1000, 1.1, invalidRatio, 42);
+        corpus = addresses.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        String email = corpus[index++ & (corpus.length - 1)];
+        return addressValidator.isValid(ValidationContext.create(), email);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.benchmarks;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.validators.MXRecordValidator;
+import com.shieldblaze.extendedemailvalidator.loadtest.AddressCorpus;
+import com.shieldblaze.extendedemailvalidator.loadtest.FakeDnsServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MXRecordValidator} against an in-process {@link FakeDnsServer}, with and without the DNS cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MXRecordValidatorBenchmark {
+
+    @Param({"0", "10000"})
+    private int dnsCacheSize;
+
+    @Param({"1.1"})
+    private double skew;
+
+    private FakeDnsServer fakeDnsServer;
+    private MXRecordValidator mxRecordValidator;
+    private String[] corpus;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fakeDnsServer = new FakeDnsServer(300);
+        NetworkConfig networkConfig = new NetworkConfig(List.of(fakeDnsServer.address()), 1000, 1000,
+                dnsCacheSize, 60, 3600, 60, 300);
+        mxRecordValidator = new MXRecordValidator(networkConfig);
+        corpus = AddressCorpus.generate(4096, 1000, skew, 0, 42).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fakeDnsServer.close();
+    }
+
+    @Benchmark
+    public boolean isValid(Cursor cursor) throws Exception {
+        String email = corpus[cursor.index++ & (corpus.length - 1)];
+        return mxRecordValidator.isValid(ValidationContext.create(), email);
+    }
+}
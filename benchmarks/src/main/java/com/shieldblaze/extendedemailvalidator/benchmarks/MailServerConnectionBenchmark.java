@@ -0,0 +1,84 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.benchmarks;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.cache.NegativeCache;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.validators.MailServerConnection;
+import com.shieldblaze.extendedemailvalidator.loadtest.FakeTcpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MailServerConnection} against a {@link FakeTcpServer}, with and without the probe cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailServerConnectionBenchmark {
+
+    @Param({"0", "300"})
+    private int probeCacheTtl;
+
+    private FakeTcpServer fakeTcpServer;
+    private MailServerConnection mailServerConnection;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fakeTcpServer = new FakeTcpServer(FakeTcpServer.Behavior.ACCEPT);
+        NetworkConfig networkConfig = new NetworkConfig(List.of("127.0.0.1"), 1000, 1000,
+                10_000, 60, 3600, 60, probeCacheTtl);
+        mailServerConnection = new MailServerConnection(networkConfig, PolitenessConfig.UNLIMITED, new NegativeCache(networkConfig),
+                new ProbeCache(networkConfig), new int[]{fakeTcpServer.port()});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mailServerConnection.close();
+        fakeTcpServer.close();
+    }
+
+    private static final List<String> MAIL_SERVER_IPV4_ADDRESSES = List.of("127.0.0.1");
+
+    @Benchmark
+    public boolean isValid() throws Exception {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.mailServerAddresses(MAIL_SERVER_IPV4_ADDRESSES, List.of());
+        return mailServerConnection.isValid(validationContext, "user@bench.example");
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.benchmarks;
+
+import com.shieldblaze.extendedemailvalidator.api.internal.DelegatingValidationContext;
+import com.shieldblaze.extendedemailvalidator.api.internal.Jackson;
+import com.shieldblaze.extendedemailvalidator.api.internal.Responses;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JSON response path of the single address endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponsesBenchmark {
+
+    private ValidationContext validationContext;
+    private DelegatingValidationContext delegatingValidationContext;
+
+    @Setup
+    public void setup() {
+        validationContext = ValidationContext.create();
+        validationContext.markAddressValidationPassed();
+        validationContext.markMxValidationPassed();
+        delegatingValidationContext = new DelegatingValidationContext(validationContext);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return Jackson.toJson(delegatingValidationContext);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> ok() {
+        return Responses.ok(new DelegatingValidationContext(validationContext));
+    }
+
+    @Benchmark
+    public ResponseEntity<String> badRequest() {
+        return Responses.badRequest("Invalid email address");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.benchmarks;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.validators.AddressValidator;
+import com.shieldblaze.extendedemailvalidator.loadtest.AddressCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ValidatingChain} dispatch, with validators which do no work of their own,
+ * and of the syntax-only chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatingChainBenchmark {
+
+    private static final Validator PASS = (validationContext, email) -> true;
+
+    private static final Validator DOMAIN_PASS = new Validator() {
+        @Override
+        public boolean isValid(ValidationContext validationContext, String email) {
+            return true;
+        }
+
+        @Override
+        public boolean isDomainScoped() {
+            return true;
+        }
+    };
+
+    private final ValidatingChain dispatchChain = new ValidatingChain(PASS, PASS, PASS);
+    private final ValidatingChain syntaxChain = new ValidatingChain(new AddressValidator());
+    private final ValidatingChain batchChain = new ValidatingChain(new AddressValidator(), DOMAIN_PASS, DOMAIN_PASS);
+
+    private String[] corpus;
+    private List<String> batch;
+    private int index;
+
+    @Setup
+    public void setup() {
+        List<String> addresses = AddressCorpus.generate(4096, 1000, 1.1, 0.05, 42);
+        corpus = addresses.toArray(String[]::new);
+        batch = addresses.subList(0, 1024);
+    }
+
+    @Benchmark
+    public ValidationContext dispatch() throws Exception {
+        return dispatchChain.validate(corpus[index++ & (corpus.length - 1)]);
+    }
+
+    @Benchmark
+    public ValidationContext syntax() throws Exception {
+        return syntaxChain.validate(corpus[index++ & (corpus.length - 1)]);
+    }
+
+    @Benchmark
+    public List<ValidationContext> validateAll() throws Exception {
+        return batchChain.validateAll(batch);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link Validator} which validates without blocking the calling thread, for validators
+ * which wait on the network. {@link ValidatingChain#validateAsync} composes the returned
+ * stages, so in-flight validations do not hold a thread each.
+ * <p>
+ * A stage completing exceptionally with {@link java.util.concurrent.TimeoutException} marks
+ * the validation inconclusive, like a synchronous validator throwing it.
+ */
+public interface AsyncValidator extends Validator {
+
+    /**
+     * Validate the email address
+     *
+     * @param validationContext {@link ValidationContext} of the email address
+     * @param email             Email address
+     * @return {@link CompletionStage} which completes with the outcome
+     */
+    CompletionStage<Boolean> isValidAsync(ValidationContext validationContext, String email);
+
+    /**
+     * Validate the email address, blocking until the stage completes or the deadline passes
+     */
+    @Override
+    default boolean isValid(ValidationContext validationContext, String email) throws Exception {
+        return validationContext.await(isValidAsync(validationContext, email).toCompletableFuture());
+    }
+}
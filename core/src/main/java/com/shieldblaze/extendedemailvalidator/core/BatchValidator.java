@@ -0,0 +1,43 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+import java.util.List;
+
+/**
+ * {@link Validator} which validates several email addresses of the same domain at once,
+ * such as verifying all recipients of a domain in one SMTP transaction.
+ * When validating in bulk, addresses which are still passing are grouped by domain
+ * and every group is handed over in a single call.
+ */
+public interface BatchValidator extends Validator {
+
+    /**
+     * Validate email addresses of the same domain
+     *
+     * @param validationContexts {@link ValidationContext}s of the email addresses
+     * @param emails             Email addresses, in the same order as the validation contexts
+     * @return Outcome for every email address, in the same order as the email addresses
+     * @throws Exception If an error occurs during validation
+     */
+    boolean[] isValid(List<ValidationContext> validationContexts, List<String> emails) throws Exception;
+
+    @Override
+    default boolean isValid(ValidationContext validationContext, String email) throws Exception {
+        return isValid(List.of(validationContext), List.of(email))[0];
+    }
+}
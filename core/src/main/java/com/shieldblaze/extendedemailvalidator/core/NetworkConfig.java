@@ -24,18 +24,43 @@ import java.util.List;
 /**
  * Network configuration for the validator.
  *
- * @param dnsServers    list of DNS servers to use for DNS lookups
- * @param dnsTimeout    timeout in milliseconds for DNS lookups
- * @param socketTimeout timeout in milliseconds for socket connections
+ * @param dnsServers       list of DNS servers to use for DNS lookups, as {@code host}, {@code host:port} or {@code [ipv6]:port}
+ * @param dnsTimeout       timeout in milliseconds for DNS lookups
+ * @param socketTimeout    timeout in milliseconds for probing mail server connections
+ * @param dnsCacheSize     maximum number of domains held in the DNS cache, {@code 0} disables the cache
+ * @param dnsCacheMinTtl   minimum time-to-live in seconds of a DNS cache entry
+ * @param dnsCacheMaxTtl   maximum time-to-live in seconds of a DNS cache entry
+ * @param negativeCacheTtl time-to-live in seconds of a negative cache entry for failures without a TTL of their own, such as timeouts
+ * @param probeCacheTtl    time-to-live in seconds of a successful mail server probe verdict
  */
-public record NetworkConfig(List<String> dnsServers, int dnsTimeout, int socketTimeout) {
+public record NetworkConfig(List<String> dnsServers, int dnsTimeout, int socketTimeout,
+                            int dnsCacheSize, int dnsCacheMinTtl, int dnsCacheMaxTtl, int negativeCacheTtl,
+                            int probeCacheTtl) {
+
+    public static final int DEFAULT_DNS_CACHE_SIZE = 10_000;
+    public static final int DEFAULT_DNS_CACHE_MIN_TTL = 60;
+    public static final int DEFAULT_DNS_CACHE_MAX_TTL = 3600;
+    public static final int DEFAULT_NEGATIVE_CACHE_TTL = 60;
+    public static final int DEFAULT_PROBE_CACHE_TTL = 300;
 
     private static final Logger logger = LogManager.getLogger();
 
     public NetworkConfig(List<String> dnsServers, int dnsTimeout, int socketTimeout) {
+        this(dnsServers, dnsTimeout, socketTimeout, DEFAULT_DNS_CACHE_SIZE, DEFAULT_DNS_CACHE_MIN_TTL, DEFAULT_DNS_CACHE_MAX_TTL,
+                DEFAULT_NEGATIVE_CACHE_TTL, DEFAULT_PROBE_CACHE_TTL);
+    }
+
+    public NetworkConfig(List<String> dnsServers, int dnsTimeout, int socketTimeout,
+                         int dnsCacheSize, int dnsCacheMinTtl, int dnsCacheMaxTtl, int negativeCacheTtl,
+                         int probeCacheTtl) {
         this.dnsServers = dnsServers;
         this.dnsTimeout = dnsTimeout;
         this.socketTimeout = socketTimeout;
+        this.dnsCacheSize = dnsCacheSize;
+        this.dnsCacheMinTtl = dnsCacheMinTtl;
+        this.dnsCacheMaxTtl = dnsCacheMaxTtl;
+        this.negativeCacheTtl = negativeCacheTtl;
+        this.probeCacheTtl = probeCacheTtl;
 
         if (dnsServers == null || dnsServers.isEmpty()) {
             throw new IllegalArgumentException("dnsServers must not be null or empty");
@@ -49,6 +74,28 @@ public record NetworkConfig(List<String> dnsServers, int dnsTimeout, int socketT
             throw new IllegalArgumentException("socketTimeout must be greater than 0");
         }
 
+        if (dnsCacheSize < 0) {
+            throw new IllegalArgumentException("dnsCacheSize must be greater than or equal to 0");
+        }
+
+        if (dnsCacheMinTtl < 0) {
+            throw new IllegalArgumentException("dnsCacheMinTtl must be greater than or equal to 0");
+        }
+
+        if (dnsCacheMaxTtl < dnsCacheMinTtl) {
+            throw new IllegalArgumentException("dnsCacheMaxTtl must be greater than or equal to dnsCacheMinTtl");
+        }
+
+        if (negativeCacheTtl < 0) {
+            throw new IllegalArgumentException("negativeCacheTtl must be greater than or equal to 0");
+        }
+
+        if (probeCacheTtl < 0) {
+            throw new IllegalArgumentException("probeCacheTtl must be greater than or equal to 0");
+        }
+
         logger.info("NetworkConfig initialized with DNS servers: {}, DNS timeout: {} and Socket Timeout: {}", dnsServers, dnsTimeout, socketTimeout);
+        logger.info("DNS cache initialized with size: {}, min TTL: {}, max TTL: {} and negative TTL: {}", dnsCacheSize, dnsCacheMinTtl, dnsCacheMaxTtl, negativeCacheTtl);
+        logger.info("Probe cache initialized with TTL: {}", probeCacheTtl);
     }
 }
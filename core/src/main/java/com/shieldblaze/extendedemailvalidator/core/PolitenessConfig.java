@@ -0,0 +1,62 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+/**
+ * Limits on connects to mail servers, so bulk validation does not look like a flood to them.
+ * Subnets are /24 for IPv4 and /64 for IPv6. A limit of {@code 0} disables it.
+ *
+ * @param hostConcurrency   maximum number of connects in flight to one IP address
+ * @param hostRate          maximum number of connects per second to one IP address
+ * @param subnetConcurrency maximum number of connects in flight to one subnet
+ * @param subnetRate        maximum number of connects per second to one subnet
+ * @param maxWaiting        maximum number of connects waiting for the limits of one subnet, further
+ *                          connects are deferred without being attempted
+ */
+public record PolitenessConfig(int hostConcurrency, double hostRate, int subnetConcurrency, double subnetRate, int maxWaiting) {
+
+    public static final int DEFAULT_MAX_WAITING = 256;
+
+    public static final PolitenessConfig DEFAULT = new PolitenessConfig(4, 10, 16, 50);
+    public static final PolitenessConfig UNLIMITED = new PolitenessConfig(0, 0, 0, 0, 0);
+
+    public PolitenessConfig(int hostConcurrency, double hostRate, int subnetConcurrency, double subnetRate) {
+        this(hostConcurrency, hostRate, subnetConcurrency, subnetRate, DEFAULT_MAX_WAITING);
+    }
+
+    public PolitenessConfig {
+        if (hostConcurrency < 0) {
+            throw new IllegalArgumentException("hostConcurrency must be greater than or equal to 0");
+        }
+
+        if (!(hostRate >= 0)) {
+            throw new IllegalArgumentException("hostRate must be greater than or equal to 0");
+        }
+
+        if (subnetConcurrency < 0) {
+            throw new IllegalArgumentException("subnetConcurrency must be greater than or equal to 0");
+        }
+
+        if (!(subnetRate >= 0)) {
+            throw new IllegalArgumentException("subnetRate must be greater than or equal to 0");
+        }
+
+        if (maxWaiting < 0) {
+            throw new IllegalArgumentException("maxWaiting must be greater than or equal to 0");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+/**
+ * SMTP configuration for mailbox verification.
+ *
+ * @param heloHostname                hostname announced in {@code EHLO}
+ * @param mailFrom                    envelope sender used in {@code MAIL FROM}, empty for the null sender {@code <>}
+ * @param port                        SMTP port of mail servers
+ * @param timeout                     timeout in milliseconds for connecting to a mail server and for each reply
+ * @param maxSessionsPerHost          maximum number of open sessions to one mail server
+ * @param maxRecipientsPerTransaction maximum number of {@code RCPT TO} commands sent in one mail transaction
+ * @param sessionIdleTimeout          time in seconds an idle session is kept open for reuse
+ * @param catchAllTtl                 time in seconds the catch-all verdict of a domain on a mail server is kept,
+ *                                    0 to probe in every batch
+ */
+public record SmtpConfig(String heloHostname, String mailFrom, int port, int timeout, int maxSessionsPerHost,
+                         int maxRecipientsPerTransaction, int sessionIdleTimeout, int catchAllTtl) {
+
+    public static final int DEFAULT_PORT = 25;
+    public static final int DEFAULT_TIMEOUT = 5000;
+    public static final int DEFAULT_MAX_SESSIONS_PER_HOST = 2;
+    public static final int DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION = 50;
+    public static final int DEFAULT_SESSION_IDLE_TIMEOUT = 30;
+    public static final int DEFAULT_CATCH_ALL_TTL = 3600;
+
+    public SmtpConfig(String heloHostname, String mailFrom) {
+        this(heloHostname, mailFrom, DEFAULT_PORT, DEFAULT_TIMEOUT, DEFAULT_MAX_SESSIONS_PER_HOST,
+                DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION, DEFAULT_SESSION_IDLE_TIMEOUT);
+    }
+
+    public SmtpConfig(String heloHostname, String mailFrom, int port, int timeout, int maxSessionsPerHost,
+                      int maxRecipientsPerTransaction, int sessionIdleTimeout) {
+        this(heloHostname, mailFrom, port, timeout, maxSessionsPerHost, maxRecipientsPerTransaction, sessionIdleTimeout,
+                DEFAULT_CATCH_ALL_TTL);
+    }
+
+    public SmtpConfig {
+        if (heloHostname == null || heloHostname.isBlank()) {
+            throw new IllegalArgumentException("heloHostname must not be null or empty");
+        }
+
+        if (mailFrom == null) {
+            throw new IllegalArgumentException("mailFrom must not be null");
+        }
+
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("port must be between 1 and 65535");
+        }
+
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be greater than 0");
+        }
+
+        if (maxSessionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxSessionsPerHost must be greater than 0");
+        }
+
+        if (maxRecipientsPerTransaction <= 0) {
+            throw new IllegalArgumentException("maxRecipientsPerTransaction must be greater than 0");
+        }
+
+        if (sessionIdleTimeout < 0) {
+            throw new IllegalArgumentException("sessionIdleTimeout must be greater than or equal to 0");
+        }
+
+        if (catchAllTtl < 0) {
+            throw new IllegalArgumentException("catchAllTtl must be greater than or equal to 0");
+        }
+    }
+}
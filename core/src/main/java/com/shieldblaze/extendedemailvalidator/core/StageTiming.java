@@ -0,0 +1,39 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Time spent in one stage of a validation, recorded by {@link ValidatingChain} when
+ * {@link ValidationContext#recordTimings()} is set
+ *
+ * @param stage          Name of the validator
+ * @param durationNanos  Time the validator took, in nanoseconds
+ * @param outcome        Outcome, see {@link com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics#OUTCOME_PASS}
+ */
+public record StageTiming(String stage, long durationNanos, String outcome) {
+
+    public StageTiming {
+        requireNonNull(stage, "Stage");
+        requireNonNull(outcome, "Outcome");
+
+        if (durationNanos < 0) {
+            throw new IllegalArgumentException("durationNanos must be greater than or equal to 0");
+        }
+    }
+}
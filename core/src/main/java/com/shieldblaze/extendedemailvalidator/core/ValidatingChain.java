@@ -16,17 +16,87 @@
  */
 package com.shieldblaze.extendedemailvalidator.core;
 
+import com.shieldblaze.extendedemailvalidator.core.jfr.ValidatorEvent;
+import com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
 public class ValidatingChain {
 
     private static final Logger logger = LogManager.getLogger();
 
     private final Validator[] validator;
+    private final Executor blockingExecutor;
+    private final String[] names;
+    private final Timer[] durations;
+    private final Counter[] passes;
+    private final int[] limits;
 
+    /**
+     * Create a new {@link ValidatingChain}. Validators run in order of their {@link Validator#cost()},
+     * validators of the same cost in the order given.
+     *
+     * @param validator Validators of the chain
+     */
     public ValidatingChain(Validator... validator) {
-        this.validator = validator;
+        this(Thread::startVirtualThread, validator);
+    }
+
+    /**
+     * Create a new {@link ValidatingChain}. See {@link #ValidatingChain(Validator...)}.
+     *
+     * @param blockingExecutor {@link Executor} which runs validators that are not {@link AsyncValidator}
+     *                         and may block, when validating asynchronously
+     * @param validator        Validators of the chain
+     */
+    public ValidatingChain(Executor blockingExecutor, Validator... validator) {
+        this.blockingExecutor = requireNonNull(blockingExecutor, "BlockingExecutor");
+
+        // Stable sort, so validators of the same cost keep their order
+        this.validator = validator.clone();
+        Arrays.sort(this.validator, Comparator.comparingInt(Validator::cost));
+
+        // Validators are sorted by cost, so the sub-chain of every mode is a prefix of the chain
+        limits = new int[ValidationMode.values().length];
+        for (ValidationMode mode : ValidationMode.values()) {
+            int limit = 0;
+            while (limit < this.validator.length && this.validator[limit].cost() <= mode.maxCost()) {
+                limit++;
+            }
+            limits[mode.ordinal()] = limit;
+        }
+
+        // Resolve meters up front, the hot path only records
+        names = new String[validator.length];
+        durations = new Timer[validator.length];
+        passes = new Counter[validator.length];
+        for (int i = 0; i < validator.length; i++) {
+            names[i] = this.validator[i].getClass().getSimpleName();
+            durations[i] = ValidatorMetrics.validatorDuration(this.validator[i]);
+            passes[i] = ValidatorMetrics.validatorOutcome(this.validator[i], ValidatorMetrics.OUTCOME_PASS, null);
+        }
     }
 
     /**
@@ -37,18 +107,529 @@ public class ValidatingChain {
      * @throws Exception If an error occurs during validation
      */
     public ValidationContext validate(String email) throws Exception {
+        return validate(email, ValidationMode.DEEP);
+    }
+
+    /**
+     * Validate the email address running only the validators of the mode
+     *
+     * @param email The email address to validate
+     * @param mode  {@link ValidationMode} to validate in
+     * @return The validation context
+     * @throws Exception If an error occurs during validation
+     */
+    public ValidationContext validate(String email, ValidationMode mode) throws Exception {
+        return validate(ValidationContext.create(), email, mode);
+    }
+
+    /**
+     * Validate the email address running only the validators of the mode, within a time budget.
+     * If the budget runs out, the validators which ran so far make up the result and it is
+     * marked inconclusive with {@link ValidationContext#INCONCLUSIVE_DEADLINE}.
+     *
+     * @param email  The email address to validate
+     * @param mode   {@link ValidationMode} to validate in
+     * @param budget Time budget of the whole validation
+     * @return The validation context
+     * @throws Exception If an error occurs during validation
+     */
+    public ValidationContext validate(String email, ValidationMode mode, Duration budget) throws Exception {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() + budget.toNanos());
+        return validate(validationContext, email, mode);
+    }
+
+    private ValidationContext validate(ValidationContext validationContext, String email, ValidationMode mode) throws Exception {
+        run(0, limits[mode.ordinal()], validationContext, email);
+        return validationContext;
+    }
+
+    /**
+     * Validate the email address without blocking the calling thread, running only the validators of the mode.
+     * {@link AsyncValidator}s are composed, other validators run inline if they are local and on the
+     * blocking {@link Executor} otherwise.
+     *
+     * @param email The email address to validate
+     * @param mode  {@link ValidationMode} to validate in
+     * @return {@link CompletableFuture} which completes with the validation context
+     */
+    public CompletableFuture<ValidationContext> validateAsync(String email, ValidationMode mode) {
+        return validateAsync(ValidationContext.create(), email, mode);
+    }
+
+    /**
+     * Validate the email address without blocking the calling thread, within a time budget.
+     * See {@link #validateAsync(String, ValidationMode)} and {@link #validate(String, ValidationMode, Duration)}.
+     *
+     * @param email  The email address to validate
+     * @param mode   {@link ValidationMode} to validate in
+     * @param budget Time budget of the whole validation
+     * @return {@link CompletableFuture} which completes with the validation context
+     */
+    public CompletableFuture<ValidationContext> validateAsync(String email, ValidationMode mode, Duration budget) {
         ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() + budget.toNanos());
+        return validateAsync(validationContext, email, mode);
+    }
 
-        // Run each validator in the chain
-        for (Validator validator : this.validator) {
-            if (!validator.isValid(validationContext, email)) {
-                logger.debug("Validation failed by: {} for email: {}", validator.getClass().getSimpleName(), email);
-                break;
+    /**
+     * Validate the email address without blocking the calling thread, into a {@link ValidationContext}
+     * prepared by the caller, such as with a {@link ValidationContext#deadline(long)} or
+     * {@link ValidationContext#recordTimings()}. See {@link #validateAsync(String, ValidationMode)}.
+     *
+     * @param validationContext {@link ValidationContext} to validate into, fresh from {@link ValidationContext#create()}
+     * @param email             The email address to validate
+     * @param mode              {@link ValidationMode} to validate in
+     * @return {@link CompletableFuture} which completes with the validation context
+     */
+    public CompletableFuture<ValidationContext> validateAsync(ValidationContext validationContext, String email, ValidationMode mode) {
+        return runAsync(0, limits[mode.ordinal()], validationContext, email).thenApply(passed -> validationContext);
+    }
+
+    /**
+     * Validate a batch of email addresses. Domain scoped validators run once per
+     * distinct domain and their outcome is shared by every address on that domain.
+     *
+     * @param emails The email addresses to validate
+     * @return The validation contexts, in the same order as the email addresses
+     * @throws Exception If an error occurs during validation
+     */
+    public List<ValidationContext> validateAll(Collection<String> emails) throws Exception {
+        return validateAll(emails, ValidationMode.DEEP);
+    }
+
+    /**
+     * Validate a batch of email addresses running only the validators of the mode.
+     * See {@link #validateAll(Collection)}.
+     *
+     * @param emails The email addresses to validate
+     * @param mode   {@link ValidationMode} to validate in
+     * @return The validation contexts, in the same order as the email addresses
+     * @throws Exception If an error occurs during validation
+     */
+    public List<ValidationContext> validateAll(Collection<String> emails, ValidationMode mode) throws Exception {
+        return validateAll(emails, mode, null);
+    }
+
+    /**
+     * Validate a batch of email addresses running only the validators of the mode, within a time budget
+     * shared by all of them. See {@link #validateAll(Collection)} and {@link #validate(String, ValidationMode, Duration)}.
+     *
+     * @param emails The email addresses to validate
+     * @param mode   {@link ValidationMode} to validate in
+     * @param budget Time budget of the whole batch, {@code null} for none
+     * @return The validation contexts, in the same order as the email addresses
+     * @throws Exception If an error occurs during validation
+     */
+    public List<ValidationContext> validateAll(Collection<String> emails, ValidationMode mode, Duration budget) throws Exception {
+        int limit = limits[mode.ordinal()];
+        long deadline = budget == null ? 0 : System.nanoTime() + budget.toNanos();
+        List<String> emailList = new ArrayList<>(emails);
+        List<ValidationContext> validationContexts = new ArrayList<>(emailList.size());
+        boolean[] passed = new boolean[emailList.size()];
+        for (int i = 0; i < emailList.size(); i++) {
+            ValidationContext validationContext = ValidationContext.create();
+            if (budget != null) {
+                validationContext.deadline(deadline);
+            }
+            validationContexts.add(validationContext);
+            passed[i] = true;
+        }
+
+        int from = 0;
+        while (from < limit) {
+            // Run consecutive validators of the same scope as one stage
+            int to = from + 1;
+            while (to < limit && scope(validator[to]) == scope(validator[from])) {
+                to++;
+            }
+
+            if (validator[from] instanceof BatchValidator) {
+                for (int i = from; i < to; i++) {
+                    runBatch(i, emailList, validationContexts, passed);
+                }
+            } else if (validator[from].isDomainScoped()) {
+                for (List<Integer> group : groupByDomain(emailList, validationContexts, passed)) {
+                    int first = group.get(0);
+                    // Trusted domains are done, later stages are skipped like for failed ones
+                    boolean domainPassed = run(from, to, validationContexts.get(first), emailList.get(first))
+                            && !validationContexts.get(first).trusted();
+                    passed[first] = domainPassed;
+
+                    for (int i = 1; i < group.size(); i++) {
+                        int index = group.get(i);
+                        validationContexts.get(index).copyDomainResults(validationContexts.get(first));
+                        passed[index] = domainPassed;
+                    }
+                }
             } else {
-                logger.debug("Validation passed by: {} for email: {}", validator.getClass().getSimpleName(), email);
+                for (int i = 0; i < emailList.size(); i++) {
+                    if (passed[i]) {
+                        passed[i] = run(from, to, validationContexts.get(i), emailList.get(i)) && !validationContexts.get(i).trusted();
+                    }
+                }
             }
+
+            from = to;
         }
 
-        return validationContext;
+        return validationContexts;
+    }
+
+    /**
+     * Validate a stream of email addresses, {@code batchSize} at a time.
+     * See {@link #validateAll(Collection)}.
+     *
+     * @param emails    The email addresses to validate
+     * @param batchSize Number of email addresses grouped by domain at once
+     * @return The validation contexts, in the same order as the email addresses
+     */
+    public Iterator<ValidationContext> validateAll(Iterator<String> emails, int batchSize) {
+        return validateAll(emails, batchSize, ValidationMode.DEEP);
+    }
+
+    /**
+     * Validate a stream of email addresses, {@code batchSize} at a time, running only the validators of the mode.
+     * See {@link #validateAll(Collection)}.
+     *
+     * @param emails    The email addresses to validate
+     * @param batchSize Number of email addresses grouped by domain at once
+     * @param mode      {@link ValidationMode} to validate in
+     * @return The validation contexts, in the same order as the email addresses
+     */
+    public Iterator<ValidationContext> validateAll(Iterator<String> emails, int batchSize, ValidationMode mode) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+
+        return new Iterator<>() {
+            private Iterator<ValidationContext> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext() && emails.hasNext()) {
+                    List<String> nextBatch = new ArrayList<>(batchSize);
+                    while (nextBatch.size() < batchSize && emails.hasNext()) {
+                        nextBatch.add(emails.next());
+                    }
+
+                    try {
+                        batch = validateAll(nextBatch, mode).iterator();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to validate batch", e);
+                    }
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public ValidationContext next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+        };
+    }
+
+    /**
+     * Run validators in range {@code [from, to)} of the chain
+     *
+     * @return {@code true} if all of them passed else {@code false}
+     */
+    private boolean run(int from, int to, ValidationContext validationContext, String email) throws Exception {
+        for (int i = from; i < to; i++) {
+            Validator validator = this.validator[i];
+
+            // Out of budget, return what is known so far instead of blocking
+            if (validationContext.deadlineExceeded()) {
+                logger.debug("Deadline exceeded before: {} for email: {}", validator.getClass().getSimpleName(), email);
+                validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+                return false;
+            }
+
+            long start = System.nanoTime();
+            ValidatorEvent event = ValidatorEvent.start();
+            boolean valid;
+            try {
+                valid = validator.isValid(validationContext, email);
+            } catch (TimeoutException e) {
+                // Ran out of budget while waiting
+                validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+                valid = false;
+            } catch (Exception e) {
+                finished(i, validationContext, start, event, ValidatorMetrics.OUTCOME_EXCEPTION);
+                ValidatorMetrics.validatorOutcome(validator, ValidatorMetrics.OUTCOME_EXCEPTION, e.getClass().getSimpleName()).increment();
+                throw e;
+            }
+
+            if (!completed(i, validationContext, email, valid, start, event) || validationContext.trusted()) {
+                return valid;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run validators in range {@code [from, to)} of the chain without blocking. Stages which are
+     * already complete, such as local validators and cache hits, are consumed in a loop
+     * and only pending ones are composed.
+     *
+     * @return {@link CompletableFuture} which completes with {@code true} if all of them passed else {@code false}
+     */
+    private CompletableFuture<Boolean> runAsync(int from, int to, ValidationContext validationContext, String email) {
+        for (int i = from; i < to; i++) {
+            // Out of budget, return what is known so far
+            if (validationContext.deadlineExceeded()) {
+                logger.debug("Deadline exceeded before: {} for email: {}", validator[i].getClass().getSimpleName(), email);
+                validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+                return CompletableFuture.completedFuture(false);
+            }
+
+            CompletableFuture<Boolean> stage = invoke(i, validationContext, email);
+            if (!stage.isDone() || stage.isCompletedExceptionally()) {
+                int next = i + 1;
+                return stage.thenCompose(valid -> valid && !validationContext.trusted()
+                        ? runAsync(next, to, validationContext, email)
+                        : CompletableFuture.completedFuture(valid));
+            }
+
+            boolean valid = stage.join();
+            if (!valid || validationContext.trusted()) {
+                return stage;
+            }
+        }
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Start the validator at {@code index} of the chain and record its outcome once it completes.
+     * Running out of budget completes the stage with {@code false}, other errors complete it exceptionally.
+     */
+    private CompletableFuture<Boolean> invoke(int index, ValidationContext validationContext, String email) {
+        Validator validator = this.validator[index];
+        long start = System.nanoTime();
+        ValidatorEvent event = ValidatorEvent.start();
+
+        CompletableFuture<Boolean> stage;
+        try {
+            if (validator instanceof AsyncValidator asyncValidator) {
+                stage = asyncValidator.isValidAsync(validationContext, email).toCompletableFuture();
+            } else if (validator.cost() <= Validator.COST_LOCAL) {
+                stage = CompletableFuture.completedFuture(validator.isValid(validationContext, email));
+            } else {
+                // Synchronous validators which wait on the network must not block the caller
+                stage = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return validator.isValid(validationContext, email);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, blockingExecutor);
+            }
+        } catch (Exception e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+
+        return stage.handle((valid, throwable) -> {
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                if (!(cause instanceof TimeoutException)) {
+                    finished(index, validationContext, start, event, ValidatorMetrics.OUTCOME_EXCEPTION);
+                    ValidatorMetrics.validatorOutcome(validator, ValidatorMetrics.OUTCOME_EXCEPTION, cause.getClass().getSimpleName()).increment();
+                    throw throwable instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+                }
+
+                // Ran out of budget while waiting
+                validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+                valid = false;
+            }
+
+            return completed(index, validationContext, email, valid, start, event);
+        });
+    }
+
+    /**
+     * Record the duration and count the outcome of the validator at {@code index} of the chain
+     *
+     * @return {@code valid}
+     */
+    private boolean completed(int index, ValidationContext validationContext, String email, boolean valid, long start, ValidatorEvent event) {
+        finished(index, validationContext, start, event, outcome(valid, validationContext));
+
+        Validator validator = this.validator[index];
+        if (!valid) {
+            failed(validator, validationContext, email);
+        } else {
+            passes[index].increment();
+            logger.debug("Validation passed by: {} for email: {}", validator.getClass().getSimpleName(), email);
+
+            if (validationContext.trusted()) {
+                logger.debug("Domain is trusted, skipping remaining validators for email: {}", email);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Record the duration of the validator at {@code index} of the chain, as a metric, a stage timing
+     * of the validation and a {@link ValidatorEvent}
+     */
+    private void finished(int index, ValidationContext validationContext, long start, ValidatorEvent event, String outcome) {
+        long duration = System.nanoTime() - start;
+        durations[index].record(duration, TimeUnit.NANOSECONDS);
+        validationContext.timing(names[index], duration, outcome);
+
+        if (event != null) {
+            boolean passed = outcome.equals(ValidatorMetrics.OUTCOME_PASS);
+            event.finish(names[index], validationContext.domain(), outcome, reason(outcome, validationContext), 1, passed ? 1 : 0);
+        }
+    }
+
+    /**
+     * Run the {@link BatchValidator} at {@code index} of the chain once per domain
+     * over the email addresses which are still passing
+     */
+    private void runBatch(int index, List<String> emails, List<ValidationContext> validationContexts, boolean[] passed) throws Exception {
+        BatchValidator validator = (BatchValidator) this.validator[index];
+
+        for (List<Integer> group : groupByDomain(emails, validationContexts, passed)) {
+            List<ValidationContext> groupContexts = new ArrayList<>(group.size());
+            List<String> groupEmails = new ArrayList<>(group.size());
+            for (int i : group) {
+                groupContexts.add(validationContexts.get(i));
+                groupEmails.add(emails.get(i));
+            }
+
+            long start = System.nanoTime();
+            ValidatorEvent event = ValidatorEvent.start();
+            boolean[] valid;
+            try {
+                // Addresses of a batch share the deadline
+                if (groupContexts.get(0).deadlineExceeded()) {
+                    throw new TimeoutException("Deadline exceeded before: " + validator.getClass().getSimpleName());
+                }
+                valid = validator.isValid(groupContexts, groupEmails);
+            } catch (TimeoutException e) {
+                // Out of budget, return what is known so far
+                groupContexts.forEach(validationContext -> validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE));
+                valid = new boolean[group.size()];
+            } catch (Exception e) {
+                long duration = System.nanoTime() - start;
+                durations[index].record(duration, TimeUnit.NANOSECONDS);
+                groupContexts.forEach(validationContext -> validationContext.timing(names[index], duration, ValidatorMetrics.OUTCOME_EXCEPTION));
+                if (event != null) {
+                    event.finish(names[index], groupContexts.get(0).domain(), ValidatorMetrics.OUTCOME_EXCEPTION, null, group.size(), 0);
+                }
+                ValidatorMetrics.validatorOutcome(validator, ValidatorMetrics.OUTCOME_EXCEPTION, e.getClass().getSimpleName()).increment();
+                throw e;
+            }
+            long duration = System.nanoTime() - start;
+            durations[index].record(duration, TimeUnit.NANOSECONDS);
+
+            int passedCount = 0;
+            for (int i = 0; i < group.size(); i++) {
+                ValidationContext validationContext = groupContexts.get(i);
+                validationContext.timing(names[index], duration, outcome(valid[i], validationContext));
+                if (valid[i]) {
+                    passedCount++;
+                    passes[index].increment();
+                    logger.debug("Validation passed by: {} for email: {}", validator.getClass().getSimpleName(), groupEmails.get(i));
+                } else {
+                    failed(validator, validationContext, groupEmails.get(i));
+                }
+                passed[group.get(i)] = valid[i] && !validationContext.trusted();
+            }
+
+            if (event != null) {
+                // One event for the whole batch, its outcome is the one of the first address which did not pass
+                int first = passedCount == group.size() ? 0 : indexOfFalse(valid);
+                String outcome = outcome(valid[first], groupContexts.get(first));
+                event.finish(names[index], groupContexts.get(0).domain(), outcome, reason(outcome, groupContexts.get(first)), group.size(), passedCount);
+            }
+        }
+    }
+
+    private static int indexOfFalse(boolean[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Outcome of a validator as counted by {@link ValidatorMetrics}
+     */
+    private static String outcome(boolean valid, ValidationContext validationContext) {
+        if (valid) {
+            return ValidatorMetrics.OUTCOME_PASS;
+        }
+        return validationContext.inconclusive() ? ValidatorMetrics.OUTCOME_INCONCLUSIVE : ValidatorMetrics.OUTCOME_FAIL;
+    }
+
+    private static String reason(String outcome, ValidationContext validationContext) {
+        return switch (outcome) {
+            case ValidatorMetrics.OUTCOME_FAIL -> validationContext.failureReason();
+            case ValidatorMetrics.OUTCOME_INCONCLUSIVE -> validationContext.inconclusiveReason();
+            default -> null;
+        };
+    }
+
+    /**
+     * Count a validator which did not pass, either because it failed or because it ran out of budget
+     */
+    private static void failed(Validator validator, ValidationContext validationContext, String email) {
+        if (validationContext.inconclusive()) {
+            ValidatorMetrics.validatorOutcome(validator, ValidatorMetrics.OUTCOME_INCONCLUSIVE, validationContext.inconclusiveReason()).increment();
+            logger.debug("Validation inconclusive by: {} for email: {}", validator.getClass().getSimpleName(), email);
+        } else {
+            ValidatorMetrics.validatorOutcome(validator, ValidatorMetrics.OUTCOME_FAIL, validationContext.failureReason()).increment();
+            logger.debug("Validation failed by: {} for email: {}", validator.getClass().getSimpleName(), email);
+        }
+    }
+
+    /**
+     * Stage a validator runs in when validating in bulk: per address, per domain or batched per domain
+     */
+    private static int scope(Validator validator) {
+        if (validator instanceof BatchValidator) {
+            return 2;
+        }
+        return validator.isDomainScoped() ? 1 : 0;
+    }
+
+    /**
+     * Group indexes of email addresses which are still passing by their domain,
+     * as parsed by an earlier validator if one did. Addresses without a domain get a group of their own.
+     */
+    private static Collection<List<Integer>> groupByDomain(List<String> emails, List<ValidationContext> validationContexts,
+                                                           boolean[] passed) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        List<List<Integer>> ungrouped = new ArrayList<>();
+
+        for (int i = 0; i < emails.size(); i++) {
+            if (!passed[i]) {
+                continue;
+            }
+
+            String domain = validationContexts.get(i).domain();
+            if (domain == null) {
+                String email = emails.get(i);
+                int at = email == null ? -1 : email.lastIndexOf('@');
+                domain = at < 0 ? null : email.substring(at + 1).toLowerCase(Locale.ROOT);
+            }
+
+            if (domain == null) {
+                ungrouped.add(List.of(i));
+            } else {
+                groups.computeIfAbsent(domain, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<List<Integer>> result = new ArrayList<>(groups.values());
+        result.addAll(ungrouped);
+        return result;
     }
 }
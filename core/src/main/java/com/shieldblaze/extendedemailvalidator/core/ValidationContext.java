@@ -16,17 +16,48 @@
  */
 package com.shieldblaze.extendedemailvalidator.core;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ValidationContext {
 
+    /**
+     * Inconclusive reason of a validation which ran out of its deadline
+     */
+    public static final String INCONCLUSIVE_DEADLINE = "deadline";
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
     private boolean addressValidationPassed;
+    private boolean blocklistValidationPassed;
     private boolean mxValidationPassed;
     private boolean mailServerConnectionPassed;
-    private final List<String> mailServerIpv4Addresses = new ArrayList<>();
-    private final List<String> mailServerIpv6Addresses = new ArrayList<>();
+    private boolean mailboxValidationPassed;
+    private boolean mailboxInconclusive;
+    private boolean catchAll;
+    private boolean trusted;
+    // Created on first use, so contexts which never reach DNS allocate nothing for them
+    private MailServerAddresses mailServerIpv4Addresses;
+    private MailServerAddresses mailServerIpv6Addresses;
     private String failureReason;
+    private String inconclusiveReason;
+    private long deadline = NO_DEADLINE;
+    private boolean hasDeadline;
+    private List<StageTiming> timings;
+
+    // Parsed address, either as the address and index of its '@' or as already split parts
+    private String address;
+    private int atIndex;
+    private String localPart;
+    private String domain;
 
     public static ValidationContext create() {
         return new ValidationContext();
@@ -41,6 +72,65 @@ public class ValidationContext {
         this.failureReason = failureReason;
     }
 
+    /**
+     * Record the parsed address as the address and index of the {@code @} separating
+     * local part and domain. Local part and domain are only split off when asked for.
+     *
+     * @param address Email address
+     * @param atIndex Index of the {@code @} separating local part and domain
+     */
+    public void markAddressParsed(String address, int atIndex) {
+        this.address = address;
+        this.atIndex = atIndex;
+        this.localPart = null;
+        this.domain = null;
+    }
+
+    /**
+     * Record the parsed address as its local part and domain
+     *
+     * @param localPart Local part of the email address
+     * @param domain    Domain of the email address
+     */
+    public void markAddressParsed(String localPart, String domain) {
+        this.address = null;
+        this.localPart = localPart;
+        this.domain = domain.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Local part of the parsed email address
+     *
+     * @return Local part or {@code null} if the address has not been parsed
+     */
+    public String localPart() {
+        if (localPart == null && address != null) {
+            localPart = address.substring(0, atIndex);
+        }
+        return localPart;
+    }
+
+    /**
+     * Lower-cased domain of the parsed email address
+     *
+     * @return Domain or {@code null} if the address has not been parsed
+     */
+    public String domain() {
+        if (domain == null && address != null) {
+            domain = address.substring(atIndex + 1).toLowerCase(Locale.ROOT);
+        }
+        return domain;
+    }
+
+    public void markBlocklistValidationPassed() {
+        this.blocklistValidationPassed = true;
+    }
+
+    public void markBlocklistValidationFailed(String failureReason) {
+        this.blocklistValidationPassed = false;
+        this.failureReason = failureReason;
+    }
+
     public void markMxValidationPassed() {
         this.mxValidationPassed = true;
     }
@@ -50,11 +140,35 @@ public class ValidationContext {
         this.failureReason = failureReason;
     }
 
+    /**
+     * Set the IP addresses of the mail servers
+     *
+     * @param ipv4Addresses IPv4 addresses of the mail servers
+     * @param ipv6Addresses IPv6 addresses of the mail servers
+     */
+    public void mailServerAddresses(List<String> ipv4Addresses, List<String> ipv6Addresses) {
+        // Copying an unmodifiable list returns the same list
+        this.mailServerIpv4Addresses = new MailServerAddresses(List.copyOf(ipv4Addresses));
+        this.mailServerIpv6Addresses = new MailServerAddresses(List.copyOf(ipv6Addresses));
+    }
+
+    /**
+     * IPv4 addresses of the mail servers. The list may be modified, later validators see the changes.
+     */
     public List<String> mailServerIpv4Addresses() {
+        if (mailServerIpv4Addresses == null) {
+            mailServerIpv4Addresses = new MailServerAddresses(List.of());
+        }
         return mailServerIpv4Addresses;
     }
 
+    /**
+     * IPv6 addresses of the mail servers. The list may be modified, later validators see the changes.
+     */
     public List<String> mailServerIpv6Addresses() {
+        if (mailServerIpv6Addresses == null) {
+            mailServerIpv6Addresses = new MailServerAddresses(List.of());
+        }
         return mailServerIpv6Addresses;
     }
 
@@ -67,10 +181,201 @@ public class ValidationContext {
         this.failureReason = failureReason;
     }
 
+    public void markMailboxValidationPassed() {
+        this.mailboxValidationPassed = true;
+        this.mailboxInconclusive = false;
+    }
+
+    /**
+     * Mark the mailbox as accepted by a catch-all mail server, which accepts any recipient.
+     * Acceptance says nothing about the mailbox, so it is inconclusive.
+     */
+    public void markMailboxCatchAll() {
+        this.mailboxValidationPassed = false;
+        this.mailboxInconclusive = true;
+        this.catchAll = true;
+    }
+
+    public void markMailboxValidationFailed(String failureReason) {
+        this.mailboxValidationPassed = false;
+        this.mailboxInconclusive = false;
+        this.failureReason = failureReason;
+    }
+
+    /**
+     * Mark the mailbox as neither confirmed nor refused by the mail server, such as on a temporary
+     * failure or a timeout. The address is not failed for it.
+     */
+    public void markMailboxInconclusive() {
+        this.mailboxValidationPassed = false;
+        this.mailboxInconclusive = true;
+    }
+
+    /**
+     * Set the deadline of the validation. Validators size their waits from the time left
+     * and {@link ValidatingChain} stops once it has passed.
+     *
+     * @param deadline Deadline as per {@link System#nanoTime()}
+     */
+    public void deadline(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Deadline of the validation as per {@link System#nanoTime()}, see {@link #hasDeadline()}
+     */
+    public long deadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns {@code true} if the validation has a deadline
+     */
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * Time left until the deadline in nanoseconds, {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long remainingNanos() {
+        return hasDeadline ? deadline - System.nanoTime() : NO_DEADLINE;
+    }
+
+    /**
+     * Time left until the deadline in milliseconds, capped at {@code timeoutMillis}
+     *
+     * @param timeoutMillis Timeout of the wait in milliseconds
+     * @return Milliseconds to wait, {@code 0} or less if the deadline has passed
+     */
+    public long remainingMillis(long timeoutMillis) {
+        return hasDeadline ? Math.min(timeoutMillis, TimeUnit.NANOSECONDS.toMillis(remainingNanos())) : timeoutMillis;
+    }
+
+    /**
+     * Returns {@code true} if the deadline has passed
+     */
+    public boolean deadlineExceeded() {
+        return hasDeadline && remainingNanos() <= 0;
+    }
+
+    /**
+     * Wait for the future until the deadline
+     *
+     * @param future {@link CompletableFuture} to wait for
+     * @return Value of the future
+     * @throws TimeoutException     If the deadline passed first
+     * @throws InterruptedException If interrupted while waiting
+     * @throws CompletionException  If the future completed exceptionally
+     */
+    public <T> T await(CompletableFuture<T> future) throws TimeoutException, InterruptedException {
+        if (!hasDeadline) {
+            return future.join();
+        }
+
+        try {
+            return future.get(Math.max(0, remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // The future may have been bounded by the deadline itself, see within(CompletableFuture)
+            if (e.getCause() instanceof TimeoutException timeoutException) {
+                throw timeoutException;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Bound the future by the deadline without blocking
+     *
+     * @param future {@link CompletableFuture} to bound
+     * @return {@link CompletableFuture} which completes like the future, or exceptionally with
+     * {@link TimeoutException} once the deadline passes
+     */
+    public <T> CompletableFuture<T> within(CompletableFuture<T> future) {
+        if (!hasDeadline || future.isDone()) {
+            return future;
+        }
+        // Bound a copy, so the timeout never completes a future shared with other callers
+        return future.copy().orTimeout(Math.max(0, remainingNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Mark the validation as inconclusive, such as when it ran out of its deadline.
+     * The results of the validators which ran are kept.
+     *
+     * @param inconclusiveReason Why the validation is inconclusive, such as {@link #INCONCLUSIVE_DEADLINE}
+     */
+    public void markInconclusive(String inconclusiveReason) {
+        this.inconclusiveReason = inconclusiveReason;
+    }
+
+    /**
+     * Record the time spent in each validator of this validation, see {@link #timings()}
+     */
+    public void recordTimings() {
+        if (timings == null) {
+            timings = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Add the time spent in a validator, if timings are recorded
+     *
+     * @param stage         Name of the validator
+     * @param durationNanos Time the validator took, in nanoseconds
+     * @param outcome       Outcome of the validator
+     */
+    public void timing(String stage, long durationNanos, String outcome) {
+        if (timings != null) {
+            timings.add(new StageTiming(stage, durationNanos, outcome));
+        }
+    }
+
+    /**
+     * Time spent in each validator which ran, in order
+     *
+     * @return List of {@link StageTiming} or {@code null} if timings are not recorded
+     */
+    public List<StageTiming> timings() {
+        return timings == null ? null : Collections.unmodifiableList(timings);
+    }
+
+    /**
+     * Mark the domain as trusted, which passes the network validation stages without running them
+     * and stops {@link ValidatingChain} from running further validators
+     */
+    public void markTrusted() {
+        this.trusted = true;
+        this.mxValidationPassed = true;
+        this.mailServerConnectionPassed = true;
+    }
+
+    /**
+     * Copy the results of domain scoped validators from another {@link ValidationContext}
+     * of an email address on the same domain
+     *
+     * @param other {@link ValidationContext} to copy from
+     */
+    public void copyDomainResults(ValidationContext other) {
+        this.blocklistValidationPassed = other.blocklistValidationPassed;
+        this.mxValidationPassed = other.mxValidationPassed;
+        this.mailServerConnectionPassed = other.mailServerConnectionPassed;
+        this.trusted = other.trusted;
+        this.mailServerIpv4Addresses = MailServerAddresses.copyOf(other.mailServerIpv4Addresses);
+        this.mailServerIpv6Addresses = MailServerAddresses.copyOf(other.mailServerIpv6Addresses);
+        this.failureReason = other.failureReason;
+        this.inconclusiveReason = other.inconclusiveReason;
+    }
+
     public boolean addressValidationPassed() {
         return addressValidationPassed;
     }
 
+    public boolean blocklistValidationPassed() {
+        return blocklistValidationPassed;
+    }
+
     public boolean mxValidationPassed() {
         return mxValidationPassed;
     }
@@ -79,23 +384,123 @@ public class ValidationContext {
         return mailServerConnectionPassed;
     }
 
+    public boolean mailboxValidationPassed() {
+        return mailboxValidationPassed;
+    }
+
+    /**
+     * Returns {@code true} if the mail server neither confirmed nor refused the mailbox
+     */
+    public boolean mailboxInconclusive() {
+        return mailboxInconclusive;
+    }
+
+    /**
+     * Returns {@code true} if the mail server accepts mail for any recipient of the domain
+     */
+    public boolean catchAll() {
+        return catchAll;
+    }
+
+    /**
+     * Returns {@code true} if the network validation stages passed because the domain is trusted
+     */
+    public boolean trusted() {
+        return trusted;
+    }
+
     public String failureReason() {
         return failureReason;
     }
 
+    /**
+     * Returns {@code true} if the validation stopped before all validators ran, see {@link #inconclusiveReason()}
+     */
+    public boolean inconclusive() {
+        return inconclusiveReason != null;
+    }
+
+    /**
+     * Why the validation is inconclusive
+     *
+     * @return Reason such as {@link #INCONCLUSIVE_DEADLINE} or {@code null} if conclusive
+     */
+    public String inconclusiveReason() {
+        return inconclusiveReason;
+    }
+
     @Override
     public String toString() {
         return "ValidationContext{" +
                 "addressValidationPassed=" + addressValidationPassed +
+                ", blocklistValidationPassed=" + blocklistValidationPassed +
                 ", mxValidationPassed=" + mxValidationPassed +
                 ", mailServerConnectionPassed=" + mailServerConnectionPassed +
-                ", mailServerIpv4Addresses=" + mailServerIpv4Addresses +
-                ", mailServerIpv6Addresses=" + mailServerIpv6Addresses +
+                ", mailboxValidationPassed=" + mailboxValidationPassed +
+                ", mailboxInconclusive=" + mailboxInconclusive +
+                ", catchAll=" + catchAll +
+                ", trusted=" + trusted +
+                ", mailServerIpv4Addresses=" + mailServerIpv4Addresses() +
+                ", mailServerIpv6Addresses=" + mailServerIpv6Addresses() +
                 ", failureReason='" + failureReason + '\'' +
+                ", inconclusiveReason='" + inconclusiveReason + '\'' +
                 '}';
     }
 
     private ValidationContext() {
         // Private constructor
     }
+
+    /**
+     * Mail server addresses which share the resolved, unmodifiable list until they are first modified
+     */
+    private static final class MailServerAddresses extends AbstractList<String> {
+
+        private List<String> addresses;
+        private boolean copied;
+
+        private MailServerAddresses(List<String> addresses) {
+            this.addresses = addresses;
+        }
+
+        private static MailServerAddresses copyOf(MailServerAddresses other) {
+            // Sharing an unmodified list is safe, a modified one is copied so neither context sees the other's changes
+            return other == null ? null : new MailServerAddresses(List.copyOf(other.addresses));
+        }
+
+        @Override
+        public String get(int index) {
+            return addresses.get(index);
+        }
+
+        @Override
+        public int size() {
+            return addresses.size();
+        }
+
+        @Override
+        public String set(int index, String element) {
+            return modifiable().set(index, element);
+        }
+
+        @Override
+        public void add(int index, String element) {
+            modifiable().add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public String remove(int index) {
+            modCount++;
+            return modifiable().remove(index);
+        }
+
+        private List<String> modifiable() {
+            if (!copied) {
+                addresses = new ArrayList<>(addresses);
+                copied = true;
+            }
+            return addresses;
+        }
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+import java.util.Locale;
+
+/**
+ * How deep an email address is validated. Every mode runs the validators of the chain
+ * whose {@link Validator#cost()} is within the limit of the mode.
+ */
+public enum ValidationMode {
+
+    /**
+     * Checks answered from memory only, such as syntax and domain lists
+     */
+    SYNTAX(Validator.COST_LOCAL),
+
+    /**
+     * {@link #SYNTAX} and DNS lookups of the mail servers
+     */
+    DNS(Validator.COST_DNS),
+
+    /**
+     * {@link #DNS} and connecting to the mail servers
+     */
+    CONNECT(Validator.COST_CONNECT),
+
+    /**
+     * Every validator of the chain, including mailbox verification
+     */
+    DEEP(Integer.MAX_VALUE);
+
+    private final int maxCost;
+
+    ValidationMode(int maxCost) {
+        this.maxCost = maxCost;
+    }
+
+    /**
+     * Highest {@link Validator#cost()} run in this mode
+     */
+    public int maxCost() {
+        return maxCost;
+    }
+
+    /**
+     * Parse a mode by its name, ignoring case
+     *
+     * @param name Name of the mode, such as {@code syntax}
+     * @return {@link ValidationMode}
+     * @throws IllegalArgumentException If there is no mode of that name
+     */
+    public static ValidationMode of(String name) {
+        try {
+            return valueOf(name.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown validation mode: " + name);
+        }
+    }
+}
@@ -18,5 +18,46 @@ package com.shieldblaze.extendedemailvalidator.core;
 
 public interface Validator {
 
+    /**
+     * Cost of a check answered from memory, such as syntax or a domain list
+     */
+    int COST_LOCAL = 1;
+
+    /**
+     * Cost of a check which needs DNS lookups
+     */
+    int COST_DNS = 10;
+
+    /**
+     * Cost of a check which connects to mail servers
+     */
+    int COST_CONNECT = 100;
+
+    /**
+     * Cost of a check which holds a conversation with mail servers
+     */
+    int COST_SMTP = 1000;
+
     boolean isValid(ValidationContext validationContext, String email) throws Exception;
+
+    /**
+     * Whether the outcome of this validator depends only on the domain of the email address.
+     * When validating in bulk, domain scoped validators run once per distinct domain and their
+     * outcome is shared by every address of that domain.
+     *
+     * @return {@code true} if domain scoped else {@code false}
+     */
+    default boolean isDomainScoped() {
+        return false;
+    }
+
+    /**
+     * Relative cost of running this validator. {@link ValidatingChain} runs cheap validators first
+     * and a {@link ValidationMode} only runs validators up to its {@link ValidationMode#maxCost()}.
+     *
+     * @return One of {@link #COST_LOCAL}, {@link #COST_DNS}, {@link #COST_CONNECT} and {@link #COST_SMTP}
+     */
+    default int cost() {
+        return COST_LOCAL;
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, concurrent cache where every entry carries its own time-to-live.
+ * <p>
+ * Expired entries are removed lazily on access. When the cache is full, expired entries
+ * are swept first and, if that does not free enough room, a slice of the remaining entries
+ * is dropped so eviction cost stays amortized.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public final class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maximumSize;
+
+    /**
+     * Create a new {@link ExpiringCache}
+     *
+     * @param maximumSize Maximum number of entries, {@code 0} disables caching
+     */
+    public ExpiringCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must be greater than or equal to 0");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Get the value mapped to the key
+     *
+     * @param key Key to look up
+     * @return Value if present and not expired else {@code null}
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return entry.value();
+    }
+
+    /**
+     * Map the value to the key for the given duration
+     *
+     * @param key      Key
+     * @param value    Value
+     * @param ttl      Time-to-live of this entry
+     * @param timeUnit {@link TimeUnit} of time-to-live
+     */
+    public void put(K key, V value, long ttl, TimeUnit timeUnit) {
+        if (maximumSize == 0 || ttl <= 0) {
+            return;
+        }
+
+        if (entries.size() >= maximumSize && !entries.containsKey(key)) {
+            evict();
+        }
+
+        entries.put(key, new Entry<>(value, System.nanoTime() + timeUnit.toNanos(ttl)));
+    }
+
+    /**
+     * Remove the mapping of the key
+     *
+     * @param key Key to remove
+     */
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Number of entries currently held, including the ones which have expired but not swept yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Visit every entry which has not expired
+     *
+     * @param visitor {@link EntryVisitor} to call for each entry
+     */
+    public void forEach(EntryVisitor<K, V> visitor) {
+        long now = System.nanoTime();
+        entries.forEach((key, entry) -> {
+            if (!entry.isExpired(now)) {
+                visitor.visit(key, entry.value(), entry.expiresAt() - now);
+            }
+        });
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        if (entries.size() < maximumSize) {
+            return;
+        }
+
+        // Still full, drop 1/16th of the entries to make room for new ones.
+        int toRemove = entries.size() - maximumSize + Math.max(1, maximumSize >>> 4);
+        Iterator<K> iterator = entries.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Visitor of the entries of an {@link ExpiringCache}
+     *
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    @FunctionalInterface
+    public interface EntryVisitor<K, V> {
+
+        /**
+         * Visit an entry
+         *
+         * @param key            Key
+         * @param value          Value
+         * @param remainingNanos Time-to-live left in nanoseconds
+         */
+        void visit(K key, V value, long remainingNanos);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cache;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cache of domains which recently failed validation, keyed by domain.
+ * <p>
+ * Each entry records the type of failure and the failure reason, so repeat offenders
+ * are rejected with the same reason without touching the network again.
+ */
+public final class NegativeCache {
+
+    /**
+     * Stage which failed
+     */
+    public enum FailureType {
+        /**
+         * DNS resolution of the mail servers failed
+         */
+        DNS,
+
+        /**
+         * No mail server could be connected to
+         */
+        CONNECTION
+    }
+
+    private final ExpiringCache<String, Failure> cache;
+    private final long maxTtl;
+    private final long timeoutTtl;
+
+    public NegativeCache(NetworkConfig networkConfig) {
+        requireNonNull(networkConfig, "NetworkConfig");
+        cache = new ExpiringCache<>(networkConfig.dnsCacheSize());
+        maxTtl = networkConfig.dnsCacheMaxTtl();
+        timeoutTtl = networkConfig.negativeCacheTtl();
+    }
+
+    /**
+     * Get the failure reason recorded for the domain
+     *
+     * @param domain Domain to look up
+     * @param type   {@link FailureType} to look up
+     * @return Failure reason if a failure of this type is recorded else {@code null}
+     */
+    public String failureReason(String domain, FailureType type) {
+        Failure failure = cache.get(domain);
+        return failure != null && failure.type() == type ? failure.failureReason() : null;
+    }
+
+    /**
+     * Record a failure of the domain
+     *
+     * @param domain        Domain which failed
+     * @param type          {@link FailureType} of failure
+     * @param failureReason Failure reason
+     * @param ttl           Time-to-live in seconds, clamped to the maximum DNS cache TTL
+     */
+    public void put(String domain, FailureType type, String failureReason, long ttl) {
+        cache.put(domain, new Failure(type, failureReason), Math.min(ttl, maxTtl), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Time-to-live in seconds of failures which carry no TTL of their own, such as timeouts
+     */
+    public long timeoutTtl() {
+        return timeoutTtl;
+    }
+
+    private record Failure(FailureType type, String failureReason) {
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cache;
+
+import com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent work on the same key: the first caller starts the work and callers
+ * arriving while it is in flight share its result instead of repeating it.
+ * <p>
+ * Unlike a cache, nothing is kept once the work completes; the next caller starts it again.
+ *
+ * @param <K> Key type
+ * @param <V> Result type
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    /**
+     * Create a new {@link SingleFlight}
+     *
+     * @param operation Name of the coalesced operation, used as metric tag
+     */
+    public SingleFlight(String operation) {
+        coalesced = ValidatorMetrics.coalesced(operation);
+    }
+
+    /**
+     * Start the work for the key, or join the work already in flight for it
+     *
+     * @param key  Key of the work
+     * @param work Starts the work
+     * @return {@link CompletableFuture} which completes with the result of the work
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> work) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        try {
+            work.get().whenComplete((value, throwable) -> {
+                // Remove first, so callers arriving after completion start fresh work
+                inFlight.remove(key, promise);
+                if (throwable == null) {
+                    promise.complete(value);
+                } else {
+                    promise.completeExceptionally(throwable);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+
+        // Callers get a copy, so one of them completing or cancelling it does not affect the others
+        return promise.copy();
+    }
+
+    /**
+     * Number of keys with work in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.cache.NegativeCache;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.dns.MxResolver;
+import com.shieldblaze.extendedemailvalidator.core.validators.AddressValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.DomainBlocklistValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.MXRecordValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.MailServerConnection;
+import com.shieldblaze.extendedemailvalidator.core.validators.TrustedDomainValidator;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line entry point validating every email address of a CSV or NDJSON file.
+ * <p>
+ * Results are written to the output file as NDJSON in input order and progress is checkpointed
+ * periodically, so running the same command again after the job was killed resumes where it stopped.
+ */
+public final class BulkValidationCli {
+
+    private static final String USAGE = """
+            Usage: java -jar core-1.0.0-cli.jar --input <file> --output <file> [options]
+
+              --input <file>                 CSV or NDJSON file with one record per line
+              --output <file>                NDJSON file to write results to
+              --checkpoint <file>            Checkpoint file (default: <output>.checkpoint)
+              --format <csv|ndjson>          Input format (default: from input file name)
+              --column <index>               Column of the email address in CSV input (default: 0)
+              --field <name>                 Field of the email address in NDJSON input (default: emailAddress)
+              --skip-header                  Skip the first line of the input
+              --threads <count>              Number of worker threads (default: 64)
+              --batch-size <count>           Number of records validated together (default: 256)
+              --checkpoint-interval <secs>   Seconds between checkpoints (default: 10)
+              --report-interval <secs>       Seconds between throughput reports (default: 5)
+              --dns-servers <servers>        Comma separated DNS servers (default: 8.8.8.8,8.8.4.4)
+              --dns-timeout <millis>         DNS timeout (default: 2500)
+              --socket-timeout <millis>      Mail server connection timeout (default: 2500)
+              --blocklist <file>             Domain blocklist
+              --trusted-domains <domains>    Comma separated trusted domains
+              --mode <mode>                  syntax, dns, connect or deep (default: deep)
+              --no-mx                        Disable MX record validation
+              --connect                      Enable mail server connection validation
+            """;
+
+    private static final Set<String> OPTIONS = Set.of("--input", "--output", "--checkpoint", "--format", "--column", "--field",
+            "--threads", "--batch-size", "--checkpoint-interval", "--report-interval", "--dns-servers", "--dns-timeout",
+            "--socket-timeout", "--blocklist", "--trusted-domains", "--mode");
+    private static final Set<String> FLAGS = Set.of("--help", "--skip-header", "--no-mx", "--connect");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments;
+        try {
+            arguments = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (arguments.containsKey("--help") || !arguments.containsKey("--input") || !arguments.containsKey("--output")) {
+            System.err.print(USAGE);
+            System.exit(arguments.containsKey("--help") ? 0 : 2);
+            return;
+        }
+
+        Path input = Path.of(arguments.get("--input"));
+        Path output = Path.of(arguments.get("--output"));
+        BulkValidationOptions options = new BulkValidationOptions(
+                input,
+                output,
+                Path.of(arguments.getOrDefault("--checkpoint", output + ".checkpoint")),
+                arguments.containsKey("--format")
+                        ? InputFormat.valueOf(arguments.get("--format").toUpperCase(Locale.ROOT))
+                        : InputFormat.of(input.getFileName().toString()),
+                Integer.parseInt(arguments.getOrDefault("--column", "0")),
+                arguments.getOrDefault("--field", "emailAddress"),
+                arguments.containsKey("--skip-header"),
+                Integer.parseInt(arguments.getOrDefault("--threads", "64")),
+                Integer.parseInt(arguments.getOrDefault("--batch-size", "256")),
+                Duration.ofSeconds(Long.parseLong(arguments.getOrDefault("--checkpoint-interval", "10"))),
+                Duration.ofSeconds(Long.parseLong(arguments.getOrDefault("--report-interval", "5"))),
+                ValidationMode.of(arguments.getOrDefault("--mode", "deep")));
+
+        List<Closeable> closeables = new ArrayList<>();
+        try {
+            new BulkValidationJob(validatingChain(arguments, closeables), options, System.err).run();
+        } finally {
+            // Stop the threads of the validators
+            for (Closeable closeable : closeables) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Create the {@link ValidatingChain} of the arguments
+     *
+     * @param closeables Receives the validators which must be closed after the job
+     */
+    private static ValidatingChain validatingChain(Map<String, String> arguments, List<Closeable> closeables) throws Exception {
+        NetworkConfig networkConfig = new NetworkConfig(
+                List.of(arguments.getOrDefault("--dns-servers", "8.8.8.8,8.8.4.4").split(",")),
+                Integer.parseInt(arguments.getOrDefault("--dns-timeout", "2500")),
+                Integer.parseInt(arguments.getOrDefault("--socket-timeout", "2500")));
+        NegativeCache negativeCache = new NegativeCache(networkConfig);
+
+        List<Validator> validators = new ArrayList<>();
+        validators.add(new AddressValidator());
+
+        if (arguments.containsKey("--blocklist")) {
+            DomainBlocklistValidator domainBlocklistValidator = new DomainBlocklistValidator(Path.of(arguments.get("--blocklist")));
+            closeables.add(domainBlocklistValidator);
+            validators.add(domainBlocklistValidator);
+        }
+
+        if (arguments.containsKey("--trusted-domains")) {
+            validators.add(new TrustedDomainValidator(List.of(arguments.get("--trusted-domains").split(","))));
+        }
+
+        if (!arguments.containsKey("--no-mx")) {
+            validators.add(new MXRecordValidator(new MxResolver(networkConfig, negativeCache)));
+        }
+
+        if (arguments.containsKey("--connect")) {
+            MailServerConnection mailServerConnection = new MailServerConnection(networkConfig, negativeCache, new ProbeCache(networkConfig));
+            closeables.add(mailServerConnection);
+            validators.add(mailServerConnection);
+        }
+
+        return new ValidatingChain(validators.toArray(Validator[]::new));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (FLAGS.contains(name)) {
+                arguments.put(name, "");
+            } else if (OPTIONS.contains(name)) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                arguments.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + name);
+            }
+        }
+        return arguments;
+    }
+
+    private BulkValidationCli() {
+        // Prevent outside initialization
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Validates every record of an input file and streams the results to an output file as NDJSON.
+ * <p>
+ * A reader thread cuts the input into batches which workers validate with {@link ValidatingChain#validateAll},
+ * so addresses of a batch on the same domain cost a single lookup. Results are written in input order,
+ * which lets a {@link Checkpoint} describe progress as a pair of offsets. On restart the output is
+ * truncated to the checkpointed offset and reading resumes from the checkpointed input offset.
+ */
+final class BulkValidationJob {
+
+    private final ValidatingChain validatingChain;
+    private final BulkValidationOptions options;
+    private final PrintStream report;
+
+    BulkValidationJob(ValidatingChain validatingChain, BulkValidationOptions options, PrintStream report) {
+        this.validatingChain = requireNonNull(validatingChain, "ValidatingChain");
+        this.options = requireNonNull(options, "BulkValidationOptions");
+        this.report = requireNonNull(report, "Report");
+    }
+
+    /**
+     * Run the job to the end of the input
+     *
+     * @return Number of records validated by this run
+     */
+    long run() throws Exception {
+        Checkpoint checkpoint = Checkpoint.read(options.checkpoint());
+        if (checkpoint.inputOffset() > 0) {
+            report.printf("Resuming at input offset %d after %d records%n", checkpoint.inputOffset(), checkpoint.records());
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(options.threads(),
+                Thread.ofPlatform().name("bulk-validation-", 0).daemon(true).factory());
+
+        // Bounded, so the reader never gets far ahead of the writer
+        BlockingQueue<CompletableFuture<Batch>> pending = new ArrayBlockingQueue<>(options.threads() * 2);
+
+        try (LineReader lineReader = new LineReader(options.input(), checkpoint.inputOffset());
+             FileChannel output = FileChannel.open(options.output(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            // Drop results written after the last checkpoint, they are validated again
+            output.truncate(checkpoint.outputOffset());
+            output.position(checkpoint.outputOffset());
+            Writer writer = new BufferedWriter(Channels.newWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+
+            Thread reader = Thread.ofPlatform().name("bulk-validation-reader").daemon(true)
+                    .start(() -> read(lineReader, checkpoint.inputOffset() == 0, workers, pending));
+
+            long records = checkpoint.records();
+            long startRecords = records;
+            long start = System.nanoTime();
+            long lastReport = start;
+            long lastReportRecords = records;
+            long lastCheckpoint = start;
+
+            try {
+                while (true) {
+                    Batch batch = pending.take().join();
+                    if (batch == null) {
+                        break;
+                    }
+
+                    for (int i = 0; i < batch.emails().size(); i++) {
+                        writeResult(writer, batch.emails().get(i), batch.results().get(i));
+                    }
+                    records += batch.emails().size();
+
+                    long now = System.nanoTime();
+                    if (now - lastCheckpoint >= options.checkpointInterval().toNanos()) {
+                        checkpoint(writer, output, batch.endOffset(), records);
+                        lastCheckpoint = now;
+                    }
+                    if (now - lastReport >= options.reportInterval().toNanos()) {
+                        report.printf("%d records, %.0f/s current, %.0f/s average%n", records,
+                                (records - lastReportRecords) / seconds(now - lastReport),
+                                (records - startRecords) / seconds(now - start));
+                        lastReport = now;
+                        lastReportRecords = records;
+                    }
+                }
+
+                reader.join();
+            } finally {
+                // A failed batch ends the job early, the reader may be blocked on the full queue
+                reader.interrupt();
+            }
+            checkpoint(writer, output, lineReader.offset(), records);
+
+            long elapsed = System.nanoTime() - start;
+            report.printf("Done, %d records in %.1fs, %.0f/s%n", records, seconds(elapsed), (records - startRecords) / seconds(elapsed));
+            return records - startRecords;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Read batches of email addresses and queue their validation, ends with a {@code null} batch
+     */
+    private void read(LineReader lineReader, boolean atStart, ExecutorService workers, BlockingQueue<CompletableFuture<Batch>> pending) {
+        try {
+            if (atStart && options.skipHeader()) {
+                lineReader.readLine();
+            }
+
+            List<String> emails = new ArrayList<>(options.batchSize());
+            String line;
+            while ((line = lineReader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                emails.add(options.format().extract(line, options.column(), options.field()));
+                if (emails.size() == options.batchSize()) {
+                    pending.put(submit(emails, lineReader.offset(), workers));
+                    emails = new ArrayList<>(options.batchSize());
+                }
+            }
+
+            if (!emails.isEmpty()) {
+                pending.put(submit(emails, lineReader.offset(), workers));
+            }
+            pending.put(CompletableFuture.completedFuture(null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Wait for room like any batch, offer would drop the failure on a full queue and hang the writer
+            try {
+                pending.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private CompletableFuture<Batch> submit(List<String> emails, long endOffset, ExecutorService workers) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new Batch(emails, validatingChain.validateAll(emails, options.mode()), endOffset);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to validate batch", e);
+            }
+        }, workers);
+    }
+
+    private void checkpoint(Writer writer, FileChannel output, long inputOffset, long records) throws IOException {
+        writer.flush();
+        output.force(false);
+        new Checkpoint(inputOffset, output.position(), records).write(options.checkpoint());
+    }
+
+    private static void writeResult(Writer writer, String email, ValidationContext validationContext) throws IOException {
+        writer.write("{\"emailAddress\":");
+        writeString(writer, email);
+        writer.write(",\"addressValidationPassed\":" + validationContext.addressValidationPassed());
+        writer.write(",\"blocklistValidationPassed\":" + validationContext.blocklistValidationPassed());
+        writer.write(",\"mxValidationPassed\":" + validationContext.mxValidationPassed());
+        writer.write(",\"mailServerConnectionPassed\":" + validationContext.mailServerConnectionPassed());
+        writer.write(",\"mailboxValidationPassed\":" + validationContext.mailboxValidationPassed());
+        writer.write(",\"mailboxInconclusive\":" + validationContext.mailboxInconclusive());
+        writer.write(",\"catchAll\":" + validationContext.catchAll());
+        writer.write(",\"trusted\":" + validationContext.trusted());
+        if (validationContext.failureReason() != null) {
+            writer.write(",\"failureReason\":");
+            writeString(writer, validationContext.failureReason());
+        }
+        if (validationContext.inconclusiveReason() != null) {
+            writer.write(",\"inconclusiveReason\":");
+            writeString(writer, validationContext.inconclusiveReason());
+        }
+        writer.write("}\n");
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    private static double seconds(long nanos) {
+        return Math.max(nanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Validated batch of email addresses
+     *
+     * @param endOffset Input offset after the last line of the batch
+     */
+    private record Batch(List<String> emails, List<ValidationContext> results, long endOffset) {
+    }
+}
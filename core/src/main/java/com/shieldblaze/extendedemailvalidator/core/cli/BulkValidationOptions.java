@@ -0,0 +1,64 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options of a {@link BulkValidationJob}
+ *
+ * @param input              Input file
+ * @param output             Output file, NDJSON
+ * @param checkpoint         Checkpoint file
+ * @param format             Format of the input file
+ * @param column             Column of the email address in CSV input
+ * @param field              Field of the email address in NDJSON input
+ * @param skipHeader         Skip the first line of the input
+ * @param threads            Number of worker threads
+ * @param batchSize          Number of records validated together, see {@link com.shieldblaze.extendedemailvalidator.core.ValidatingChain#validateAll}
+ * @param checkpointInterval Interval between checkpoints
+ * @param reportInterval     Interval between throughput reports
+ * @param mode               {@link ValidationMode} to validate in
+ */
+record BulkValidationOptions(Path input, Path output, Path checkpoint, InputFormat format, int column, String field,
+                             boolean skipHeader, int threads, int batchSize, Duration checkpointInterval,
+                             Duration reportInterval, ValidationMode mode) {
+
+    BulkValidationOptions {
+        requireNonNull(input, "Input");
+        requireNonNull(output, "Output");
+        requireNonNull(checkpoint, "Checkpoint");
+        requireNonNull(format, "Format");
+        requireNonNull(field, "Field");
+        requireNonNull(checkpointInterval, "CheckpointInterval");
+        requireNonNull(reportInterval, "ReportInterval");
+        requireNonNull(mode, "ValidationMode");
+
+        if (column < 0) {
+            throw new IllegalArgumentException("column must be greater than or equal to 0");
+        } else if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        } else if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Progress of a bulk validation job. Everything before {@code inputOffset} of the input
+ * has been validated and written before {@code outputOffset} of the output.
+ *
+ * @param inputOffset  Byte offset of the next input line to validate
+ * @param outputOffset Byte offset of the output after the last written result
+ * @param records      Number of records validated so far
+ */
+record Checkpoint(long inputOffset, long outputOffset, long records) {
+
+    static final Checkpoint START = new Checkpoint(0, 0, 0);
+
+    Checkpoint {
+        if (inputOffset < 0 || outputOffset < 0 || records < 0) {
+            throw new IllegalArgumentException("inputOffset, outputOffset and records must be greater than or equal to 0");
+        }
+    }
+
+    /**
+     * Read a checkpoint file
+     *
+     * @return {@link Checkpoint} or {@link #START} if the file does not exist
+     */
+    static Checkpoint read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return START;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+
+        try {
+            return new Checkpoint(Long.parseLong(properties.getProperty("input-offset")),
+                    Long.parseLong(properties.getProperty("output-offset")),
+                    Long.parseLong(properties.getProperty("records")));
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid checkpoint file: " + path, e);
+        }
+    }
+
+    /**
+     * Write this checkpoint to a temporary file and move it over the checkpoint file atomically,
+     * so a crash never leaves a partial checkpoint behind
+     */
+    void write(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("input-offset", String.valueOf(inputOffset));
+        properties.setProperty("output-offset", String.valueOf(outputOffset));
+        properties.setProperty("records", String.valueOf(records));
+
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaryPath)) {
+            properties.store(writer, null);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import java.util.Locale;
+
+/**
+ * Format of the input file of a bulk validation job, one record per line
+ */
+enum InputFormat {
+
+    /**
+     * Comma separated values, fields may be quoted with {@code "}. Quoted fields spanning lines are not supported.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line
+     */
+    NDJSON;
+
+    /**
+     * Pick the format from the file name, {@code .ndjson}, {@code .jsonl} and {@code .json} are NDJSON, everything else CSV
+     */
+    static InputFormat of(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json") ? NDJSON : CSV;
+    }
+
+    /**
+     * Extract the email address from a line
+     *
+     * @param line   Line of the input file
+     * @param column Column index for {@link #CSV}
+     * @param field  Top level field name for {@link #NDJSON}
+     * @return Email address or {@code null} if the line has no such column or field
+     */
+    String extract(String line, int column, String field) {
+        return this == CSV ? csvColumn(line, column) : jsonField(line, field);
+    }
+
+    private static String csvColumn(String line, int column) {
+        int index = 0;
+        int i = 0;
+        while (i <= line.length()) {
+            StringBuilder value = index == column ? new StringBuilder() : null;
+
+            if (i < line.length() && line.charAt(i) == '"') {
+                // Quoted field, "" is an escaped quote
+                i++;
+                while (i < line.length()) {
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (value != null) {
+                        value.append(c);
+                    }
+                }
+            }
+
+            while (i < line.length() && line.charAt(i) != ',') {
+                if (value != null) {
+                    value.append(line.charAt(i));
+                }
+                i++;
+            }
+
+            if (value != null) {
+                return value.toString().strip();
+            }
+            index++;
+            i++;
+        }
+        return null;
+    }
+
+    private static String jsonField(String line, String field) {
+        int depth = 0;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '{' || c == '[') {
+                depth++;
+                i++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                i++;
+            } else if (c == '"') {
+                StringBuilder key = new StringBuilder();
+                i = readString(line, i, key);
+                if (i < 0) {
+                    return null;
+                }
+
+                int next = skipWhitespace(line, i);
+                if (depth == 1 && next < line.length() && line.charAt(next) == ':' && key.toString().equals(field)) {
+                    int valueStart = skipWhitespace(line, next + 1);
+                    if (valueStart >= line.length() || line.charAt(valueStart) != '"') {
+                        return null;
+                    }
+                    StringBuilder value = new StringBuilder();
+                    return readString(line, valueStart, value) < 0 ? null : value.toString();
+                }
+            } else {
+                i++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the JSON string starting at the quote at {@code start} into {@code value}
+     *
+     * @return Index after the closing quote or {@code -1} if the string is malformed
+     */
+    private static int readString(String line, int start, StringBuilder value) {
+        int i = start + 1;
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (c == '"') {
+                return i;
+            } else if (c != '\\') {
+                value.append(c);
+            } else if (i < line.length()) {
+                char escaped = line.charAt(i++);
+                switch (escaped) {
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (i + 4 > line.length()) {
+                            return -1;
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(line, i, i + 4, 16));
+                        } catch (NumberFormatException e) {
+                            return -1;
+                        }
+                        i += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
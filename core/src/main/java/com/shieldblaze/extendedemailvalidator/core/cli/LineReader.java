@@ -0,0 +1,114 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from a file in fixed size chunks and keeps track of the byte offset
+ * of the next line, so reading can resume from that offset later.
+ */
+final class LineReader implements Closeable {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final FileChannel fileChannel;
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE).flip();
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long offset;
+
+    /**
+     * Create a new {@link LineReader}
+     *
+     * @param path   Path of the file
+     * @param offset Byte offset to start reading at, must be the start of a line
+     */
+    LineReader(Path path, long offset) throws IOException {
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileChannel.position(offset);
+        this.offset = offset;
+    }
+
+    /**
+     * Read the next line, without line terminator
+     *
+     * @return Line or {@code null} at end of file
+     */
+    String readLine() throws IOException {
+        lineLength = 0;
+        while (true) {
+            if (!chunk.hasRemaining()) {
+                chunk.clear();
+                int read = fileChannel.read(chunk);
+                chunk.flip();
+                if (read < 0) {
+                    // Last line may not have a line terminator
+                    return lineLength == 0 ? null : decode();
+                }
+            }
+
+            byte[] array = chunk.array();
+            int start = chunk.position();
+            int limit = chunk.limit();
+            for (int i = start; i < limit; i++) {
+                if (array[i] == '\n') {
+                    append(array, start, i - start);
+                    chunk.position(i + 1);
+                    offset += i + 1 - start;
+                    return decode();
+                }
+            }
+
+            append(array, start, limit - start);
+            chunk.position(limit);
+            offset += limit - start;
+        }
+    }
+
+    /**
+     * Byte offset of the line which will be read next
+     */
+    long offset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+
+    private void append(byte[] bytes, int from, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length << 1, lineLength + length));
+        }
+        System.arraycopy(bytes, from, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private String decode() {
+        int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
+import com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Probes mail servers by connecting to all candidate (IP, port) pairs at once.
+ * <p>
+ * Connects are fired in groups: IPv4 first, then IPv6. When a mail server has a port which
+ * last accepted a connection, that port forms a group of its own ahead of the other ports of
+ * the same address family. Each group starts {@link #CONNECTION_ATTEMPT_DELAY_MILLIS} after the
+ * previous one, or as soon as every connect fired so far has failed, whichever comes first.
+ * The first successful connect wins and cancels the rest. The whole probe is bounded by a single deadline.
+ * <p>
+ * Verdicts are recorded in the {@link ProbeCache}. Mail servers with a fresh verdict are not probed again,
+ * unless they are reachable but their port is no longer known.
+ * Connects go through a {@link PolitenessScheduler}, so they may wait for the limits of their mail server.
+ * Only a mail server whose every port failed to connect is recorded as unreachable; connects which were
+ * deferred, still in flight at the deadline or never started say nothing about the mail server.
+ */
+public final class ConnectionProber {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Delay between groups of connects, as recommended by RFC 8305.
+     */
+    public static final long CONNECTION_ATTEMPT_DELAY_MILLIS = 250;
+
+    private final ProbeEngine probeEngine;
+    private final PolitenessScheduler politenessScheduler;
+    private final ProbeCache probeCache;
+    private final int[] ports;
+    private final long timeoutMillis;
+
+    /**
+     * Create a new {@link ConnectionProber} without politeness limits
+     *
+     * @param probeEngine   {@link ProbeEngine} to perform connects on
+     * @param probeCache    {@link ProbeCache} to record verdicts in
+     * @param ports         Ports to connect to
+     * @param timeoutMillis Deadline in milliseconds of a probe
+     */
+    public ConnectionProber(ProbeEngine probeEngine, ProbeCache probeCache, int[] ports, long timeoutMillis) {
+        this(new PolitenessScheduler(probeEngine, PolitenessConfig.UNLIMITED), probeCache, ports, timeoutMillis);
+    }
+
+    /**
+     * Create a new {@link ConnectionProber}
+     *
+     * @param politenessScheduler {@link PolitenessScheduler} to perform connects through
+     * @param probeCache          {@link ProbeCache} to record verdicts in
+     * @param ports               Ports to connect to
+     * @param timeoutMillis       Deadline in milliseconds of a probe
+     */
+    public ConnectionProber(PolitenessScheduler politenessScheduler, ProbeCache probeCache, int[] ports, long timeoutMillis) {
+        this.politenessScheduler = requireNonNull(politenessScheduler, "PolitenessScheduler");
+        this.probeEngine = politenessScheduler.probeEngine();
+        this.probeCache = requireNonNull(probeCache, "ProbeCache");
+        this.ports = ports.clone();
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Probe the mail servers
+     *
+     * @param ipv4Addresses IPv4 addresses of mail servers
+     * @param ipv6Addresses IPv6 addresses of mail servers
+     * @return {@link CompletableFuture} which completes with the {@link Result} of the probe
+     */
+    public CompletableFuture<Result> probe(List<String> ipv4Addresses, List<String> ipv6Addresses) {
+        List<String> unknown = new ArrayList<>(ipv4Addresses.size() + ipv6Addresses.size());
+        for (List<String> ipAddresses : List.of(ipv4Addresses, ipv6Addresses)) {
+            for (String ipAddress : ipAddresses) {
+                Boolean verdict = probeCache.verdict(ipAddress);
+                if (verdict == null) {
+                    unknown.add(ipAddress);
+                } else if (verdict) {
+                    int preferredPort = probeCache.preferredPort(ipAddress);
+                    if (preferredPort == -1) {
+                        // Reachable, but the port is gone, so probe it again to learn the port
+                        unknown.add(ipAddress);
+                        continue;
+                    }
+
+                    logger.debug("Mail server on IP address: {} is reachable as per probe cache", ipAddress);
+                    return CompletableFuture.completedFuture(new Result(new InetSocketAddress(ipAddress, preferredPort), false));
+                }
+            }
+        }
+
+        List<List<InetSocketAddress>> groups = new ArrayList<>(4);
+        addGroups(groups, ipv4Addresses, unknown);
+        addGroups(groups, ipv6Addresses, unknown);
+
+        Probe probe = new Probe(groups);
+        probe.start();
+        return probe.result.whenComplete((result, throwable) -> {
+            if (result != null && result.address() != null) {
+                probeCache.markReachable(result.address().getAddress().getHostAddress(), result.address().getPort());
+            }
+        });
+    }
+
+    /**
+     * Add the group of preferred ports and the group of remaining ports of the IP addresses
+     * which have no verdict yet
+     */
+    private void addGroups(List<List<InetSocketAddress>> groups, List<String> ipAddresses, List<String> unknown) {
+        List<InetSocketAddress> preferred = new ArrayList<>();
+        List<InetSocketAddress> remaining = new ArrayList<>();
+
+        for (String ipAddress : ipAddresses) {
+            if (!unknown.contains(ipAddress)) {
+                continue;
+            }
+
+            InetAddress inetAddress;
+            try {
+                // IP literals are parsed without a lookup
+                inetAddress = InetAddress.getByName(ipAddress);
+            } catch (UnknownHostException e) {
+                logger.debug("Invalid mail server IP address: {}", ipAddress);
+                continue;
+            }
+
+            int preferredPort = probeCache.preferredPort(ipAddress);
+            for (int port : ports) {
+                InetSocketAddress candidate = new InetSocketAddress(inetAddress, port);
+                if (preferredPort == -1 || port == preferredPort) {
+                    preferred.add(candidate);
+                } else {
+                    remaining.add(candidate);
+                }
+            }
+        }
+
+        if (!preferred.isEmpty()) {
+            groups.add(preferred);
+        }
+        if (!remaining.isEmpty()) {
+            groups.add(remaining);
+        }
+    }
+
+    /**
+     * Outcome of a probe
+     *
+     * @param address     First {@link InetSocketAddress} a connection was established to, {@code null} if none
+     * @param unreachable {@code true} if every candidate failed to connect, {@code false} if a connection was
+     *                    established or the probe ended before every candidate was tried
+     */
+    public record Result(InetSocketAddress address, boolean unreachable) {
+    }
+
+    private final class Probe {
+
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+        private final List<CompletableFuture<Boolean>> attempts = new ArrayList<>();
+        private final List<List<InetSocketAddress>> groups;
+        // Candidates per IP address which have not failed to connect yet
+        private final Map<InetAddress, Integer> untried = new HashMap<>();
+        private int nextGroup;
+        private int inFlight;
+        private int failed;
+        private int candidates;
+
+        private Probe(List<List<InetSocketAddress>> groups) {
+            this.groups = groups;
+            for (List<InetSocketAddress> group : groups) {
+                for (InetSocketAddress address : group) {
+                    untried.merge(address.getAddress(), 1, Integer::sum);
+                }
+                candidates += group.size();
+            }
+        }
+
+        private void start() {
+            if (groups.isEmpty()) {
+                // Every mail server is known to be unreachable
+                result.complete(new Result(null, true));
+                return;
+            }
+
+            // Once the result is known, abort all connects which are still in flight
+            result.whenComplete((address, throwable) -> {
+                synchronized (this) {
+                    attempts.forEach(attempt -> attempt.cancel(false));
+                }
+            });
+
+            probeEngine.schedule(() -> {
+                if (result.complete(new Result(null, false))) {
+                    logger.debug("Mail server probe deadline of {} ms expired", timeoutMillis);
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+            startGroup(0);
+        }
+
+        private synchronized void startGroup(int index) {
+            if (result.isDone() || nextGroup != index) {
+                return;
+            }
+
+            nextGroup++;
+            List<InetSocketAddress> group = groups.get(index);
+            inFlight += group.size();
+
+            if (nextGroup < groups.size()) {
+                probeEngine.schedule(() -> startGroup(index + 1), CONNECTION_ATTEMPT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            for (InetSocketAddress address : group) {
+                CompletableFuture<Boolean> attempt = politenessScheduler.connect(address);
+                attempts.add(attempt);
+                attempt.whenComplete((connected, throwable) -> {
+                    ValidatorMetrics.connectAttempt(address.getPort(), throwable != null ? "cancelled" : connected ? "connected" : "failed");
+                    // Cancelled connects were deferred or still in flight when the probe ended
+                    onComplete(address, Boolean.TRUE.equals(connected), throwable == null && probeEngine.isRunning());
+                });
+            }
+        }
+
+        private synchronized void onComplete(InetSocketAddress address, boolean connected, boolean attempted) {
+            if (connected) {
+                if (result.complete(new Result(address, false))) {
+                    logger.debug("Successfully connected to mail server on address: {}", address);
+                }
+                return;
+            }
+
+            if (attempted) {
+                failed++;
+                if (untried.merge(address.getAddress(), -1, Integer::sum) == 0) {
+                    probeCache.markUnreachable(address.getAddress().getHostAddress());
+                }
+            }
+
+            if (--inFlight == 0) {
+                if (nextGroup < groups.size()) {
+                    // Nothing left in flight, don't wait for the attempt delay
+                    startGroup(nextGroup);
+                } else {
+                    result.complete(new Result(null, failed == candidates));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
+import com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics;
+import io.micrometer.core.instrument.Counter;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Admits connects of a {@link ProbeEngine} under per IP address and per subnet limits.
+ * <p>
+ * Every IP address and every subnet has a concurrency limit and a token bucket. A connect is
+ * dispatched when both have room, otherwise it waits in the queue of its IP address. Waiting never
+ * blocks a thread: queues are drained when a connect to the same host or subnet completes, or by a
+ * {@link ProbeEngine} timer once the next token is due. Connects to other hosts are not held up.
+ * <p>
+ * At most {@link PolitenessConfig#maxWaiting()} connects wait per subnet. Further connects complete
+ * exceptionally with a {@link RejectedExecutionException} right away, which callers treat as deferred:
+ * the mail server was not tried, so nothing is learned about it.
+ * <p>
+ * All state is confined to the event loop of the {@link ProbeEngine}; callers hand connects over through
+ * its lock-free task queue, so neither the buckets nor the queues need locks.
+ */
+public final class PolitenessScheduler {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final ProbeEngine probeEngine;
+    private final PolitenessConfig politenessConfig;
+    private final Map<InetAddress, Host> hosts = new HashMap<>();
+    private final Map<Subnet, SubnetState> subnets = new HashMap<>();
+    private final Counter deferred = ValidatorMetrics.connectDeferred();
+
+    /**
+     * Create a new {@link PolitenessScheduler}
+     *
+     * @param probeEngine      {@link ProbeEngine} to perform connects on
+     * @param politenessConfig Limits to enforce
+     */
+    public PolitenessScheduler(ProbeEngine probeEngine, PolitenessConfig politenessConfig) {
+        this.probeEngine = requireNonNull(probeEngine, "ProbeEngine");
+        this.politenessConfig = requireNonNull(politenessConfig, "PolitenessConfig");
+        probeEngine.schedule(this::sweep, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * {@link ProbeEngine} the connects are performed on
+     */
+    public ProbeEngine probeEngine() {
+        return probeEngine;
+    }
+
+    /**
+     * Connect to the address once the limits of its IP address and subnet allow.
+     * Cancelling the returned {@link CompletableFuture} drops a waiting connect or aborts a running one.
+     *
+     * @param address {@link InetSocketAddress} to connect to
+     * @return {@link CompletableFuture} which completes as {@link ProbeEngine#connect(InetSocketAddress)}
+     */
+    public CompletableFuture<Boolean> connect(InetSocketAddress address) {
+        if (!probeEngine.isRunning()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        probeEngine.execute(() -> enqueue(new Pending(address, future)));
+        return future;
+    }
+
+    private void enqueue(Pending pending) {
+        InetAddress inetAddress = pending.address().getAddress();
+        Host host = hosts.get(inetAddress);
+        if (host == null) {
+            SubnetState subnet = subnets.computeIfAbsent(Subnet.of(inetAddress), key -> new SubnetState());
+            subnet.hosts++;
+            host = new Host(subnet);
+            hosts.put(inetAddress, host);
+        }
+
+        SubnetState subnet = host.subnet;
+        if (politenessConfig.maxWaiting() > 0 && subnet.waiting >= politenessConfig.maxWaiting()) {
+            // Cancelled connects only leave the queue once they reach its head
+            purgeCancelled(host);
+            if (subnet.waiting >= politenessConfig.maxWaiting()) {
+                pending.future().completeExceptionally(new RejectedExecutionException("Too many connects waiting for subnet of " + inetAddress));
+                return;
+            }
+        }
+
+        host.waiting.add(pending);
+        subnet.waiting++;
+        drain(host);
+
+        if (!host.waiting.isEmpty()) {
+            deferred.increment();
+        }
+    }
+
+    /**
+     * Dispatch waiting connects of the host for as long as its limits and the limits of its subnet allow
+     */
+    private void drain(Host host) {
+        if (!probeEngine.isRunning()) {
+            // Nothing is dispatched on a closed engine, fail the waiting connects instead of waiting for tokens
+            Pending pending;
+            while ((pending = poll(host)) != null) {
+                pending.future().complete(false);
+            }
+            return;
+        }
+
+        while (!host.waiting.isEmpty()) {
+            Pending pending = host.waiting.peek();
+            if (pending.future().isDone()) {
+                // Cancelled while waiting
+                poll(host);
+                continue;
+            }
+
+            // A completing connect drains the host again
+            if (politenessConfig.hostConcurrency() > 0 && host.inFlight >= politenessConfig.hostConcurrency()) {
+                return;
+            }
+
+            // A completing connect to the subnet drains its waiting hosts
+            SubnetState subnet = host.subnet;
+            if (politenessConfig.subnetConcurrency() > 0 && subnet.inFlight >= politenessConfig.subnetConcurrency()) {
+                if (!host.waitingOnSubnet) {
+                    host.waitingOnSubnet = true;
+                    subnet.waitingHosts.add(host);
+                }
+                return;
+            }
+
+            long now = probeEngine.nanoTime();
+            long hostWait = host.bucket.nanosUntilToken(now, politenessConfig.hostRate());
+            long subnetWait = subnet.bucket.nanosUntilToken(now, politenessConfig.subnetRate());
+            if (hostWait > 0 || subnetWait > 0) {
+                scheduleDrain(host, Math.max(hostWait, subnetWait));
+                return;
+            }
+
+            host.bucket.take();
+            subnet.bucket.take();
+            poll(host);
+            dispatch(host, pending);
+        }
+    }
+
+    private static Pending poll(Host host) {
+        Pending pending = host.waiting.poll();
+        if (pending != null) {
+            host.subnet.waiting--;
+        }
+        return pending;
+    }
+
+    private static void purgeCancelled(Host host) {
+        int before = host.waiting.size();
+        host.waiting.removeIf(pending -> pending.future().isDone());
+        host.subnet.waiting -= before - host.waiting.size();
+    }
+
+    private void dispatch(Host host, Pending pending) {
+        host.inFlight++;
+        host.subnet.inFlight++;
+
+        CompletableFuture<Boolean> attempt = probeEngine.connect(pending.address());
+        pending.future().whenComplete((connected, throwable) -> attempt.cancel(false));
+        attempt.whenComplete((connected, throwable) -> {
+            pending.future().complete(Boolean.TRUE.equals(connected));
+            probeEngine.execute(() -> release(host));
+        });
+    }
+
+    private void release(Host host) {
+        host.inFlight--;
+        host.subnet.inFlight--;
+        drain(host);
+
+        // Hosts of the subnet which waited for room in the subnet
+        SubnetState subnet = host.subnet;
+        while (!subnet.waitingHosts.isEmpty()
+                && (politenessConfig.subnetConcurrency() == 0 || subnet.inFlight < politenessConfig.subnetConcurrency())) {
+            Host waitingHost = subnet.waitingHosts.poll();
+            waitingHost.waitingOnSubnet = false;
+            drain(waitingHost);
+        }
+    }
+
+    private void scheduleDrain(Host host, long delayNanos) {
+        if (host.drainScheduled) {
+            return;
+        }
+
+        host.drainScheduled = true;
+        probeEngine.schedule(() -> {
+            host.drainScheduled = false;
+            drain(host);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Forget idle hosts and subnets whose buckets have refilled, they would start over the same way
+     */
+    private void sweep() {
+        long now = probeEngine.nanoTime();
+        Iterator<Host> hostIterator = hosts.values().iterator();
+        while (hostIterator.hasNext()) {
+            Host host = hostIterator.next();
+            if (host.isIdle(now, politenessConfig.hostRate())) {
+                hostIterator.remove();
+                host.subnet.hosts--;
+            }
+        }
+
+        Iterator<SubnetState> subnetIterator = subnets.values().iterator();
+        while (subnetIterator.hasNext()) {
+            SubnetState subnet = subnetIterator.next();
+            if (subnet.hosts == 0 && subnet.bucket.isFull(now, politenessConfig.subnetRate())) {
+                subnetIterator.remove();
+            }
+        }
+
+        if (probeEngine.isRunning()) {
+            probeEngine.schedule(this::sweep, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Number of tracked IP addresses, call on the event loop
+     */
+    int hostCount() {
+        return hosts.size();
+    }
+
+    /**
+     * Number of tracked subnets, call on the event loop
+     */
+    int subnetCount() {
+        return subnets.size();
+    }
+
+    private record Pending(InetSocketAddress address, CompletableFuture<Boolean> future) {
+    }
+
+    private static final class Host {
+        private final Queue<Pending> waiting = new ArrayDeque<>();
+        private final TokenBucket bucket = new TokenBucket();
+        private final SubnetState subnet;
+        private int inFlight;
+        private boolean drainScheduled;
+        private boolean waitingOnSubnet;
+
+        private Host(SubnetState subnet) {
+            this.subnet = subnet;
+        }
+
+        private boolean isIdle(long now, double rate) {
+            return inFlight == 0 && waiting.isEmpty() && !drainScheduled && !waitingOnSubnet && bucket.isFull(now, rate);
+        }
+    }
+
+    private static final class SubnetState {
+        // Hosts with connects waiting for room in the subnet, each at most once, so it is bounded by waiting
+        private final Queue<Host> waitingHosts = new ArrayDeque<>();
+        private final TokenBucket bucket = new TokenBucket();
+        private int hosts;
+        private int inFlight;
+        // Connects waiting in the queues of all hosts of the subnet
+        private int waiting;
+    }
+
+    /**
+     * Token bucket holding up to one second worth of tokens, at least one
+     */
+    private static final class TokenBucket {
+        private double tokens = Double.NaN;
+        private long refilledAt;
+
+        /**
+         * Refill the bucket and return the nanoseconds until a token is available, {@code 0} if one is
+         */
+        private long nanosUntilToken(long now, double rate) {
+            if (rate == 0) {
+                return 0;
+            }
+
+            refill(now, rate);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private void take() {
+            // NaN until first refill, which only happens when rate-limited
+            if (!Double.isNaN(tokens)) {
+                tokens--;
+            }
+        }
+
+        private boolean isFull(long now, double rate) {
+            if (rate == 0) {
+                return true;
+            }
+
+            refill(now, rate);
+            return tokens >= capacity(rate);
+        }
+
+        private void refill(long now, double rate) {
+            if (Double.isNaN(tokens)) {
+                tokens = capacity(rate);
+            } else {
+                tokens = Math.min(capacity(rate), tokens + (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1));
+            }
+            refilledAt = now;
+        }
+
+        private static double capacity(double rate) {
+            return Math.max(1, rate);
+        }
+    }
+
+    /**
+     * Network prefix of an IP address, /24 for IPv4 and /64 for IPv6
+     */
+    record Subnet(byte[] prefix) {
+
+        static Subnet of(InetAddress inetAddress) {
+            byte[] address = inetAddress.getAddress();
+            return new Subnet(Arrays.copyOf(address, address.length == 4 ? 3 : 8));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Subnet subnet && Arrays.equals(prefix, subnet.prefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(prefix);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(prefix);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.cache.ExpiringCache;
+import com.shieldblaze.extendedemailvalidator.core.snapshot.CacheSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cache of mail server probe results keyed by mail server IP address.
+ * <p>
+ * The verdict of the last probe is kept for {@link NetworkConfig#probeCacheTtl()} if the mail server
+ * was reachable and {@link NetworkConfig#negativeCacheTtl()} if it was not. The port which last
+ * accepted a connection is remembered for {@link NetworkConfig#dnsCacheMaxTtl()}, or as long as the
+ * verdict if that is longer, so the next probe of the mail server can try it first.
+ * <p>
+ * Verdicts and ports expire independently and a snapshot may restore either one alone, so a
+ * reachable verdict does not guarantee a known port.
+ */
+public final class ProbeCache {
+
+    private final ExpiringCache<String, Boolean> verdicts;
+    private final ExpiringCache<String, Integer> preferredPorts;
+    private final long reachableTtl;
+    private final long unreachableTtl;
+    private final long preferredPortTtl;
+    private volatile CacheSnapshot snapshot = CacheSnapshot.EMPTY;
+
+    public ProbeCache(NetworkConfig networkConfig) {
+        requireNonNull(networkConfig, "NetworkConfig");
+        verdicts = new ExpiringCache<>(networkConfig.dnsCacheSize());
+        preferredPorts = new ExpiringCache<>(networkConfig.dnsCacheSize());
+        reachableTtl = networkConfig.probeCacheTtl();
+        unreachableTtl = networkConfig.negativeCacheTtl();
+        preferredPortTtl = Math.max(networkConfig.dnsCacheMaxTtl(), networkConfig.probeCacheTtl());
+    }
+
+    /**
+     * Verdict of the last probe of the mail server
+     *
+     * @param ipAddress IP address of mail server
+     * @return {@code true} if reachable, {@code false} if unreachable and {@code null} if unknown
+     */
+    public Boolean verdict(String ipAddress) {
+        Boolean verdict = verdicts.get(ipAddress);
+        if (verdict == null && warm(ipAddress)) {
+            verdict = verdicts.get(ipAddress);
+        }
+        return verdict;
+    }
+
+    /**
+     * Port which last accepted a connection on the mail server
+     *
+     * @param ipAddress IP address of mail server
+     * @return Port number or {@code -1} if unknown
+     */
+    public int preferredPort(String ipAddress) {
+        Integer port = preferredPorts.get(ipAddress);
+        if (port == null && warm(ipAddress)) {
+            port = preferredPorts.get(ipAddress);
+        }
+        return port == null ? -1 : port;
+    }
+
+    /**
+     * Record that the mail server accepted a connection on the port
+     */
+    public void markReachable(String ipAddress, int port) {
+        verdicts.put(ipAddress, Boolean.TRUE, reachableTtl, TimeUnit.SECONDS);
+        preferredPorts.put(ipAddress, port, preferredPortTtl, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record that the mail server did not accept a connection on any port
+     */
+    public void markUnreachable(String ipAddress) {
+        verdicts.put(ipAddress, Boolean.FALSE, unreachableTtl, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Answer cache misses from a snapshot of a previous run
+     *
+     * @param snapshot {@link CacheSnapshot} to warm the cache from
+     */
+    public void warmStart(CacheSnapshot snapshot) {
+        this.snapshot = requireNonNull(snapshot, "CacheSnapshot");
+    }
+
+    /**
+     * Visit every probe verdict in the cache
+     */
+    public void forEachVerdict(ExpiringCache.EntryVisitor<String, Boolean> visitor) {
+        verdicts.forEach(visitor);
+    }
+
+    /**
+     * Visit every preferred port in the cache
+     */
+    public void forEachPreferredPort(ExpiringCache.EntryVisitor<String, Integer> visitor) {
+        preferredPorts.forEach(visitor);
+    }
+
+    /**
+     * Load the probe result of the mail server from the snapshot, once per mail server
+     *
+     * @return {@code true} if the snapshot had a result
+     */
+    private boolean warm(String ipAddress) {
+        CacheSnapshot.ProbeEntry probeEntry = snapshot.takeProbe(ipAddress);
+        if (probeEntry == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (probeEntry.verdict() != null) {
+            verdicts.put(ipAddress, probeEntry.verdict(), probeEntry.verdictExpiresAt() - now, TimeUnit.MILLISECONDS);
+        }
+        if (probeEntry.preferredPort() != -1) {
+            preferredPorts.put(ipAddress, probeEntry.preferredPort(), probeEntry.preferredPortExpiresAt() - now, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.jfr.ConnectEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Selector based event loop which performs non-blocking TCP connects.
+ * <p>
+ * All channels are registered with a single {@link Selector} driven by one daemon thread.
+ * The same thread runs timers scheduled with {@link #schedule(Runnable, long, TimeUnit)},
+ * so staggering and deadlines never need a thread of their own.
+ */
+public final class ProbeEngine implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private final Selector selector;
+    private final Thread thread;
+    private final LongSupplier nanoClock;
+    private volatile boolean running = true;
+
+    public ProbeEngine() throws IOException {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Create a new {@link ProbeEngine} whose timers follow the clock
+     *
+     * @param nanoClock Clock in nanoseconds like {@link System#nanoTime()}. Timers are checked when the
+     *                  event loop wakes up, so a clock which jumps ahead needs an {@link #execute(Runnable)}
+     */
+    ProbeEngine(LongSupplier nanoClock) throws IOException {
+        this.nanoClock = nanoClock;
+        selector = Selector.open();
+        thread = new Thread(this::run, "probe-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Connect to the address. The connection is closed as soon as it is established.
+     * Cancelling the returned {@link CompletableFuture} aborts the connect.
+     *
+     * @param address {@link InetSocketAddress} to connect to
+     * @return {@link CompletableFuture} which completes with {@code true} if the connection
+     * was established and {@code false} if it failed
+     */
+    public CompletableFuture<Boolean> connect(InetSocketAddress address) {
+        if (!running) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        ConnectEvent event = ConnectEvent.start();
+        if (event != null) {
+            future.whenComplete((connected, throwable) -> event.finish(address.getAddress().getHostAddress(), address.getPort(),
+                    throwable != null ? ConnectEvent.OUTCOME_CANCELLED : connected ? ConnectEvent.OUTCOME_CONNECTED : ConnectEvent.OUTCOME_FAILED));
+        }
+        execute(() -> register(address, future));
+        return future;
+    }
+
+    /**
+     * Run the task on the event loop after the delay.
+     * Timers still pending when the engine is closed run once, early; timers scheduled after that never run.
+     *
+     * @param task  Task to run
+     * @param delay Delay
+     * @param unit  {@link TimeUnit} of delay
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = nanoClock.getAsLong() + unit.toNanos(delay);
+        execute(() -> timers.add(new Timer(deadline, task)));
+    }
+
+    /**
+     * Run the task on the event loop
+     *
+     * @param task Task to run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void register(InetSocketAddress address, CompletableFuture<Boolean> future) {
+        // Cancelled before we got to it
+        if (future.isDone()) {
+            return;
+        }
+
+        if (!running) {
+            future.complete(false);
+            return;
+        }
+
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+
+            if (channel.connect(address)) {
+                channel.close();
+                future.complete(true);
+                return;
+            }
+
+            SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT, new Attempt(address, future));
+            future.whenComplete((connected, throwable) -> execute(() -> close(key)));
+        } catch (IOException e) {
+            logger.debug("Could not connect to mail server on address: {}, message: {}", address, e.getMessage());
+            close(channel);
+            future.complete(false);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                long now = nanoClock.getAsLong();
+                while (!timers.isEmpty() && now - timers.peek().deadline() >= 0) {
+                    timers.poll().task().run();
+                }
+
+                if (!tasks.isEmpty()) {
+                    selector.selectNow();
+                } else if (timers.isEmpty()) {
+                    selector.select();
+                } else {
+                    long waitMillis = TimeUnit.NANOSECONDS.toMillis(timers.peek().deadline() - nanoClock.getAsLong());
+                    selector.select(Math.max(1, waitMillis));
+                }
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    finishConnect(key);
+                }
+            } catch (Throwable t) {
+                logger.error("Unexpected error in probe engine event loop", t);
+            }
+        }
+
+        // Fail whatever is still in flight and fire the timers pending now, once, so nobody waits on a
+        // closed engine. Timers scheduled from here on are dropped: periodic ones would never let us finish.
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+            ((Attempt) key.attachment()).future().complete(false);
+        }
+
+        runTasks();
+        List<Timer> pending = new ArrayList<>(timers.size());
+        while (!timers.isEmpty()) {
+            pending.add(timers.poll());
+        }
+        for (Timer timer : pending) {
+            tasks.add(timer.task());
+            runTasks();
+        }
+        timers.clear();
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close selector", e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.error("Unexpected error in probe engine task", t);
+            }
+        }
+    }
+
+    private static void finishConnect(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+
+        Attempt attempt = (Attempt) key.attachment();
+        boolean connected;
+        try {
+            connected = ((SocketChannel) key.channel()).finishConnect();
+        } catch (IOException e) {
+            logger.debug("Could not connect to mail server on address: {}, message: {}", attempt.address(), e.getMessage());
+            connected = false;
+        }
+
+        close(key);
+        attempt.future().complete(connected);
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        close((SocketChannel) key.channel());
+    }
+
+    private static void close(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close channel", e);
+        }
+    }
+
+    /**
+     * Number of connects in flight, call on the event loop
+     */
+    int pendingConnects() {
+        int pending = 0;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Current time of the clock timers follow, in nanoseconds
+     */
+    long nanoTime() {
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * Returns {@code true} if the engine has not been closed
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private record Attempt(InetSocketAddress address, CompletableFuture<Boolean> future) {
+    }
+
+    private record Timer(long deadline, Runnable task) implements Comparable<Timer> {
+
+        @Override
+        public int compareTo(Timer other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+}
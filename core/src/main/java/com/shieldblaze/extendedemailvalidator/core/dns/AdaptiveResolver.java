@@ -0,0 +1,263 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import com.shieldblaze.extendedemailvalidator.core.jfr.DnsQueryEvent;
+import com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics;
+import io.micrometer.core.instrument.Counter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.Type;
+
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends DNS queries to the fastest healthy of several DNS servers.
+ * <p>
+ * Every server is scored by a moving average of its latency plus the timeout weighted by a moving
+ * average of its error rate, and each query goes to the best scored server. If no answer arrives
+ * within the {@link DnsUpstream#HEDGE_PERCENTILE} of that server's recent latencies, or the query fails
+ * first, the same query is sent to the next best server and whichever answers first wins. With a single
+ * server, the query is sent to it again instead, so one lost packet does not cost a timeout. Servers
+ * failing {@link DnsUpstream#FAILURE_THRESHOLD} times in a row are ejected for
+ * {@link DnsUpstream#EJECTION_NANOS} and then tried again.
+ */
+public final class AdaptiveResolver {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final ScheduledThreadPoolExecutor HEDGE_TIMER = hedgeTimer();
+
+    private final DnsUpstream[] upstreams;
+    private final long timeoutNanos;
+    private final Counter hedged = ValidatorMetrics.dnsHedged();
+
+    /**
+     * Create a new {@link AdaptiveResolver}
+     *
+     * @param dnsServers DNS servers as {@code host}, {@code host:port} or {@code [ipv6]:port}
+     * @param timeout    Timeout in milliseconds of a query to one server
+     * @throws UnknownHostException If a DNS server host could not be resolved
+     */
+    public AdaptiveResolver(List<String> dnsServers, int timeout) throws UnknownHostException {
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        upstreams = new DnsUpstream[dnsServers.size()];
+        for (int i = 0; i < upstreams.length; i++) {
+            SimpleResolver resolver = resolver(dnsServers.get(i));
+            resolver.setTimeout(Duration.ofMillis(timeout));
+            upstreams[i] = new DnsUpstream(dnsServers.get(i), resolver, timeoutNanos);
+        }
+    }
+
+    /**
+     * Send a query
+     *
+     * @param query Query {@link Message}
+     * @return {@link CompletableFuture} which completes with the first answer, or with a server failure
+     * response or exceptionally if every server queried failed
+     */
+    public CompletableFuture<Message> send(Message query) {
+        DnsUpstream primary = select(null);
+        Exchange exchange = new Exchange(query);
+        exchange.send(primary, false);
+
+        ScheduledFuture<?> hedge = HEDGE_TIMER.schedule(() -> exchange.hedge(primary), primary.hedgeDelay(timeoutNanos), TimeUnit.NANOSECONDS);
+        exchange.result.whenComplete((response, throwable) -> hedge.cancel(false));
+        return exchange.result;
+    }
+
+    /**
+     * Best scored available server other than {@code exclude}. If every server is ejected,
+     * the one coming back first.
+     *
+     * @return {@link DnsUpstream} or {@code null} if there is no other server
+     */
+    private DnsUpstream select(DnsUpstream exclude) {
+        long now = System.nanoTime();
+        DnsUpstream best = null;
+        double bestScore = Double.MAX_VALUE;
+        DnsUpstream soonest = null;
+
+        for (DnsUpstream upstream : upstreams) {
+            if (upstream == exclude) {
+                continue;
+            }
+
+            if (upstream.available(now)) {
+                double score = upstream.score(timeoutNanos);
+                if (score < bestScore) {
+                    best = upstream;
+                    bestScore = score;
+                }
+            } else if (soonest == null || upstream.ejectedUntil() - soonest.ejectedUntil() < 0) {
+                soonest = upstream;
+            }
+        }
+        return best != null ? best : soonest;
+    }
+
+    /**
+     * Health of the DNS servers, for diagnostics
+     */
+    public List<String> upstreams() {
+        return Arrays.stream(upstreams).map(DnsUpstream::toString).toList();
+    }
+
+    /**
+     * One query, sent to one server and possibly hedged to a second one
+     */
+    private final class Exchange {
+
+        private final Message query;
+        private final CompletableFuture<Message> result = new CompletableFuture<>();
+        private int outstanding = 1;
+        private boolean hedged;
+        private Message lastResponse;
+        private Throwable lastError;
+
+        private Exchange(Message query) {
+            this.query = query;
+        }
+
+        /**
+         * Send the query to the server, the caller accounts for it in {@link #outstanding}
+         */
+        private void send(DnsUpstream upstream, boolean hedge) {
+            long start = System.nanoTime();
+            DnsQueryEvent event = DnsQueryEvent.start();
+            upstream.resolver().sendAsync(query).whenComplete((response, throwable) -> {
+                long now = System.nanoTime();
+                if (event != null) {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    event.finish(upstream.address(), query.getQuestion().getName().toString(), Type.string(query.getQuestion().getType()),
+                            cause != null ? cause.getClass().getSimpleName() : Rcode.string(response.getRcode()), hedge);
+                }
+
+                boolean failed = throwable != null || isServerFailure(response);
+                if (failed) {
+                    if (upstream.failure(now)) {
+                        logger.info("DNS server {} ejected after {} consecutive failures", upstream.address(), DnsUpstream.FAILURE_THRESHOLD);
+                        ValidatorMetrics.dnsUpstreamEjected(upstream.address()).increment();
+                    }
+                } else {
+                    upstream.success(now - start);
+                }
+                complete(upstream, response, throwable, failed);
+            });
+        }
+
+        private void complete(DnsUpstream upstream, Message response, Throwable throwable, boolean failed) {
+            if (!failed) {
+                result.complete(response);
+                return;
+            }
+
+            synchronized (this) {
+                outstanding--;
+                if (response != null) {
+                    lastResponse = response;
+                } else {
+                    lastError = throwable;
+                }
+            }
+
+            // Fail over at once instead of waiting for the hedge delay
+            hedge(upstream);
+
+            synchronized (this) {
+                if (outstanding == 0) {
+                    if (lastResponse != null) {
+                        result.complete(lastResponse);
+                    } else {
+                        result.completeExceptionally(lastError);
+                    }
+                }
+            }
+        }
+
+        private void hedge(DnsUpstream primary) {
+            DnsUpstream secondary;
+            synchronized (this) {
+                if (hedged || result.isDone()) {
+                    return;
+                }
+                hedged = true;
+
+                // Without another server, retry on the same one
+                secondary = select(primary);
+                if (secondary == null) {
+                    secondary = primary;
+                }
+                outstanding++;
+            }
+
+            logger.debug("Hedging DNS query from {} to {}", primary.address(), secondary.address());
+            AdaptiveResolver.this.hedged.increment();
+            send(secondary, true);
+        }
+
+        private boolean isServerFailure(Message response) {
+            return response.getRcode() == Rcode.SERVFAIL || response.getRcode() == Rcode.REFUSED;
+        }
+    }
+
+    /**
+     * Timer of hedged queries shared by all resolvers, cancelled timers are removed at once
+     */
+    private static ScheduledThreadPoolExecutor hedgeTimer() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "dns-hedge-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Create a {@link SimpleResolver} for a DNS server given as {@code host}, {@code host:port} or {@code [ipv6]:port}
+     */
+    private static SimpleResolver resolver(String dnsServer) throws UnknownHostException {
+        String host = dnsServer;
+        int port = -1;
+
+        int colon = dnsServer.lastIndexOf(':');
+        if (dnsServer.startsWith("[") && dnsServer.indexOf(']') < colon) {
+            host = dnsServer.substring(1, dnsServer.indexOf(']'));
+            port = Integer.parseInt(dnsServer.substring(colon + 1));
+        } else if (colon != -1 && colon == dnsServer.indexOf(':')) {
+            host = dnsServer.substring(0, colon);
+            port = Integer.parseInt(dnsServer.substring(colon + 1));
+        }
+
+        SimpleResolver simpleResolver = new SimpleResolver(host);
+        if (port != -1) {
+            simpleResolver.setPort(port);
+        }
+        return simpleResolver;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import org.xbill.DNS.SimpleResolver;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health of a single DNS server as seen by {@link AdaptiveResolver}: moving averages of latency
+ * and error rate, recent latencies for the hedge delay and a circuit breaker which ejects the server
+ * after {@link #FAILURE_THRESHOLD} consecutive failures.
+ */
+final class DnsUpstream {
+
+    static final double ALPHA = 0.2;
+    static final int FAILURE_THRESHOLD = 5;
+    static final long EJECTION_NANOS = TimeUnit.SECONDS.toNanos(30);
+    static final double HEDGE_PERCENTILE = 0.95;
+
+    private static final int SAMPLES = 128;
+    private static final int MIN_SAMPLES = 16;
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String address;
+    private final SimpleResolver resolver;
+    private final long[] samples = new long[SAMPLES];
+    private long sampleCount;
+    private double latency;
+    private double errorRate;
+    private int consecutiveFailures;
+    private long ejectedUntil;
+    private boolean ejected;
+    private long hedgeDelay;
+
+    DnsUpstream(String address, SimpleResolver resolver, long timeoutNanos) {
+        this.address = address;
+        this.resolver = resolver;
+        this.hedgeDelay = timeoutNanos / 2;
+    }
+
+    String address() {
+        return address;
+    }
+
+    SimpleResolver resolver() {
+        return resolver;
+    }
+
+    /**
+     * Record an answer which arrived after {@code latencyNanos}, closing the circuit breaker
+     */
+    synchronized void success(long latencyNanos) {
+        latency = sampleCount == 0 ? latencyNanos : latency + ALPHA * (latencyNanos - latency);
+        errorRate -= ALPHA * errorRate;
+        consecutiveFailures = 0;
+        ejected = false;
+
+        samples[(int) (sampleCount++ % SAMPLES)] = latencyNanos;
+        if (sampleCount >= MIN_SAMPLES && sampleCount % MIN_SAMPLES == 0) {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(sampleCount, SAMPLES));
+            Arrays.sort(sorted);
+            hedgeDelay = Math.max(MIN_HEDGE_DELAY_NANOS, sorted[(int) (HEDGE_PERCENTILE * (sorted.length - 1))]);
+        }
+    }
+
+    /**
+     * Record a timeout, error or server failure
+     *
+     * @return {@code true} if this failure ejected the server
+     */
+    synchronized boolean failure(long now) {
+        errorRate += ALPHA * (1 - errorRate);
+        if (++consecutiveFailures >= FAILURE_THRESHOLD) {
+            // Once ejected, one more failure of a trial query ejects the server again
+            boolean newlyEjected = !ejected || now - ejectedUntil >= 0;
+            ejected = true;
+            ejectedUntil = now + EJECTION_NANOS;
+            return newlyEjected;
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} unless the circuit breaker is open. Once the ejection has elapsed,
+     * queries are let through again as trials.
+     */
+    synchronized boolean available(long now) {
+        return !ejected || now - ejectedUntil >= 0;
+    }
+
+    synchronized long ejectedUntil() {
+        return ejectedUntil;
+    }
+
+    /**
+     * Expected time to an answer: latency plus the timeout weighted by the error rate
+     */
+    synchronized double score(long timeoutNanos) {
+        return latency + errorRate * timeoutNanos;
+    }
+
+    /**
+     * Delay after which a query to this server is hedged to another one, the
+     * {@link #HEDGE_PERCENTILE} of recent latencies capped at the timeout
+     */
+    synchronized long hedgeDelay(long timeoutNanos) {
+        return Math.min(hedgeDelay, timeoutNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DnsUpstream{address=" + address + ", latency=" + TimeUnit.NANOSECONDS.toMicros((long) latency) + "us" +
+                ", errorRate=" + errorRate + ", ejected=" + ejected + '}';
+    }
+}
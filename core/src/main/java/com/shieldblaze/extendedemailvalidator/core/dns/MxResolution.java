@@ -0,0 +1,38 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+/**
+ * Outcome of resolving the mail servers of a domain.
+ *
+ * @param resolvedDomain {@link ResolvedDomain} if the resolution succeeded else {@code null}
+ * @param failureReason  Reason of failure if the resolution failed else {@code null}
+ */
+public record MxResolution(ResolvedDomain resolvedDomain, String failureReason) {
+
+    public static MxResolution success(ResolvedDomain resolvedDomain) {
+        return new MxResolution(resolvedDomain, null);
+    }
+
+    public static MxResolution failure(String failureReason) {
+        return new MxResolution(null, failureReason);
+    }
+
+    public boolean isSuccess() {
+        return resolvedDomain != null;
+    }
+}
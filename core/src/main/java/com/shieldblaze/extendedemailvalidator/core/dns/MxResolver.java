@@ -0,0 +1,320 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.cache.ExpiringCache;
+import com.shieldblaze.extendedemailvalidator.core.cache.NegativeCache;
+import com.shieldblaze.extendedemailvalidator.core.cache.SingleFlight;
+import com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics;
+import com.shieldblaze.extendedemailvalidator.core.snapshot.CacheSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xbill.DNS.AAAARecord;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.MXRecord;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resolves the mail servers of a domain.
+ * <p>
+ * The MX query is sent first and, once it is answered, the A and AAAA queries of every MX
+ * target are sent at once using the asynchronous resolver API. Successful resolutions are
+ * cached for the lowest TTL of the records used, clamped to the limits of {@link NetworkConfig}.
+ * <p>
+ * Failed resolutions are recorded in the {@link NegativeCache}. Negative answers are kept
+ * for the negative TTL of the SOA record in the authority section (RFC 2308), timeouts and
+ * server failures for {@link NegativeCache#timeoutTtl()}.
+ * <p>
+ * Concurrent resolutions of the same domain are coalesced into one set of queries, which are sent
+ * to the fastest healthy DNS server by {@link AdaptiveResolver}.
+ */
+public final class MxResolver {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final AdaptiveResolver resolver;
+    private final ExpiringCache<String, ResolvedDomain> cache;
+    private final NegativeCache negativeCache;
+    private final SingleFlight<String, MxResolution> inFlight = new SingleFlight<>("dns");
+    private final long minTtl;
+    private final long maxTtl;
+    private volatile CacheSnapshot snapshot = CacheSnapshot.EMPTY;
+
+    public MxResolver(NetworkConfig networkConfig) throws UnknownHostException {
+        this(networkConfig, new NegativeCache(networkConfig));
+    }
+
+    public MxResolver(NetworkConfig networkConfig, NegativeCache negativeCache) throws UnknownHostException {
+        requireNonNull(networkConfig, "NetworkConfig");
+        this.negativeCache = requireNonNull(negativeCache, "NegativeCache");
+
+        resolver = new AdaptiveResolver(networkConfig.dnsServers(), networkConfig.dnsTimeout());
+
+        cache = new ExpiringCache<>(networkConfig.dnsCacheSize());
+        minTtl = networkConfig.dnsCacheMinTtl();
+        maxTtl = networkConfig.dnsCacheMaxTtl();
+    }
+
+    /**
+     * Resolve the mail servers of the domain
+     *
+     * @param domain Domain to resolve, in lower case
+     * @return {@link CompletableFuture} which completes with {@link MxResolution}, it never completes exceptionally
+     */
+    public CompletableFuture<MxResolution> resolve(String domain) {
+        // Answer hot domains from the cache without touching the resolver
+        ResolvedDomain resolvedDomain = cache.get(domain);
+        if (resolvedDomain != null) {
+            logger.debug("Resolved domain: {} from cache", domain);
+            return CompletableFuture.completedFuture(MxResolution.success(resolvedDomain));
+        }
+
+        // Fall back to the snapshot of the previous run, once per domain
+        CacheSnapshot.Entry<ResolvedDomain> entry = snapshot.takeResolvedDomain(domain);
+        if (entry != null) {
+            logger.debug("Resolved domain: {} from snapshot", domain);
+            cache.put(domain, entry.value(), entry.remainingMillis(), TimeUnit.MILLISECONDS);
+            return CompletableFuture.completedFuture(MxResolution.success(entry.value()));
+        }
+
+        // Reject repeat offenders with the same reason as before
+        String failureReason = negativeCache.failureReason(domain, NegativeCache.FailureType.DNS);
+        if (failureReason != null) {
+            logger.debug("Resolution of domain: {} failed from negative cache", domain);
+            return CompletableFuture.completedFuture(MxResolution.failure(failureReason));
+        }
+
+        return inFlight.execute(domain, () -> lookup(domain));
+    }
+
+    /**
+     * Answer cache misses from a snapshot of a previous run
+     *
+     * @param snapshot {@link CacheSnapshot} to warm the cache from
+     */
+    public void warmStart(CacheSnapshot snapshot) {
+        this.snapshot = requireNonNull(snapshot, "CacheSnapshot");
+    }
+
+    /**
+     * Visit every resolved domain in the cache
+     *
+     * @param visitor {@link ExpiringCache.EntryVisitor} to call for each domain
+     */
+    public void forEachCached(ExpiringCache.EntryVisitor<String, ResolvedDomain> visitor) {
+        cache.forEach(visitor);
+    }
+
+    /**
+     * Query the mail servers of the domain
+     */
+    private CompletableFuture<MxResolution> lookup(String domain) {
+        Name name;
+        try {
+            name = Name.fromString(domain, Name.root);
+        } catch (TextParseException e) {
+            logger.debug("Invalid domain name: {}", domain);
+            return CompletableFuture.completedFuture(MxResolution.failure("Invalid domain name"));
+        }
+
+        return query(name, Type.MX).thenCompose(response -> {
+            // Timeout or server failure, there is no negative TTL to go by
+            if (response == null || (response.getRcode() != Rcode.NOERROR && response.getRcode() != Rcode.NXDOMAIN)) {
+                return failure(domain, "DNS Lookup returned no records in MX Record query", negativeCache.timeoutTtl());
+            }
+
+            // If no records found, return false
+            List<Record> records = response.getSection(Section.ANSWER);
+            if (records.isEmpty()) {
+                return failure(domain, "DNS Lookup returned no records in MX Record query", negativeTtl(response));
+            }
+
+            // Get all MX records
+            List<MXRecord> mxRecords = records.stream()
+                    .filter(record -> record instanceof MXRecord)
+                    .map(record -> (MXRecord) record)
+                    .toList();
+
+            // If no MX records found, return false
+            if (mxRecords.isEmpty()) {
+                return failure(domain, "DNS Lookup returned no MX records", negativeTtl(response));
+            }
+
+            return resolveTargets(domain, mxRecords);
+        });
+    }
+
+    /**
+     * Send A and AAAA queries for all MX targets at once. Resolution fails as soon as
+     * one MX target is found without an A record; AAAA records are optional.
+     */
+    private CompletableFuture<MxResolution> resolveTargets(String domain, List<MXRecord> mxRecords) {
+        List<CompletableFuture<Message>> aLookups = new ArrayList<>(mxRecords.size());
+        List<CompletableFuture<Record>> aaaaLookups = new ArrayList<>(mxRecords.size());
+        for (MXRecord mxRecord : mxRecords) {
+            aLookups.add(query(mxRecord.getTarget(), Type.A));
+            aaaaLookups.add(query(mxRecord.getTarget(), Type.AAAA).thenApply(response -> first(response, AAAARecord.class)));
+        }
+
+        CompletableFuture<MxResolution> result = new CompletableFuture<>();
+
+        // Fail fast, there is no need to wait for other answers once one MX target has no A record
+        for (CompletableFuture<Message> aLookup : aLookups) {
+            aLookup.thenAccept(response -> {
+                if (first(response, ARecord.class) == null && !result.isDone()) {
+                    missingARecord(domain, response).thenAccept(result::complete);
+                }
+            });
+        }
+
+        List<CompletableFuture<?>> lookups = new ArrayList<>(aLookups);
+        lookups.addAll(aaaaLookups);
+        // Runs in no particular order with the fail-fast callbacks, so it checks for missing A records itself
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).whenComplete((ignored, throwable) -> {
+            if (result.isDone()) {
+                return;
+            }
+
+            try {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(resolved(domain, mxRecords, aLookups, aaaaLookups));
+                }
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+
+        return result;
+    }
+
+    private MxResolution resolved(String domain, List<MXRecord> mxRecords, List<CompletableFuture<Message>> aLookups,
+                                  List<CompletableFuture<Record>> aaaaLookups) {
+        // Lowest TTL of all records used in the resolution, the entry must not outlive any of them
+        long ttl = mxRecords.stream().mapToLong(Record::getTTL).min().orElse(0);
+
+        List<String> mxTargets = new ArrayList<>(mxRecords.size());
+        List<String> ipv4Addresses = new ArrayList<>(mxRecords.size());
+        List<String> ipv6Addresses = new ArrayList<>(mxRecords.size());
+        for (int i = 0; i < mxRecords.size(); i++) {
+            mxTargets.add(mxRecords.get(i).getTarget().toString(true));
+
+            Message aResponse = aLookups.get(i).join();
+            ARecord aRecord = (ARecord) first(aResponse, ARecord.class);
+            if (aRecord == null) {
+                return missingARecord(domain, aResponse).join();
+            }
+            ipv4Addresses.add(aRecord.getAddress().getHostAddress());
+            ttl = Math.min(ttl, aRecord.getTTL());
+
+            AAAARecord aaaaRecord = (AAAARecord) aaaaLookups.get(i).join();
+            if (aaaaRecord != null) {
+                ipv6Addresses.add(aaaaRecord.getAddress().getHostAddress());
+                ttl = Math.min(ttl, aaaaRecord.getTTL());
+            }
+        }
+
+        ResolvedDomain resolvedDomain = new ResolvedDomain(mxTargets, ipv4Addresses, ipv6Addresses);
+        cache.put(domain, resolvedDomain, Math.max(minTtl, Math.min(maxTtl, ttl)), TimeUnit.SECONDS);
+        return MxResolution.success(resolvedDomain);
+    }
+
+    /**
+     * Fail for an MX target without an A record. A NODATA or NXDOMAIN answer is cached for its negative TTL,
+     * only a timeout or server failure for the timeout TTL.
+     */
+    private CompletableFuture<MxResolution> missingARecord(String domain, Message aResponse) {
+        boolean answered = aResponse != null && (aResponse.getRcode() == Rcode.NOERROR || aResponse.getRcode() == Rcode.NXDOMAIN);
+        return failure(domain, "DNS Lookup for MX Record Target returned no records in A Record query",
+                answered ? negativeTtl(aResponse) : negativeCache.timeoutTtl());
+    }
+
+    private CompletableFuture<MxResolution> failure(String domain, String failureReason, long negativeTtl) {
+        logger.debug(failureReason);
+        negativeCache.put(domain, NegativeCache.FailureType.DNS, failureReason, negativeTtl);
+        return CompletableFuture.completedFuture(MxResolution.failure(failureReason));
+    }
+
+    /**
+     * Negative TTL of the response as per RFC 2308: the lower of the TTL of the SOA record
+     * in the authority section and its minimum field.
+     */
+    private long negativeTtl(Message response) {
+        for (Record record : response.getSection(Section.AUTHORITY)) {
+            if (record instanceof SOARecord soaRecord) {
+                return Math.min(soaRecord.getTTL(), soaRecord.getMinimum());
+            }
+        }
+        return negativeCache.timeoutTtl();
+    }
+
+    /**
+     * Send a query. Errors and timeouts yield {@code null}.
+     */
+    private CompletableFuture<Message> query(Name name, int type) {
+        Message query = Message.newQuery(Record.newRecord(name, type, DClass.IN));
+        return resolver.send(query).handle((response, throwable) -> {
+            if (throwable != null) {
+                logger.debug("DNS query for {} of type {} failed, message: {}", name, Type.string(type), throwable.getMessage());
+                boolean timeout = throwable instanceof TimeoutException || throwable.getCause() instanceof TimeoutException;
+                ValidatorMetrics.dnsQuery(Type.string(type), timeout ? "TIMEOUT" : "ERROR");
+                return null;
+            }
+
+            ValidatorMetrics.dnsQuery(Type.string(type), Rcode.string(response.getRcode()));
+            if (response.getRcode() != Rcode.NOERROR) {
+                logger.debug("DNS query for {} of type {} returned rcode: {}", name, Type.string(type), Rcode.string(response.getRcode()));
+            }
+            return response;
+        });
+    }
+
+    /**
+     * First record of the type in the answer section of a successful response
+     */
+    private static Record first(Message response, Class<? extends Record> type) {
+        if (response == null || response.getRcode() != Rcode.NOERROR) {
+            return null;
+        }
+
+        for (Record record : response.getSection(Section.ANSWER)) {
+            if (type.isInstance(record)) {
+                return record;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import java.util.List;
+
+/**
+ * Mail servers of a domain as resolved from its MX, A and AAAA records.
+ *
+ * @param mxTargets       MX record targets
+ * @param ipv4Addresses   IPv4 addresses of the MX record targets
+ * @param ipv6Addresses   IPv6 addresses of the MX record targets
+ */
+public record ResolvedDomain(List<String> mxTargets, List<String> ipv4Addresses, List<String> ipv6Addresses) {
+
+    public ResolvedDomain {
+        mxTargets = List.copyOf(mxTargets);
+        ipv4Addresses = List.copyOf(ipv4Addresses);
+        ipv6Addresses = List.copyOf(ipv6Addresses);
+    }
+}
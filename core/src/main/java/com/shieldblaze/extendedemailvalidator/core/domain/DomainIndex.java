@@ -0,0 +1,261 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.domain;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Read-only set of domains stored in a memory-mapped file, so opening it is instant
+ * and the entries never live on the heap.
+ * <p>
+ * The file holds a header followed by two sorted arrays of 64-bit FNV-1a hashes:
+ * one for exact domains and one for wildcard suffixes. An entry {@code *.example.com}
+ * matches every subdomain of {@code example.com} but not {@code example.com} itself.
+ * Lookups are binary searches over the mapped arrays and allocate nothing.
+ * <p>
+ * Only hashes are stored, so a lookup may report a false match when two domains share a hash.
+ * With 64-bit hashes that is negligible even for lists with millions of entries.
+ *
+ * <pre>
+ *     int    magic
+ *     int    version
+ *     int    number of exact entries
+ *     int    number of wildcard entries
+ *     long[] sorted hashes of exact entries
+ *     long[] sorted hashes of wildcard entries
+ * </pre>
+ */
+public final class DomainIndex {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int MAGIC = 0x45455649; // 'EEVI'
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final String WILDCARD_PREFIX = "*.";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final LongBuffer exact;
+    private final LongBuffer wildcard;
+
+    private DomainIndex(LongBuffer exact, LongBuffer wildcard) {
+        this.exact = exact;
+        this.wildcard = wildcard;
+    }
+
+    /**
+     * Memory-map an index file written by {@link #build(Path, Path)}
+     *
+     * @param indexPath Path of the index file
+     * @return {@link DomainIndex} backed by the file
+     * @throws IOException If the file could not be read or is not an index file
+     */
+    public static DomainIndex open(Path indexPath) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel fileChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a domain index file: " + indexPath);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported domain index version " + buffer.getInt(4) + ": " + indexPath);
+        }
+
+        int exactCount = buffer.getInt(8);
+        int wildcardCount = buffer.getInt(12);
+        if (exactCount < 0 || wildcardCount < 0 || buffer.capacity() != HEADER_SIZE + 8L * (exactCount + (long) wildcardCount)) {
+            throw new IOException("Truncated domain index file: " + indexPath);
+        }
+
+        LongBuffer hashes = buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE).asLongBuffer();
+        DomainIndex domainIndex = new DomainIndex(hashes.slice(0, exactCount), hashes.slice(exactCount, wildcardCount));
+        logger.info("Opened domain index {} with {} exact and {} wildcard entries", indexPath, exactCount, wildcardCount);
+        return domainIndex;
+    }
+
+    /**
+     * Build an index file from a text list of domains.
+     * <p>
+     * The list has one domain per line, {@code *.} in front of a domain makes it a wildcard entry.
+     * Blank lines and lines starting with {@code #} are ignored. The index is written to a temporary
+     * file first and moved into place atomically, so readers never see a partial index.
+     *
+     * @param listPath  Path of the text list
+     * @param indexPath Path of the index file to write
+     * @throws IOException If the list could not be read or the index could not be written
+     */
+    public static void build(Path listPath, Path indexPath) throws IOException {
+        HashList exactHashes = new HashList();
+        HashList wildcardHashes = new HashList();
+
+        try (BufferedReader reader = Files.newBufferedReader(listPath)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String entry = line.strip().toLowerCase(Locale.ROOT);
+                if (entry.isEmpty() || entry.startsWith("#")) {
+                    continue;
+                }
+                if (entry.endsWith(".")) {
+                    entry = entry.substring(0, entry.length() - 1);
+                }
+
+                if (entry.startsWith(WILDCARD_PREFIX)) {
+                    wildcardHashes.add(hash(entry, WILDCARD_PREFIX.length()));
+                } else {
+                    exactHashes.add(hash(entry, 0));
+                }
+            }
+        }
+
+        long[] exact = exactHashes.sortedUnique();
+        long[] wildcard = wildcardHashes.sortedUnique();
+
+        Path directory = indexPath.toAbsolutePath().getParent();
+        Path temporaryPath = Files.createTempFile(directory, indexPath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel fileChannel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(exact.length).putInt(wildcard.length);
+                write(fileChannel, buffer, exact);
+                write(fileChannel, buffer, wildcard);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+                fileChannel.force(true);
+            }
+            Files.move(temporaryPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+
+        logger.info("Built domain index {} from {} with {} exact and {} wildcard entries", indexPath, listPath, exact.length, wildcard.length);
+    }
+
+    /**
+     * Check if a domain is in the index, either as an exact entry or below a wildcard entry
+     *
+     * @param domain Lower-cased domain
+     * @return {@code true} if the domain matches an entry else {@code false}
+     */
+    public boolean contains(String domain) {
+        if (binarySearch(exact, hash(domain, 0))) {
+            return true;
+        }
+
+        // Check every parent domain against wildcard entries, without creating substrings
+        for (int dot = domain.indexOf('.'); dot >= 0; dot = domain.indexOf('.', dot + 1)) {
+            if (binarySearch(wildcard, hash(domain, dot + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of entries in the index
+     */
+    public int size() {
+        return exact.capacity() + wildcard.capacity();
+    }
+
+    private static boolean binarySearch(LongBuffer hashes, long hash) {
+        int low = 0;
+        int high = hashes.capacity() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = hashes.get(mid);
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long hash(String domain, int from) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = from; i < domain.length(); i++) {
+            hash ^= domain.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void write(FileChannel fileChannel, ByteBuffer buffer, long[] hashes) throws IOException {
+        for (long hash : hashes) {
+            if (buffer.remaining() < Long.BYTES) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+                buffer.clear();
+            }
+            buffer.putLong(hash);
+        }
+    }
+
+    /**
+     * Growable list of primitive hashes, so millions of entries do not get boxed
+     */
+    private static final class HashList {
+        private long[] hashes = new long[1024];
+        private int size;
+
+        void add(long hash) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size << 1);
+            }
+            hashes[size++] = hash;
+        }
+
+        long[] sortedUnique() {
+            long[] sorted = Arrays.copyOf(hashes, size);
+            Arrays.sort(sorted);
+
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[unique - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, unique);
+        }
+    }
+}
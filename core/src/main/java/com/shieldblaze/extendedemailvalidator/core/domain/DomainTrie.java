@@ -0,0 +1,162 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.domain;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable set of domain suffixes stored as a trie over domain labels, right to left.
+ * <p>
+ * An entry matches the domain itself and all of its subdomains, so {@code gmail.com} matches
+ * {@code gmail.com} and {@code mail.gmail.com}. A {@code *} label matches any single label,
+ * so {@code outlook.*} matches {@code outlook.com} and {@code outlook.de} but not {@code outlook.co.uk}.
+ * <p>
+ * Children of a node are kept in sorted arrays and found by binary search directly against the
+ * labels of the looked up domain, so lookups allocate nothing.
+ */
+public final class DomainTrie {
+
+    private static final String WILDCARD = "*";
+
+    private final Node root;
+
+    private DomainTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Build a {@link DomainTrie} from domain entries, blank entries are ignored
+     *
+     * @param domains Domain entries
+     * @return {@link DomainTrie} containing the entries
+     */
+    public static DomainTrie of(Collection<String> domains) {
+        MutableNode root = new MutableNode();
+        for (String domain : domains) {
+            String entry = domain.strip().toLowerCase(Locale.ROOT);
+            if (entry.endsWith(".")) {
+                entry = entry.substring(0, entry.length() - 1);
+            }
+            if (entry.isEmpty()) {
+                continue;
+            }
+
+            String[] labels = entry.split("\\.");
+            MutableNode node = root;
+            for (int i = labels.length - 1; i >= 0; i--) {
+                if (labels[i].isEmpty()) {
+                    throw new IllegalArgumentException("Invalid domain: " + domain);
+                }
+                node = node.children.computeIfAbsent(labels[i], label -> new MutableNode());
+            }
+            node.terminal = true;
+        }
+        return new DomainTrie(root.freeze());
+    }
+
+    /**
+     * Check if the domain or one of its parent domains is in the trie
+     *
+     * @param domain Lower-cased domain
+     * @return {@code true} if the domain matches an entry else {@code false}
+     */
+    public boolean matches(String domain) {
+        return matches(root, domain, domain.length());
+    }
+
+    /**
+     * Match the labels of {@code domain} in range {@code [0, end)} from right to left
+     */
+    private static boolean matches(Node node, String domain, int end) {
+        if (node.terminal) {
+            return true;
+        }
+        if (end <= 0) {
+            return false;
+        }
+
+        int start = domain.lastIndexOf('.', end - 1) + 1;
+
+        Node child = node.child(domain, start, end);
+        if (child != null && matches(child, domain, start - 1)) {
+            return true;
+        }
+        return node.wildcard != null && matches(node.wildcard, domain, start - 1);
+    }
+
+    private static final class Node {
+        private final boolean terminal;
+        private final String[] labels;
+        private final Node[] children;
+        private final Node wildcard;
+
+        private Node(boolean terminal, String[] labels, Node[] children, Node wildcard) {
+            this.terminal = terminal;
+            this.labels = labels;
+            this.children = children;
+            this.wildcard = wildcard;
+        }
+
+        /**
+         * Binary search the child whose label equals {@code domain} in range {@code [start, end)}
+         */
+        private Node child(String domain, int start, int end) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compare(labels[mid], domain, start, end);
+                if (comparison < 0) {
+                    low = mid + 1;
+                } else if (comparison > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        private static int compare(String label, String domain, int start, int end) {
+            int length = Math.min(label.length(), end - start);
+            for (int i = 0; i < length; i++) {
+                int difference = label.charAt(i) - domain.charAt(start + i);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return label.length() - (end - start);
+        }
+    }
+
+    private static final class MutableNode {
+        private final Map<String, MutableNode> children = new TreeMap<>();
+        private boolean terminal;
+
+        private Node freeze() {
+            MutableNode wildcard = children.remove(WILDCARD);
+
+            // TreeMap iterates in the same order as String#compareTo, which the binary search relies on
+            String[] labels = children.keySet().toArray(String[]::new);
+            Node[] frozen = children.values().stream().map(MutableNode::freeze).toArray(Node[]::new);
+            return new Node(terminal, labels, frozen, wildcard == null ? null : wildcard.freeze());
+        }
+    }
+}
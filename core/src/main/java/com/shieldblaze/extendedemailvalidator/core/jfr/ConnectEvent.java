@@ -0,0 +1,83 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a TCP connect attempt to a mail server
+ */
+@Name("com.shieldblaze.extendedemailvalidator.Connect")
+@Label("Mail Server Connect")
+@Category({"Extended Email Validator", "Connection"})
+@Description("TCP connect attempt to one (IP, port) of a mail server")
+@StackTrace(false)
+public final class ConnectEvent extends Event {
+
+    public static final String OUTCOME_CONNECTED = "connected";
+    public static final String OUTCOME_FAILED = "failed";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(ConnectEvent.class);
+
+    @Label("Address")
+    private String address;
+
+    @Label("Port")
+    private int port;
+
+    @Label("Outcome")
+    @Description("connected, failed, or cancelled when it timed out or another attempt won")
+    private String outcome;
+
+    /**
+     * Begin an event, if the event is enabled
+     *
+     * @return {@link ConnectEvent} or {@code null} if the event is disabled
+     */
+    public static ConnectEvent start() {
+        if (!EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if it passes the threshold
+     *
+     * @param address IP address connected to
+     * @param port    Port connected to
+     * @param outcome {@link #OUTCOME_CONNECTED}, {@link #OUTCOME_FAILED} or {@link #OUTCOME_CANCELLED}
+     */
+    public void finish(String address, int port, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.address = address;
+            this.port = port;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
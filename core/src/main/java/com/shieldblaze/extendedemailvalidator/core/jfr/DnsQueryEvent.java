@@ -0,0 +1,90 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a DNS query sent to one DNS server
+ */
+@Name("com.shieldblaze.extendedemailvalidator.DnsQuery")
+@Label("DNS Query")
+@Category({"Extended Email Validator", "DNS"})
+@Description("DNS query sent to one DNS server")
+@StackTrace(false)
+public final class DnsQueryEvent extends Event {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(DnsQueryEvent.class);
+
+    @Label("Server")
+    private String server;
+
+    @Label("Name")
+    private String name;
+
+    @Label("Type")
+    private String type;
+
+    @Label("Outcome")
+    @Description("Response code, or the exception the query failed with")
+    private String outcome;
+
+    @Label("Hedged")
+    @Description("Whether the query was sent as a hedge of a slow or failed one")
+    private boolean hedged;
+
+    /**
+     * Begin an event, if the event is enabled
+     *
+     * @return {@link DnsQueryEvent} or {@code null} if the event is disabled
+     */
+    public static DnsQueryEvent start() {
+        if (!EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        DnsQueryEvent event = new DnsQueryEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if it passes the threshold
+     *
+     * @param server  DNS server
+     * @param name    Name queried
+     * @param type    Record type queried
+     * @param outcome Response code, or the exception the query failed with
+     * @param hedged  Whether the query was sent as a hedge
+     */
+    public void finish(String server, String name, String type, String outcome, boolean hedged) {
+        end();
+        if (shouldCommit()) {
+            this.server = server;
+            this.name = name;
+            this.type = type;
+            this.outcome = outcome;
+            this.hedged = hedged;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a validator run on an email address, or on a batch of email addresses of one domain
+ */
+@Name("com.shieldblaze.extendedemailvalidator.Validator")
+@Label("Validator")
+@Category({"Extended Email Validator"})
+@Description("Run of a validator of the validating chain")
+@StackTrace(false)
+public final class ValidatorEvent extends Event {
+
+    // Checked before allocating an event, so a disabled event costs one field read on the hot path
+    private static final EventType EVENT_TYPE = EventType.getEventType(ValidatorEvent.class);
+
+    @Label("Validator")
+    private String validator;
+
+    @Label("Domain")
+    private String domain;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Reason")
+    @Description("Failure or inconclusive reason")
+    private String reason;
+
+    @Label("Addresses")
+    private int addresses;
+
+    @Label("Passed")
+    private int passed;
+
+    /**
+     * Begin an event, if the event is enabled
+     *
+     * @return {@link ValidatorEvent} or {@code null} if the event is disabled
+     */
+    public static ValidatorEvent start() {
+        if (!EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        ValidatorEvent event = new ValidatorEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if it passes the threshold
+     *
+     * @param validator Name of the validator
+     * @param domain    Domain validated, {@code null} if not known
+     * @param outcome   Outcome, see {@link com.shieldblaze.extendedemailvalidator.core.metrics.ValidatorMetrics#OUTCOME_PASS}
+     * @param reason    Failure or inconclusive reason, {@code null} if there is none
+     * @param addresses Number of email addresses validated
+     * @param passed    Number of email addresses which passed
+     */
+    public void finish(String validator, String domain, String outcome, String reason, int addresses, int passed) {
+        end();
+        if (shouldCommit()) {
+            this.validator = validator;
+            this.domain = domain;
+            this.outcome = outcome;
+            this.reason = reason;
+            this.addresses = addresses;
+            this.passed = passed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.metrics;
+
+import com.shieldblaze.extendedemailvalidator.core.Validator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of the validators, registered with the Micrometer global registry.
+ * <p>
+ * Applications expose these by adding their registry to {@link Metrics#globalRegistry},
+ * which Spring Boot does by default.
+ */
+public final class ValidatorMetrics {
+
+    public static final String OUTCOME_PASS = "pass";
+    public static final String OUTCOME_FAIL = "fail";
+    public static final String OUTCOME_EXCEPTION = "exception";
+    public static final String OUTCOME_INCONCLUSIVE = "inconclusive";
+
+    private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+
+    /**
+     * Latency of a validator invocation
+     *
+     * @param validator {@link Validator} which is invoked
+     * @return {@link Timer} with percentile histogram
+     */
+    public static Timer validatorDuration(Validator validator) {
+        return Timer.builder("email.validator.duration")
+                .description("Latency of a validator invocation")
+                .tag("validator", validator.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .register(REGISTRY);
+    }
+
+    /**
+     * Outcomes of validator invocations
+     *
+     * @param validator {@link Validator} which was invoked
+     * @param outcome   One of {@link #OUTCOME_PASS}, {@link #OUTCOME_FAIL}, {@link #OUTCOME_EXCEPTION} and {@link #OUTCOME_INCONCLUSIVE}
+     * @param reason    Failure reason, inconclusive reason or exception class name, {@code null} if passed
+     * @return {@link Counter}
+     */
+    public static Counter validatorOutcome(Validator validator, String outcome, String reason) {
+        return Counter.builder("email.validator.outcome")
+                .description("Outcomes of validator invocations")
+                .tag("validator", validator.getClass().getSimpleName())
+                .tag("outcome", outcome)
+                .tag("reason", reason == null ? "none" : reason)
+                .register(REGISTRY);
+    }
+
+    /**
+     * Count a DNS query
+     *
+     * @param type   Record type queried
+     * @param result Response code, or {@code TIMEOUT}/{@code ERROR} if there was no response
+     */
+    public static void dnsQuery(String type, String result) {
+        Counter.builder("email.validator.dns.queries")
+                .description("DNS queries sent")
+                .tag("type", type)
+                .tag("result", result)
+                .register(REGISTRY)
+                .increment();
+    }
+
+    /**
+     * DNS queries duplicated to a second DNS server because the first one was slow or failed
+     *
+     * @return {@link Counter}
+     */
+    public static Counter dnsHedged() {
+        return Counter.builder("email.validator.dns.hedged")
+                .description("DNS queries hedged to a second DNS server")
+                .register(REGISTRY);
+    }
+
+    /**
+     * Ejections of a DNS server by its circuit breaker
+     *
+     * @param server DNS server as configured
+     * @return {@link Counter}
+     */
+    public static Counter dnsUpstreamEjected(String server) {
+        return Counter.builder("email.validator.dns.ejections")
+                .description("DNS servers ejected after consecutive failures")
+                .tag("server", server)
+                .register(REGISTRY);
+    }
+
+    /**
+     * Count a socket connect attempt
+     *
+     * @param port    Port connected to
+     * @param outcome {@code connected}, {@code failed} or {@code cancelled}
+     */
+    public static void connectAttempt(int port, String outcome) {
+        Counter.builder("email.validator.connection.attempts")
+                .description("Socket connect attempts to mail servers")
+                .tag("port", String.valueOf(port))
+                .tag("outcome", outcome)
+                .register(REGISTRY)
+                .increment();
+    }
+
+    /**
+     * Connects which had to wait for politeness limits of their mail server
+     *
+     * @return {@link Counter}
+     */
+    public static Counter connectDeferred() {
+        return Counter.builder("email.validator.connection.deferred")
+                .description("Connects deferred by politeness limits of their mail server")
+                .register(REGISTRY);
+    }
+
+    /**
+     * Calls which joined work already in flight for the same key instead of starting their own
+     *
+     * @param operation Name of the coalesced operation
+     * @return {@link Counter}
+     */
+    public static Counter coalesced(String operation) {
+        return Counter.builder("email.validator.coalesced")
+                .description("Calls which joined in-flight work for the same key")
+                .tag("operation", operation)
+                .register(REGISTRY);
+    }
+
+    private ValidatorMetrics() {
+        // Prevent outside initialization
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+/**
+ * Reply of an SMTP server to a command.
+ *
+ * @param code    Three digit reply code
+ * @param message Text of the reply, lines of a multi-line reply are joined with {@code \n}
+ */
+public record SmtpReply(int code, String message) {
+
+    /**
+     * Returns {@code true} for {@code 2xx} replies
+     */
+    public boolean isPositive() {
+        return code >= 200 && code < 300;
+    }
+
+    /**
+     * Returns {@code true} for {@code 5xx} replies
+     */
+    public boolean isPermanentFailure() {
+        return code >= 500 && code < 600;
+    }
+
+    /**
+     * Returns {@code true} for {@code 5xx} replies which are about policy, such as a blocked client,
+     * rather than the recipient, as per enhanced status code {@code 5.7.x} (RFC 3463)
+     */
+    public boolean isPolicyFailure() {
+        return isPermanentFailure() && message.startsWith("5.7.");
+    }
+}
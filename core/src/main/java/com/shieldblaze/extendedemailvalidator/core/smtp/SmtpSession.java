@@ -0,0 +1,335 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import com.shieldblaze.extendedemailvalidator.core.jfr.ConnectEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Client side of an SMTP session used to verify recipients without sending mail.
+ * <p>
+ * Each {@link #verify(List)} call is one mail transaction: {@code MAIL FROM}, one {@code RCPT TO}
+ * per recipient and {@code RSET}, which leaves the session ready for the next transaction.
+ * If the server supports the {@code PIPELINING} extension (RFC 2920), the whole transaction
+ * is written at once and the replies are read afterwards, so it costs a single round trip.
+ */
+public final class SmtpSession implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final InetSocketAddress address;
+    private final SmtpConfig smtpConfig;
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private boolean pipelining;
+    private int transactions;
+    private long lastUsed = System.nanoTime();
+
+    private SmtpSession(InetSocketAddress address, SmtpConfig smtpConfig, Socket socket) throws IOException {
+        this.address = address;
+        this.smtpConfig = smtpConfig;
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Connect to the mail server and greet it
+     *
+     * @param address    {@link InetSocketAddress} of the mail server
+     * @param smtpConfig {@link SmtpConfig} to use
+     * @return {@link SmtpSession} ready for a mail transaction
+     * @throws IOException If the connection failed or the server refused the session
+     */
+    public static SmtpSession open(InetSocketAddress address, SmtpConfig smtpConfig) throws IOException {
+        return open(address, smtpConfig, smtpConfig.timeout());
+    }
+
+    /**
+     * Connect to the mail server and greet it
+     *
+     * @param address       {@link InetSocketAddress} of the mail server
+     * @param smtpConfig    {@link SmtpConfig} to use
+     * @param timeoutMillis Timeout in milliseconds for connecting and for each reply
+     * @return {@link SmtpSession} ready for a mail transaction
+     * @throws IOException If the connection failed or the server refused the session
+     */
+    public static SmtpSession open(InetSocketAddress address, SmtpConfig smtpConfig, int timeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            ConnectEvent event = ConnectEvent.start();
+            try {
+                socket.connect(address, timeoutMillis);
+            } finally {
+                if (event != null) {
+                    event.finish(address.getAddress().getHostAddress(), address.getPort(),
+                            socket.isConnected() ? ConnectEvent.OUTCOME_CONNECTED : ConnectEvent.OUTCOME_FAILED);
+                }
+            }
+            socket.setSoTimeout(timeoutMillis);
+
+            SmtpSession session = new SmtpSession(address, smtpConfig, socket);
+            session.greet();
+            return session;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void greet() throws IOException {
+        SmtpReply greeting = readReply();
+        if (!greeting.isPositive()) {
+            throw new IOException("Mail server refused session: " + greeting);
+        }
+
+        SmtpReply ehlo = command("EHLO " + smtpConfig.heloHostname());
+        if (ehlo.isPositive()) {
+            pipelining = ehlo.message().lines()
+                    .map(line -> line.strip().toUpperCase(Locale.ROOT))
+                    .anyMatch(line -> line.equals("PIPELINING"));
+        } else {
+            // Servers without ESMTP only know HELO
+            SmtpReply helo = command("HELO " + smtpConfig.heloHostname());
+            if (!helo.isPositive()) {
+                throw new IOException("Mail server refused HELO: " + helo);
+            }
+        }
+        logger.debug("Opened SMTP session with {}, pipelining: {}", address, pipelining);
+    }
+
+    /**
+     * Run a mail transaction which verifies the recipients and reset the session afterwards
+     *
+     * @param recipients Email addresses of recipients
+     * @return {@link SmtpTransaction} with the replies of the server
+     * @throws IOException              If the session failed, it must not be used anymore
+     * @throws IllegalArgumentException If a recipient is not {@link #isValidRecipient(String) valid}
+     */
+    public SmtpTransaction verify(List<String> recipients) throws IOException {
+        return verify(recipients, smtpConfig.timeout());
+    }
+
+    /**
+     * Run a mail transaction which verifies the recipients and reset the session afterwards
+     *
+     * @param recipients    Email addresses of recipients
+     * @param timeoutMillis Timeout in milliseconds for each reply
+     * @return {@link SmtpTransaction} with the replies of the server
+     * @throws IOException              If the session failed, it must not be used anymore
+     * @throws IllegalArgumentException If a recipient is not {@link #isValidRecipient(String) valid}
+     */
+    public SmtpTransaction verify(List<String> recipients, int timeoutMillis) throws IOException {
+        // Checked before anything is written, a bad recipient must not desynchronize a pooled session
+        for (String recipient : recipients) {
+            if (!isValidRecipient(recipient)) {
+                throw new IllegalArgumentException("recipients must not contain control characters");
+            }
+        }
+
+        socket.setSoTimeout(timeoutMillis);
+        transactions++;
+        SmtpTransaction transaction = pipelining ? verifyPipelined(recipients) : verifyLockStep(recipients);
+        lastUsed = System.nanoTime();
+        return transaction;
+    }
+
+    private SmtpTransaction verifyPipelined(List<String> recipients) throws IOException {
+        write("MAIL FROM:<" + smtpConfig.mailFrom() + ">");
+        for (String recipient : recipients) {
+            write("RCPT TO:<" + recipient + ">");
+        }
+        write("RSET");
+        out.flush();
+
+        SmtpReply mailFrom = readReply();
+        List<SmtpReply> replies = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            replies.add(readReply());
+        }
+        expectReset(readReply());
+        return new SmtpTransaction(mailFrom, replies);
+    }
+
+    private SmtpTransaction verifyLockStep(List<String> recipients) throws IOException {
+        SmtpReply mailFrom = command("MAIL FROM:<" + smtpConfig.mailFrom() + ">");
+
+        List<SmtpReply> replies = new ArrayList<>(recipients.size());
+        if (mailFrom.isPositive()) {
+            for (String recipient : recipients) {
+                replies.add(command("RCPT TO:<" + recipient + ">"));
+            }
+        }
+
+        expectReset(command("RSET"));
+        return new SmtpTransaction(mailFrom, replies);
+    }
+
+    /**
+     * Check that a recipient can be sent as the forward-path of {@code RCPT TO}
+     *
+     * @param recipient Email address of the recipient
+     * @return {@code true} if the recipient contains no CR, LF or other control characters else {@code false}
+     */
+    public static boolean isValidRecipient(String recipient) {
+        if (recipient == null || recipient.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < recipient.length(); i++) {
+            char c = recipient.charAt(i);
+            if (c < 0x20 || c == 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expectReset(SmtpReply reset) throws IOException {
+        if (!reset.isPositive()) {
+            throw new IOException("Mail server refused RSET: " + reset);
+        }
+    }
+
+    /**
+     * {@link InetSocketAddress} of the mail server
+     */
+    public InetSocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Number of mail transactions run on this session
+     */
+    public int transactions() {
+        return transactions;
+    }
+
+    /**
+     * Returns {@code true} if the server announced the {@code PIPELINING} extension
+     */
+    public boolean pipelining() {
+        return pipelining;
+    }
+
+    /**
+     * {@link System#nanoTime()} of the end of the last mail transaction or of opening the session
+     */
+    public long lastUsed() {
+        return lastUsed;
+    }
+
+    private SmtpReply command(String command) throws IOException {
+        write(command);
+        out.flush();
+        return readReply();
+    }
+
+    private void write(String command) throws IOException {
+        out.write(command.getBytes(StandardCharsets.UTF_8));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private SmtpReply readReply() throws IOException {
+        StringBuilder message = new StringBuilder();
+        while (true) {
+            String line = readLine();
+            if (line.length() < 3) {
+                throw new IOException("Malformed SMTP reply: " + line);
+            }
+
+            int code;
+            try {
+                code = Integer.parseInt(line, 0, 3, 10);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed SMTP reply: " + line, e);
+            }
+
+            if (!message.isEmpty()) {
+                message.append('\n');
+            }
+            message.append(line.length() > 4 ? line.substring(4) : "");
+
+            // '-' after the code continues a multi-line reply
+            if (line.length() < 4 || line.charAt(3) != '-') {
+                return new SmtpReply(code, message.toString());
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Mail server closed the session");
+            } else if (b == '\n') {
+                break;
+            } else if (line.size() == MAX_LINE_LENGTH) {
+                throw new IOException("SMTP reply line too long");
+            }
+            line.write(b);
+        }
+
+        String value = line.toString(StandardCharsets.UTF_8);
+        return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    /**
+     * Say goodbye to the server and close the connection
+     */
+    @Override
+    public void close() {
+        try {
+            if (!socket.isClosed()) {
+                command("QUIT");
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to quit SMTP session with {}", address, e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close SMTP session with {}", address, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SmtpSession{address=" + address + ", pipelining=" + pipelining + ", transactions=" + transactions + '}';
+    }
+}
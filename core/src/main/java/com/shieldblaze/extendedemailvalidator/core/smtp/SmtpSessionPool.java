@@ -0,0 +1,214 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pool of {@link SmtpSession}s keyed by mail server address.
+ * <p>
+ * At most {@link SmtpConfig#maxSessionsPerHost()} sessions are handed out per mail server at any time,
+ * callers beyond that wait for a session to be released. Released sessions are kept for reuse until
+ * they have been idle for {@link SmtpConfig#sessionIdleTimeout()} seconds, so consecutive batches for the
+ * same mail server skip the TCP handshake, greeting and {@code EHLO}. A background reaper closes sessions
+ * idle for longer and forgets mail servers with no session left.
+ */
+public final class SmtpSessionPool implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Map<InetSocketAddress, HostPool> pools = new ConcurrentHashMap<>();
+    private final SmtpConfig smtpConfig;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "smtp-session-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+
+    /**
+     * Create a new {@link SmtpSessionPool}
+     *
+     * @param smtpConfig {@link SmtpConfig} to use
+     */
+    public SmtpSessionPool(SmtpConfig smtpConfig) {
+        this.smtpConfig = requireNonNull(smtpConfig, "SmtpConfig");
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(smtpConfig.sessionIdleTimeout());
+
+        // Idle sessions live at most one and a half idle timeouts
+        long reapIntervalMillis = Math.max(1000, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 2);
+        reaper.scheduleWithFixedDelay(this::reap, reapIntervalMillis, reapIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Acquire a session to the mail server, reusing an idle one if possible.
+     * Every acquired session must be handed back with {@link #release(SmtpSession, boolean)}.
+     *
+     * @param address {@link InetSocketAddress} of the mail server
+     * @return {@link SmtpSession} to the mail server
+     * @throws IOException          If no session could be opened or none became available in time
+     * @throws InterruptedException If interrupted while waiting for a session
+     */
+    public SmtpSession acquire(InetSocketAddress address) throws IOException, InterruptedException {
+        return acquire(address, smtpConfig.timeout());
+    }
+
+    /**
+     * Acquire a session to the mail server, reusing an idle one if possible.
+     * Every acquired session must be handed back with {@link #release(SmtpSession, boolean)}.
+     *
+     * @param address       {@link InetSocketAddress} of the mail server
+     * @param timeoutMillis Timeout in milliseconds for waiting for a session and for opening one
+     * @return {@link SmtpSession} to the mail server
+     * @throws IOException          If no session could be opened or none became available in time
+     * @throws InterruptedException If interrupted while waiting for a session
+     */
+    public SmtpSession acquire(InetSocketAddress address, int timeoutMillis) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IOException("SmtpSessionPool is closed");
+        }
+
+        HostPool pool;
+        while (true) {
+            pool = pools.computeIfAbsent(address, key -> new HostPool(smtpConfig.maxSessionsPerHost()));
+            if (!pool.permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a SMTP session with " + address);
+            }
+
+            // The reaper only forgets pools without sessions in use, we may have raced it
+            if (pools.get(address) == pool) {
+                break;
+            }
+            pool.permits.release();
+        }
+
+        long now = System.nanoTime();
+        SmtpSession session;
+        while ((session = pool.idle.pollFirst()) != null) {
+            if (now - session.lastUsed() < idleTimeoutNanos) {
+                return session;
+            }
+            session.close();
+        }
+
+        try {
+            return SmtpSession.open(address, smtpConfig, timeoutMillis);
+        } catch (IOException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hand back a session acquired from this pool
+     *
+     * @param session  {@link SmtpSession} to hand back
+     * @param reusable {@code true} if the session is healthy and may be reused else {@code false} to close it
+     */
+    public void release(SmtpSession session, boolean reusable) {
+        HostPool pool = pools.get(session.address());
+        if (reusable && !closed && idleTimeoutNanos > 0) {
+            pool.idle.addFirst(session);
+        } else {
+            session.close();
+        }
+        pool.permits.release();
+
+        // Pool was closed while the session was in use
+        if (closed) {
+            closeIdle(pool);
+        }
+    }
+
+    /**
+     * Number of idle sessions kept for reuse
+     */
+    public int idleSessions() {
+        return pools.values().stream().mapToInt(pool -> pool.idle.size()).sum();
+    }
+
+    /**
+     * Number of mail servers with a session in use or kept for reuse
+     */
+    public int hosts() {
+        return pools.size();
+    }
+
+    /**
+     * Close sessions which have been idle for longer than the idle timeout and forget
+     * mail servers which have no session left
+     */
+    void reap() {
+        long now = System.nanoTime();
+        for (Map.Entry<InetSocketAddress, HostPool> entry : pools.entrySet()) {
+            HostPool pool = entry.getValue();
+
+            // Released sessions are added first, so the oldest are last
+            SmtpSession session;
+            while ((session = pool.idle.peekLast()) != null && now - session.lastUsed() >= idleTimeoutNanos) {
+                if (pool.idle.removeLastOccurrence(session)) {
+                    session.close();
+                }
+            }
+
+            pools.computeIfPresent(entry.getKey(), (address, current) ->
+                    current.idle.isEmpty() && current.permits.availablePermits() == smtpConfig.maxSessionsPerHost() ? null : current);
+        }
+    }
+
+    /**
+     * Close all idle sessions, sessions in use are closed when released
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reaper.shutdownNow();
+        pools.values().forEach(SmtpSessionPool::closeIdle);
+        logger.debug("Closed SmtpSessionPool");
+    }
+
+    private static void closeIdle(HostPool pool) {
+        SmtpSession session;
+        while ((session = pool.idle.pollFirst()) != null) {
+            session.close();
+        }
+    }
+
+    private record HostPool(Semaphore permits, Deque<SmtpSession> idle) {
+
+        HostPool(int maxSessions) {
+            this(new Semaphore(maxSessions), new ConcurrentLinkedDeque<>());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+import java.util.List;
+
+/**
+ * Replies of a mail transaction run by {@link SmtpSession#verify(List)}.
+ *
+ * @param mailFrom   Reply to {@code MAIL FROM}
+ * @param recipients Replies to {@code RCPT TO}, in order of the recipients; empty if {@code MAIL FROM} was refused
+ */
+public record SmtpTransaction(SmtpReply mailFrom, List<SmtpReply> recipients) {
+
+    public SmtpTransaction {
+        recipients = List.copyOf(recipients);
+    }
+}
@@ -0,0 +1,552 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.snapshot;
+
+import com.shieldblaze.extendedemailvalidator.core.dns.ResolvedDomain;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Snapshot of resolved domains and mail server probe results, stored in a memory-mapped file
+ * so a restarted process starts with warm caches without reading the whole snapshot up front.
+ * <p>
+ * Entries are looked up on a cache miss by binary search over sorted 64-bit FNV-1a hashes of their keys
+ * and decoded only then. Every entry is handed out at most once, by the {@code take} methods, after which
+ * the live cache owns it; this keeps a newer result from being shadowed by the snapshot once it expires.
+ * Expiry is stored as wall-clock time, so entries which expired while the process was down are dropped.
+ * <p>
+ * Opening the file checks only the header and that the index fits, so it costs the same for any number of
+ * entries. Each entry is bounds-checked when it is read. Should an entry turn out to be corrupt, or the file
+ * was truncated in place, the snapshot behaves like {@link #EMPTY} from then on.
+ *
+ * <pre>
+ *     int    magic
+ *     int    version
+ *     long   latest expiry of all entries, epoch milliseconds
+ *     int    number of domain entries
+ *     int    number of probe entries
+ *     long[] sorted (hash, offset) pairs of domain entries
+ *     long[] sorted (hash, offset) pairs of probe entries
+ *     byte[] entries, offsets are relative to the start of this section
+ *
+ *     domain entry: string domain, long expiry, strings MX targets, strings IPv4 addresses, strings IPv6 addresses
+ *     probe entry:  string IP address, byte verdict, long verdict expiry, int preferred port, long preferred port expiry
+ *     string:       unsigned short length, UTF-8 bytes; strings: unsigned short count, string...
+ * </pre>
+ */
+public final class CacheSnapshot {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int MAGIC = 0x45455653; // 'EEVS'
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private static final byte VERDICT_UNKNOWN = 0;
+    private static final byte VERDICT_UNREACHABLE = 1;
+    private static final byte VERDICT_REACHABLE = 2;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Snapshot without any entries
+     */
+    public static final CacheSnapshot EMPTY = new CacheSnapshot(ByteBuffer.allocate(HEADER_SIZE), 0, 0, 0);
+
+    private final ByteBuffer buffer;
+    private final long expiresAt;
+    private final int domainCount;
+    private final int probeCount;
+    private final AtomicLongArray takenDomains;
+    private final AtomicLongArray takenProbes;
+    private volatile boolean failed;
+
+    private CacheSnapshot(ByteBuffer buffer, long expiresAt, int domainCount, int probeCount) {
+        this.buffer = buffer;
+        this.expiresAt = expiresAt;
+        this.domainCount = domainCount;
+        this.probeCount = probeCount;
+        this.takenDomains = new AtomicLongArray((domainCount + 63) >>> 6);
+        this.takenProbes = new AtomicLongArray((probeCount + 63) >>> 6);
+    }
+
+    /**
+     * Memory-map a snapshot file written by {@link #write(Path, Map, Map)}. A missing, unreadable
+     * or corrupt file only costs the warm start, so it yields {@link #EMPTY} instead of an exception.
+     *
+     * @param path Path of the snapshot file
+     * @return {@link CacheSnapshot} backed by the file
+     */
+    public static CacheSnapshot open(Path path) {
+        MappedByteBuffer buffer;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // A single mapping, and the int offsets into it, are limited to 2 GB
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                logger.warn("Cache snapshot {} is too large ({} bytes), starting cold", path, fileChannel.size());
+                return EMPTY;
+            }
+
+            // The mapping stays valid after the channel is closed and after the file is replaced
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        } catch (NoSuchFileException e) {
+            logger.info("No cache snapshot found at {}, starting cold", path);
+            return EMPTY;
+        } catch (IOException e) {
+            logger.warn("Failed to read cache snapshot {}, starting cold", path, e);
+            return EMPTY;
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            logger.warn("Not a cache snapshot file or unsupported version: {}, starting cold", path);
+            return EMPTY;
+        }
+
+        long expiresAt = buffer.getLong(8);
+        int domainCount = buffer.getInt(16);
+        int probeCount = buffer.getInt(20);
+        if (domainCount < 0 || probeCount < 0 || buffer.capacity() < dataStart(domainCount, probeCount)) {
+            logger.warn("Truncated cache snapshot file: {}, starting cold", path);
+            return EMPTY;
+        }
+
+        if (expiresAt <= System.currentTimeMillis()) {
+            logger.info("Cache snapshot {} has expired, starting cold", path);
+            return EMPTY;
+        }
+
+        CacheSnapshot snapshot = new CacheSnapshot(buffer, expiresAt, domainCount, probeCount);
+        logger.info("Opened cache snapshot {} with {} domain and {} probe entries", path, domainCount, probeCount);
+        return snapshot;
+    }
+
+    /**
+     * Take the resolved domain out of the snapshot
+     *
+     * @param domain Lower-cased domain
+     * @return {@link Entry} or {@code null} if the snapshot has no live entry for it or it was taken before
+     */
+    public Entry<ResolvedDomain> takeResolvedDomain(String domain) {
+        if (failed) {
+            return null;
+        }
+
+        try {
+            return lookupResolvedDomain(domain);
+        } catch (RuntimeException e) {
+            fail(e);
+            return null;
+        }
+    }
+
+    private Entry<ResolvedDomain> lookupResolvedDomain(String domain) {
+        int index = find(HEADER_SIZE, domainCount, domain);
+        if (index < 0 || !take(takenDomains, index)) {
+            return null;
+        }
+
+        Reader reader = reader(HEADER_SIZE, index);
+        reader.string();
+        long entryExpiresAt = reader.buffer.getLong();
+        if (entryExpiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        return new Entry<>(new ResolvedDomain(reader.strings(), reader.strings(), reader.strings()), entryExpiresAt);
+    }
+
+    /**
+     * Take the probe result of the mail server out of the snapshot
+     *
+     * @param ipAddress IP address of the mail server
+     * @return {@link ProbeEntry} or {@code null} if the snapshot has no live entry for it or it was taken before
+     */
+    public ProbeEntry takeProbe(String ipAddress) {
+        if (failed) {
+            return null;
+        }
+
+        try {
+            return lookupProbe(ipAddress);
+        } catch (RuntimeException e) {
+            fail(e);
+            return null;
+        }
+    }
+
+    private ProbeEntry lookupProbe(String ipAddress) {
+        int index = find(domainIndexEnd(), probeCount, ipAddress);
+        if (index < 0 || !take(takenProbes, index)) {
+            return null;
+        }
+        return readProbe(reader(domainIndexEnd(), index), System.currentTimeMillis());
+    }
+
+    /**
+     * Visit the live domain entries which have not been taken, so the next snapshot keeps them
+     */
+    public void forEachUntakenResolvedDomain(BiConsumer<String, Entry<ResolvedDomain>> visitor) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < domainCount && !failed; i++) {
+            if (isTaken(takenDomains, i)) {
+                continue;
+            }
+
+            String domain;
+            Entry<ResolvedDomain> entry;
+            try {
+                Reader reader = reader(HEADER_SIZE, i);
+                domain = reader.string();
+                long entryExpiresAt = reader.buffer.getLong();
+                if (entryExpiresAt <= now) {
+                    continue;
+                }
+                entry = new Entry<>(new ResolvedDomain(reader.strings(), reader.strings(), reader.strings()), entryExpiresAt);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            visitor.accept(domain, entry);
+        }
+    }
+
+    /**
+     * Visit the live probe entries which have not been taken, so the next snapshot keeps them
+     */
+    public void forEachUntakenProbe(BiConsumer<String, ProbeEntry> visitor) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < probeCount && !failed; i++) {
+            if (isTaken(takenProbes, i)) {
+                continue;
+            }
+
+            String ipAddress;
+            ProbeEntry probeEntry;
+            try {
+                Reader reader = reader(domainIndexEnd(), i);
+                int position = reader.buffer.position();
+                ipAddress = reader.string();
+                reader.buffer.position(position);
+                probeEntry = readProbe(reader, now);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            if (probeEntry != null) {
+                visitor.accept(ipAddress, probeEntry);
+            }
+        }
+    }
+
+    /**
+     * Number of domain entries, including expired and taken ones
+     */
+    public int domainCount() {
+        return domainCount;
+    }
+
+    /**
+     * Number of probe entries, including expired and taken ones
+     */
+    public int probeCount() {
+        return probeCount;
+    }
+
+    /**
+     * Write a snapshot file. It is written to a temporary file first and moved into place atomically,
+     * so a crash never leaves a partial snapshot behind and open snapshots keep their mapping.
+     *
+     * @param path    Path of the snapshot file
+     * @param domains Resolved domains by domain
+     * @param probes  Probe results by mail server IP address
+     * @throws IOException If the snapshot could not be written
+     */
+    public static void write(Path path, Map<String, Entry<ResolvedDomain>> domains, Map<String, ProbeEntry> probes) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream dataOutput = new DataOutputStream(data);
+        long latestExpiry = 0;
+
+        long[] domainIndex = new long[domains.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, Entry<ResolvedDomain>> entry : domains.entrySet()) {
+            domainIndex[i++] = hash(entry.getKey());
+            domainIndex[i++] = data.size();
+
+            ResolvedDomain resolvedDomain = entry.getValue().value();
+            writeString(dataOutput, entry.getKey());
+            dataOutput.writeLong(entry.getValue().expiresAt());
+            writeStrings(dataOutput, resolvedDomain.mxTargets());
+            writeStrings(dataOutput, resolvedDomain.ipv4Addresses());
+            writeStrings(dataOutput, resolvedDomain.ipv6Addresses());
+            latestExpiry = Math.max(latestExpiry, entry.getValue().expiresAt());
+        }
+
+        long[] probeIndex = new long[probes.size() * 2];
+        i = 0;
+        for (Map.Entry<String, ProbeEntry> entry : probes.entrySet()) {
+            probeIndex[i++] = hash(entry.getKey());
+            probeIndex[i++] = data.size();
+
+            ProbeEntry probeEntry = entry.getValue();
+            writeString(dataOutput, entry.getKey());
+            dataOutput.writeByte(probeEntry.verdict() == null ? VERDICT_UNKNOWN : probeEntry.verdict() ? VERDICT_REACHABLE : VERDICT_UNREACHABLE);
+            dataOutput.writeLong(probeEntry.verdictExpiresAt());
+            dataOutput.writeInt(probeEntry.preferredPort());
+            dataOutput.writeLong(probeEntry.preferredPortExpiresAt());
+            latestExpiry = Math.max(latestExpiry, Math.max(probeEntry.verdictExpiresAt(), probeEntry.preferredPortExpiresAt()));
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel fileChannel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(fileChannel), 64 * 1024)) {
+                DataOutputStream output = new DataOutputStream(outputStream);
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(latestExpiry);
+                output.writeInt(domains.size());
+                output.writeInt(probes.size());
+                writeIndex(output, domainIndex);
+                writeIndex(output, probeIndex);
+                data.writeTo(output);
+                output.flush();
+                fileChannel.force(true);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+
+        logger.debug("Wrote cache snapshot {} with {} domain and {} probe entries", path, domains.size(), probes.size());
+    }
+
+    private void fail(RuntimeException e) {
+        if (!failed) {
+            failed = true;
+            logger.warn("Failed to read cache snapshot, ignoring the rest of it", e);
+        }
+    }
+
+    /**
+     * Index of the entry with the key in the index section starting at {@code indexStart}
+     *
+     * @return Index or {@code -1} if not found
+     */
+    private int find(int indexStart, int count, String key) {
+        if (count == 0 || expiresAt <= System.currentTimeMillis()) {
+            return -1;
+        }
+
+        long hash = hash(key);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(indexStart + mid * INDEX_ENTRY_SIZE);
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                // Step back to the first entry with this hash and compare keys, hashes may collide
+                while (mid > 0 && buffer.getLong(indexStart + (mid - 1) * INDEX_ENTRY_SIZE) == hash) {
+                    mid--;
+                }
+                for (; mid < count && buffer.getLong(indexStart + mid * INDEX_ENTRY_SIZE) == hash; mid++) {
+                    if (reader(indexStart, mid).string().equals(key)) {
+                        return mid;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Cursor over the entry. Reads past the end of the file throw, so only the offset needs checking.
+     *
+     * @throws IndexOutOfBoundsException If the offset is outside of the entry section
+     */
+    private Reader reader(int indexStart, int index) {
+        long offset = buffer.getLong(indexStart + index * INDEX_ENTRY_SIZE + 8);
+        long dataStart = dataStart(domainCount, probeCount);
+        if (offset < 0 || offset >= buffer.capacity() - dataStart) {
+            throw new IndexOutOfBoundsException("Entry " + index + " offset " + offset + " is outside of the entry section");
+        }
+
+        ByteBuffer entry = buffer.duplicate();
+        entry.position((int) (dataStart + offset));
+        return new Reader(entry);
+    }
+
+    private static ProbeEntry readProbe(Reader reader, long now) {
+        reader.string();
+        byte verdict = reader.buffer.get();
+        long verdictExpiresAt = reader.buffer.getLong();
+        int preferredPort = reader.buffer.getInt();
+        long preferredPortExpiresAt = reader.buffer.getLong();
+
+        // Drop the parts which have expired, and the entry if nothing is left
+        if (verdictExpiresAt <= now) {
+            verdict = VERDICT_UNKNOWN;
+            verdictExpiresAt = 0;
+        }
+        if (preferredPortExpiresAt <= now) {
+            preferredPort = -1;
+            preferredPortExpiresAt = 0;
+        }
+        if (verdict == VERDICT_UNKNOWN && preferredPort == -1) {
+            return null;
+        }
+
+        Boolean reachable = verdict == VERDICT_UNKNOWN ? null : verdict == VERDICT_REACHABLE;
+        return new ProbeEntry(reachable, verdictExpiresAt, preferredPort, preferredPortExpiresAt);
+    }
+
+    private static boolean take(AtomicLongArray taken, int index) {
+        long bit = 1L << index;
+        while (true) {
+            long word = taken.get(index >>> 6);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (taken.compareAndSet(index >>> 6, word, word | bit)) {
+                return true;
+            }
+        }
+    }
+
+    private static boolean isTaken(AtomicLongArray taken, int index) {
+        return (taken.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private int domainIndexEnd() {
+        return HEADER_SIZE + domainCount * INDEX_ENTRY_SIZE;
+    }
+
+    private static long dataStart(int domainCount, int probeCount) {
+        return HEADER_SIZE + (long) INDEX_ENTRY_SIZE * (domainCount + (long) probeCount);
+    }
+
+    private static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Sort (hash, offset) pairs by hash and write them
+     */
+    private static void writeIndex(DataOutputStream output, long[] index) throws IOException {
+        Integer[] order = new Integer[index.length / 2];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(index[a * 2], index[b * 2]));
+        for (int i : order) {
+            output.writeLong(index[i * 2]);
+            output.writeLong(index[i * 2 + 1]);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream output, List<String> values) throws IOException {
+        output.writeShort(values.size());
+        for (String value : values) {
+            writeString(output, value);
+        }
+    }
+
+    /**
+     * Cursor over an entry
+     */
+    private record Reader(ByteBuffer buffer) {
+
+        String string() {
+            byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> strings() {
+            int count = Short.toUnsignedInt(buffer.getShort());
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(string());
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Entry with its expiry
+     *
+     * @param value     Value
+     * @param expiresAt Expiry in epoch milliseconds
+     * @param <V>       Value type
+     */
+    public record Entry<V>(V value, long expiresAt) {
+
+        /**
+         * Time-to-live left in milliseconds
+         */
+        public long remainingMillis() {
+            return expiresAt - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Probe result of a mail server, see {@link com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache}
+     *
+     * @param verdict                {@code true} if reachable, {@code false} if unreachable and {@code null} if unknown
+     * @param verdictExpiresAt       Expiry of the verdict in epoch milliseconds, {@code 0} if unknown
+     * @param preferredPort          Port which last accepted a connection, {@code -1} if unknown
+     * @param preferredPortExpiresAt Expiry of the preferred port in epoch milliseconds, {@code 0} if unknown
+     */
+    public record ProbeEntry(Boolean verdict, long verdictExpiresAt, int preferredPort, long preferredPortExpiresAt) {
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.snapshot;
+
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.dns.MxResolver;
+import com.shieldblaze.extendedemailvalidator.core.dns.ResolvedDomain;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Periodically writes the DNS and probe caches to a {@link CacheSnapshot} file, and once more on close.
+ * Entries of the snapshot the process started from which were never needed are carried over,
+ * so quick successive restarts do not lose them.
+ */
+public final class SnapshotWriter implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Path path;
+    private final CacheSnapshot previous;
+    private final MxResolver mxResolver;
+    private final ProbeCache probeCache;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create a new {@link SnapshotWriter}
+     *
+     * @param path       Path of the snapshot file
+     * @param previous   {@link CacheSnapshot} the caches were warmed from
+     * @param mxResolver {@link MxResolver} whose resolved domains are written
+     * @param probeCache {@link ProbeCache} whose probe results are written
+     */
+    public SnapshotWriter(Path path, CacheSnapshot previous, MxResolver mxResolver, ProbeCache probeCache) {
+        this.path = requireNonNull(path, "Path");
+        this.previous = requireNonNull(previous, "CacheSnapshot");
+        this.mxResolver = requireNonNull(mxResolver, "MxResolver");
+        this.probeCache = requireNonNull(probeCache, "ProbeCache");
+    }
+
+    /**
+     * Start writing a snapshot every {@code interval}
+     *
+     * @param interval Interval between snapshots
+     */
+    public void start(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be greater than 0");
+        }
+
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write();
+            } catch (IOException e) {
+                logger.warn("Failed to write cache snapshot {}", path, e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write a snapshot now
+     *
+     * @throws IOException If the snapshot could not be written
+     */
+    public synchronized void write() throws IOException {
+        long now = System.currentTimeMillis();
+
+        Map<String, CacheSnapshot.Entry<ResolvedDomain>> domains = new HashMap<>();
+        previous.forEachUntakenResolvedDomain(domains::put);
+        mxResolver.forEachCached((domain, resolvedDomain, remainingNanos) ->
+                domains.put(domain, new CacheSnapshot.Entry<>(resolvedDomain, now + TimeUnit.NANOSECONDS.toMillis(remainingNanos))));
+
+        Map<String, CacheSnapshot.ProbeEntry> probes = new HashMap<>();
+        previous.forEachUntakenProbe(probes::put);
+        probeCache.forEachVerdict((ipAddress, verdict, remainingNanos) -> {
+            CacheSnapshot.ProbeEntry probeEntry = probes.get(ipAddress);
+            probes.put(ipAddress, new CacheSnapshot.ProbeEntry(verdict, now + TimeUnit.NANOSECONDS.toMillis(remainingNanos),
+                    probeEntry == null ? -1 : probeEntry.preferredPort(), probeEntry == null ? 0 : probeEntry.preferredPortExpiresAt()));
+        });
+        probeCache.forEachPreferredPort((ipAddress, port, remainingNanos) -> {
+            CacheSnapshot.ProbeEntry probeEntry = probes.get(ipAddress);
+            probes.put(ipAddress, new CacheSnapshot.ProbeEntry(probeEntry == null ? null : probeEntry.verdict(),
+                    probeEntry == null ? 0 : probeEntry.verdictExpiresAt(), port, now + TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+        });
+
+        CacheSnapshot.write(path, domains, probes);
+    }
+
+    /**
+     * Stop writing periodically and write a last snapshot
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            write();
+            logger.info("Wrote cache snapshot {} on close", path);
+        } catch (IOException e) {
+            logger.warn("Failed to write cache snapshot {} on close", path, e);
+        }
+    }
+}
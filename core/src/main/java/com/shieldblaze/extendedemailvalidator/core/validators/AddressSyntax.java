@@ -0,0 +1,132 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+/**
+ * Allocation-free syntax check for the common shape of email addresses:
+ * a dot-atom local part and a domain made of ASCII letter-digit-hyphen labels.
+ * <p>
+ * Anything outside that shape (quoted local parts, comments, IP literals, non-ASCII,
+ * lengths close to the RFC limits) is left {@link #UNDECIDED} so the caller can
+ * fall back to a full parser.
+ */
+public final class AddressSyntax {
+
+    /**
+     * The address is definitely invalid
+     */
+    public static final int INVALID = -1;
+
+    /**
+     * The address needs a full parser to decide
+     */
+    public static final int UNDECIDED = -2;
+
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_DOMAIN_LENGTH = 253;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    // Characters allowed in a dot-atom local part besides letters and digits, see RFC 5322 'atext'
+    private static final String ATEXT_SYMBOLS = "!#$%&'*+-/=?^_`{|}~";
+    private static final boolean[] ATEXT = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ATEXT[c] = true;
+            ATEXT[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ATEXT[c] = true;
+        }
+        for (int i = 0; i < ATEXT_SYMBOLS.length(); i++) {
+            ATEXT[ATEXT_SYMBOLS.charAt(i)] = true;
+        }
+    }
+
+    /**
+     * Check the syntax of an email address
+     *
+     * @param email Email address to check
+     * @return Index of the {@code @} separating local part and domain if the address is valid,
+     * {@link #INVALID} if it is invalid or {@link #UNDECIDED} if a full parser is needed
+     */
+    public static int check(String email) {
+        if (email == null || email.isEmpty()) {
+            return INVALID;
+        }
+
+        int length = email.length();
+        int at = -1;
+        boolean invalid = false;
+
+        // Structural errors only make the address invalid once the whole address is known to be
+        // made of simple characters, quoting and comments could otherwise change its meaning.
+        int labelStart = 0;
+        boolean numericLabel = true;
+        for (int i = 0; i <= length; i++) {
+            boolean end = i == length;
+            char c = end ? '.' : email.charAt(i);
+
+            if (at < 0) {
+                // Local part: dot separated runs of 'atext'
+                if (c == '@' || c == '.') {
+                    if (i == labelStart) {
+                        invalid = true;
+                    }
+                    labelStart = i + 1;
+                    if (c == '@') {
+                        at = i;
+                    }
+                } else if (c >= 128 || !ATEXT[c]) {
+                    return UNDECIDED;
+                }
+            } else {
+                // Domain: dot separated letter-digit-hyphen labels
+                if (c == '.') {
+                    int labelLength = i - labelStart;
+                    if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                            || email.charAt(labelStart) == '-' || email.charAt(i - 1) == '-') {
+                        invalid = true;
+                    } else if (end && numericLabel) {
+                        // All-numeric top level label, may be an IP address or a bare number
+                        return UNDECIDED;
+                    }
+                    labelStart = i + 1;
+                    numericLabel = true;
+                } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-') {
+                    numericLabel = false;
+                } else if (c == '@') {
+                    invalid = true;
+                } else if (c < '0' || c > '9') {
+                    return UNDECIDED;
+                }
+            }
+        }
+
+        if (invalid || at < 0) {
+            return INVALID;
+        }
+        if (at > MAX_LOCAL_PART_LENGTH || length - at - 1 > MAX_DOMAIN_LENGTH) {
+            return UNDECIDED;
+        }
+        return at;
+    }
+
+    private AddressSyntax() {
+        // Prevent outside initialization
+    }
+}
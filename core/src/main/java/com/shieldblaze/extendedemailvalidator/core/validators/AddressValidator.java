@@ -16,14 +16,19 @@
  */
 package com.shieldblaze.extendedemailvalidator.core.validators;
 
+import com.sanctionco.jmail.Email;
 import com.sanctionco.jmail.JMail;
 import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
 import com.shieldblaze.extendedemailvalidator.core.Validator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Optional;
+
 /**
- * Performs validation of email address using Simple Email Validator.
+ * Performs validation of email address using {@link AddressSyntax} for common addresses
+ * and Simple Email Validator for the rest.
+ * The parsed local part and domain are kept in {@link ValidationContext} for later validators.
  */
 public class AddressValidator implements Validator {
 
@@ -33,7 +38,7 @@ public class AddressValidator implements Validator {
     public boolean isValid(ValidationContext validationContext, String email) {
         logger.debug("Validating address: {}", email);
 
-        if (JMail.isValid(email)) {
+        if (parse(validationContext, email)) {
             logger.debug("Address validation passed");
             validationContext.markAddressValidationPassed();
             return true;
@@ -42,4 +47,28 @@ public class AddressValidator implements Validator {
             return false;
         }
     }
+
+    /**
+     * Parse the email address into the {@link ValidationContext}
+     *
+     * @return {@code true} if the email address is valid else {@code false}
+     */
+    static boolean parse(ValidationContext validationContext, String email) {
+        int atIndex = AddressSyntax.check(email);
+        if (atIndex >= 0) {
+            validationContext.markAddressParsed(email, atIndex);
+            return true;
+        } else if (atIndex == AddressSyntax.INVALID) {
+            return false;
+        }
+
+        Optional<Email> parsed = JMail.tryParse(email);
+        if (parsed.isEmpty()) {
+            return false;
+        }
+
+        // Comments are not part of the address, they must not reach DNS or SMTP
+        validationContext.markAddressParsed(parsed.get().localPartWithoutComments(), parsed.get().domainWithoutComments());
+        return true;
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.domain.DomainIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rejects email addresses whose domain is on a blocklist, such as disposable email providers.
+ * <p>
+ * The blocklist is a text file with one domain per line, see {@link DomainIndex#build(Path, Path)}.
+ * It is compiled into a {@link DomainIndex} next to it, with {@code .idx} appended to the file name,
+ * which is rebuilt only when the list is newer. Calling {@link #watch()} reloads the index whenever
+ * the list changes; lookups switch to the new index atomically.
+ * <p>
+ * This validator should run before {@link MXRecordValidator} so blocklisted domains never cost a DNS lookup.
+ */
+public class DomainBlocklistValidator implements Validator, Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Path listPath;
+    private final Path indexPath;
+    private final AtomicReference<DomainIndex> domainIndex = new AtomicReference<>();
+    private WatchService watchService;
+
+    /**
+     * Create a new {@link DomainBlocklistValidator}
+     *
+     * @param listPath Path of the blocklist
+     * @throws IOException If the blocklist or its index could not be read
+     */
+    public DomainBlocklistValidator(Path listPath) throws IOException {
+        this.listPath = requireNonNull(listPath, "ListPath").toAbsolutePath();
+        this.indexPath = this.listPath.resolveSibling(this.listPath.getFileName() + ".idx");
+
+        // Reuse the index from a previous run unless the blocklist is newer than it
+        if (!Files.exists(indexPath) || Files.getLastModifiedTime(indexPath).compareTo(Files.getLastModifiedTime(listPath)) < 0) {
+            DomainIndex.build(listPath, indexPath);
+        }
+        domainIndex.set(DomainIndex.open(indexPath));
+    }
+
+    /**
+     * Rebuild the index from the blocklist and switch lookups to it
+     *
+     * @throws IOException If the blocklist could not be read or its index could not be written
+     */
+    public void reload() throws IOException {
+        DomainIndex.build(listPath, indexPath);
+
+        // The previous index is unmapped once no lookup references it anymore
+        domainIndex.set(DomainIndex.open(indexPath));
+    }
+
+    /**
+     * Watch the blocklist and reload it when it is replaced or modified.
+     * Lists should be replaced by moving a complete file into place.
+     *
+     * @throws IOException If the watch could not be registered
+     */
+    public synchronized void watch() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+
+        watchService = listPath.getFileSystem().newWatchService();
+        listPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(() -> watchLoop(watchService), "blocklist-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public boolean isValid(ValidationContext validationContext, String email) {
+        logger.debug("Validating domain against blocklist for address: {}", email);
+
+        if (validationContext.domain() == null && !AddressValidator.parse(validationContext, email)) {
+            logger.debug("Address validation failed, address validation should be run first");
+            validationContext.markBlocklistValidationFailed("Address validation should be run first");
+            return false;
+        }
+
+        if (domainIndex.get().contains(validationContext.domain())) {
+            logger.debug("Domain is blocklisted: {}", validationContext.domain());
+            validationContext.markBlocklistValidationFailed("Domain is blocklisted");
+            return false;
+        }
+
+        logger.debug("Blocklist validation passed");
+        validationContext.markBlocklistValidationPassed();
+        return true;
+    }
+
+    @Override
+    public boolean isDomainScoped() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void watchLoop(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey watchKey = watchService.take();
+
+                boolean changed = false;
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (listPath.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (IOException e) {
+                        logger.error("Failed to reload blocklist, keeping the previous one", e);
+                    }
+                }
+
+                if (!watchKey.reset()) {
+                    logger.error("Blocklist directory is no longer accessible, stopped watching {}", listPath);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.debug("Stopped watching blocklist {}", listPath);
+        }
+    }
+}
@@ -16,145 +16,64 @@
  */
 package com.shieldblaze.extendedemailvalidator.core.validators;
 
-import com.sanctionco.jmail.Email;
-import com.sanctionco.jmail.JMail;
+import com.shieldblaze.extendedemailvalidator.core.AsyncValidator;
 import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
 import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
-import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.dns.MxResolver;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.xbill.DNS.AAAARecord;
-import org.xbill.DNS.ARecord;
-import org.xbill.DNS.ExtendedResolver;
-import org.xbill.DNS.Lookup;
-import org.xbill.DNS.MXRecord;
-import org.xbill.DNS.Record;
-import org.xbill.DNS.Type;
 
-import java.io.IOException;
-import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Duration;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Objects.requireNonNull;
 
-public class MXRecordValidator implements Validator {
+public class MXRecordValidator implements AsyncValidator {
 
     private static final Logger logger = LogManager.getLogger();
-    private final ExtendedResolver resolver;
+    private final MxResolver mxResolver;
 
     public MXRecordValidator(NetworkConfig networkConfig) throws UnknownHostException {
-        requireNonNull(networkConfig, "NetworkConfig");
-
-        if (networkConfig.dnsServers().isEmpty()) {
-            resolver = new ExtendedResolver();
-            resolver.setTimeout(Duration.ofMillis(networkConfig.dnsTimeout()));
-            return;
-        }
+        this(new MxResolver(requireNonNull(networkConfig, "NetworkConfig")));
+    }
 
-        resolver = new ExtendedResolver(networkConfig.dnsServers().toArray(new String[0]));
-        resolver.setTimeout(Duration.ofMillis(networkConfig.dnsTimeout()));
+    public MXRecordValidator(MxResolver mxResolver) {
+        this.mxResolver = requireNonNull(mxResolver, "MxResolver");
     }
 
     @Override
-    public boolean isValid(ValidationContext validationContext, String email) throws IOException {
-        Optional<Email> optionalEmail = JMail.tryParse(email);
-        if (optionalEmail.isEmpty()) {
+    public CompletableFuture<Boolean> isValidAsync(ValidationContext validationContext, String email) {
+        // Reuse the domain parsed by AddressValidator, parse only if it has not run
+        if (validationContext.domain() == null && !AddressValidator.parse(validationContext, email)) {
             logger.debug("Address validation failed, address validation should be run first");
             validationContext.markMxValidationFailed("Address validation should be run first");
-            return false;
-        }
-
-        String domain = optionalEmail.get().domain();
-
-        Lookup mxLookup = new Lookup(domain, Type.MX);
-        mxLookup.setResolver(resolver);
-        Record[] records = mxLookup.run();
-
-        // If no records found, return false
-        if (records.length == 0) {
-            logger.debug("DNS Lookup returned no records in MX Record query");
-            validationContext.markMxValidationFailed("DNS Lookup returned no records in MX Record query");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        // Get all MX records
-        List<MXRecord> mxRecords = Arrays.stream(records)
-                .filter(record -> record instanceof MXRecord)
-                .map(record -> (MXRecord) record)
-                .toList();
+        String domain = validationContext.domain();
 
-        // If no MX records found, return false
-        if (mxRecords.isEmpty()) {
-            logger.debug("DNS Lookup returned no MX records");
-            validationContext.markMxValidationFailed("DNS Lookup returned no MX records");
-            return false;
-        }
-
-        // IPv4 lookup
-        for (MXRecord mxRecord : mxRecords) {
-            Lookup aRecordLookup = new Lookup(mxRecord.getTarget(), Type.A);
-            aRecordLookup.setResolver(resolver);
-
-            Record[] aRecords = aRecordLookup.run();
-            if (aRecords == null || aRecords.length == 0) {
-                logger.debug("DNS Lookup for MX Record Target returned no records in A Record query");
-                validationContext.markMxValidationFailed("DNS Lookup for MX Record Target returned no records in A Record query");
+        // Lookups go on in the background past the deadline, so the cache is warm for the next request
+        return validationContext.within(mxResolver.resolve(domain)).thenApply(mxResolution -> {
+            if (!mxResolution.isSuccess()) {
+                validationContext.markMxValidationFailed(mxResolution.failureReason());
                 return false;
             }
 
-            List<InetAddress> aRecordIps = Arrays.stream(aRecords)
-                    .filter(record -> record instanceof ARecord)
-                    .map(record -> ((ARecord) record).getAddress())
-                    .toList();
-
-            if (aRecordIps.isEmpty()) {
-                logger.debug("DNS Lookup for MX Record Target returned no A Records");
-                validationContext.markMxValidationFailed("DNS Lookup for MX Record Target returned no A Records");
-                return false;
-            }
-
-            validationContext.mailServerIpv4Addresses().add(aRecordIps.get(0).getHostAddress());
-        }
+            validationContext.mailServerAddresses(mxResolution.resolvedDomain().ipv4Addresses(), mxResolution.resolvedDomain().ipv6Addresses());
 
-        // IPv6 lookup
-        for (MXRecord mxRecord : mxRecords) {
-            Lookup aaaaRecordLookup = new Lookup(mxRecord.getTarget(), Type.AAAA);
-            aaaaRecordLookup.setResolver(resolver);
-
-            Record[] aaaaRecords = aaaaRecordLookup.run();
-            boolean alreadyHasIpv4 = !validationContext.mailServerIpv4Addresses().isEmpty();
-
-            if (aaaaRecords == null || aaaaRecords.length == 0) {
-                if (alreadyHasIpv4) {
-                    logger.debug("DNS Lookup for MX Record Target returned no records in AAAA Record query, but already has IPv4 address");
-                    break;
-                } else {
-                    logger.debug("DNS Lookup for MX Record Target returned no records in AAAA Record query");
-                    validationContext.markMxValidationFailed("DNS Lookup for MX Record Target returned no records in AAAA Record query");
-                    return false;
-                }
-            }
-
-            List<InetAddress> aaaaRecordIps = Arrays.stream(aaaaRecords)
-                    .filter(record -> record instanceof AAAARecord)
-                    .map(record -> ((AAAARecord) record).getAddress())
-                    .toList();
-
-            if (aaaaRecordIps.isEmpty()) {
-                logger.debug("DNS Lookup for MX Record Target returned no AAAA Records");
-                validationContext.markMxValidationFailed("DNS Lookup for MX Record Target returned no AAAA Records");
-                return false;
-            }
-
-            validationContext.mailServerIpv6Addresses().add(aaaaRecordIps.get(0).getHostAddress());
-        }
+            logger.debug("MX Record validation passed");
+            validationContext.markMxValidationPassed();
+            return true;
+        });
+    }
 
-        logger.debug("MX Record validation passed");
-        validationContext.markMxValidationPassed();
+    @Override
+    public boolean isDomainScoped() {
         return true;
     }
+
+    @Override
+    public int cost() {
+        return COST_DNS;
+    }
 }
@@ -16,34 +16,70 @@
  */
 package com.shieldblaze.extendedemailvalidator.core.validators;
 
+import com.shieldblaze.extendedemailvalidator.core.AsyncValidator;
 import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
 import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
-import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.cache.NegativeCache;
+import com.shieldblaze.extendedemailvalidator.core.cache.SingleFlight;
+import com.shieldblaze.extendedemailvalidator.core.connection.ConnectionProber;
+import com.shieldblaze.extendedemailvalidator.core.connection.PolitenessScheduler;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeEngine;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Performs validation of mail server connection on TCP ports 25, 465, 587, 993.
+ * Connects are subject to the per mail server limits of {@link PolitenessConfig}.
+ * Closing it stops the {@link ProbeEngine} it connects on.
  */
-public class MailServerConnection implements Validator {
+public class MailServerConnection implements AsyncValidator, Closeable {
 
     private static final Logger logger = LogManager.getLogger();
-    private static final int[] PORTS = {25, 465, 567, 993};
+    private static final int[] PORTS = {25, 465, 587, 993};
 
-    private final NetworkConfig networkConfig;
+    private final ProbeEngine probeEngine;
+    private final ConnectionProber connectionProber;
+    private final NegativeCache negativeCache;
+    private final SingleFlight<String, InetSocketAddress> inFlight = new SingleFlight<>("connect");
 
-    public MailServerConnection(NetworkConfig networkConfig) {
-        this.networkConfig = requireNonNull(networkConfig, "NetworkConfig");
+    public MailServerConnection(NetworkConfig networkConfig) throws IOException {
+        this(networkConfig, new NegativeCache(networkConfig), new ProbeCache(networkConfig));
+    }
+
+    public MailServerConnection(NetworkConfig networkConfig, NegativeCache negativeCache, ProbeCache probeCache) throws IOException {
+        this(networkConfig, PolitenessConfig.DEFAULT, negativeCache, probeCache);
+    }
+
+    public MailServerConnection(NetworkConfig networkConfig, PolitenessConfig politenessConfig, NegativeCache negativeCache,
+                                ProbeCache probeCache) throws IOException {
+        this(networkConfig, politenessConfig, negativeCache, probeCache, PORTS);
+    }
+
+    /**
+     * Create a new {@link MailServerConnection} which probes the given ports instead of the standard mail ports
+     */
+    public MailServerConnection(NetworkConfig networkConfig, PolitenessConfig politenessConfig, NegativeCache negativeCache,
+                                ProbeCache probeCache, int[] ports) throws IOException {
+        requireNonNull(networkConfig, "NetworkConfig");
+        requireNonNull(politenessConfig, "PolitenessConfig");
+        this.negativeCache = requireNonNull(negativeCache, "NegativeCache");
+        probeEngine = new ProbeEngine();
+        PolitenessScheduler politenessScheduler = new PolitenessScheduler(probeEngine, politenessConfig);
+        connectionProber = new ConnectionProber(politenessScheduler, probeCache, ports, networkConfig.socketTimeout());
     }
 
     @Override
-    public boolean isValid(ValidationContext validationContext, String email) {
+    public CompletableFuture<Boolean> isValidAsync(ValidationContext validationContext, String email) {
         logger.debug("Validating mail server connection for address: {}", email);
 
         boolean hasIpv4Address = !validationContext.mailServerIpv4Addresses().isEmpty();
@@ -52,73 +88,64 @@ public class MailServerConnection implements Validator {
         if (!hasIpv4Address && !hasIpv6Address) {
             logger.debug("No IPv4 or IPv6 address found for mail server");
             validationContext.markSocketConnectionFailed("No IPv4 or IPv6 address found for mail server");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        boolean ipv4ConnectionSuccess = false;
-
-        // Try to connect to the mail server on each IPv4 address and port
-        for (String ipAddress : validationContext.mailServerIpv4Addresses()) {
-
-            // If we've already connected, break out of the loop
-            if (ipv4ConnectionSuccess) {
-                logger.debug("Successfully connected to mail server on IPv4 address: {}, returning result", ipAddress);
-                break;
-            }
-
-            for (int port : PORTS) {
-                if (checkConnection(ipAddress, port)) {
-                    logger.debug("Successfully connected to mail server on IPv4 address: {} and port: {}", ipAddress, port);
-                    ipv4ConnectionSuccess = true;
-                    break;
-                }
-            }
+        // Unreachable mail servers are not probed again until the negative cache entry expires
+        String domain = validationContext.domain() != null
+                ? validationContext.domain()
+                : email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+        String failureReason = negativeCache.failureReason(domain, NegativeCache.FailureType.CONNECTION);
+        if (failureReason != null) {
+            logger.debug("Mail server connection failed from negative cache for domain: {}", domain);
+            validationContext.markSocketConnectionFailed(failureReason);
+            return CompletableFuture.completedFuture(false);
         }
 
-        boolean ipv6ConnectionSuccess = false;
-
-        // Try to connect to the mail server on each IPv6 address and port
-        for (String ipAddress : validationContext.mailServerIpv6Addresses()) {
-
-            // If we've already connected, break out of the loop
-            if (ipv6ConnectionSuccess) {
-                logger.debug("Successfully connected to mail server on IPv6 address: {}, returning result", ipAddress);
-                break;
+        // Concurrent validations of the same domain share a single probe
+        return validationContext.within(inFlight.execute(domain, () -> probe(domain, validationContext))).thenApply(address -> {
+            if (address == null) {
+                logger.debug("Could not connect to mail server via IPv4 or IPv6");
+                validationContext.markSocketConnectionFailed("Could not connect to mail server via IPv4 or IPv6");
+                return false;
             }
 
-            for (int port : PORTS) {
-                if (checkConnection(ipAddress, port)) {
-                    logger.debug("Successfully connected to mail server on IPv6 address: {} and port: {}", ipAddress, port);
-                    ipv6ConnectionSuccess = true;
-                    break;
-                }
-            }
-        }
+            logger.debug("Successfully connected to mail server on address: {}, returning result", address);
+            validationContext.markSocketConnectionSuccess();
+            return true;
+        });
+    }
 
-        if (!ipv4ConnectionSuccess && !ipv6ConnectionSuccess) {
-            logger.debug("Could not connect to mail server via IPv4 or IPv6");
-            validationContext.markSocketConnectionFailed("Could not connect to mail server via IPv4 or IPv6");
-            return false;
-        }
+    /**
+     * Connect to every mail server IP address and port at once, the first one to answer wins
+     */
+    private CompletableFuture<InetSocketAddress> probe(String domain, ValidationContext validationContext) {
+        return connectionProber.probe(validationContext.mailServerIpv4Addresses(), validationContext.mailServerIpv6Addresses())
+                .thenApply(result -> {
+                    // Deferred connects and probes cut short by the deadline are no verdict on the domain
+                    if (result.unreachable()) {
+                        negativeCache.put(domain, NegativeCache.FailureType.CONNECTION,
+                                "Could not connect to mail server via IPv4 or IPv6", negativeCache.timeoutTtl());
+                    }
+                    return result.address();
+                });
+    }
 
-        logger.debug("Successfully connected to mail server, returning result");
-        validationContext.markSocketConnectionSuccess();
+    @Override
+    public boolean isDomainScoped() {
         return true;
     }
 
+    @Override
+    public int cost() {
+        return COST_CONNECT;
+    }
+
     /**
-     * Check if a connection can be made to the given IP address and port.
-     * @param ip The IP address to connect to
-     * @param port The port to connect to
-     * @return True if a connection can be made, false otherwise
+     * Stop the {@link ProbeEngine}, probes in flight complete without a connection
      */
-    private boolean checkConnection(String ip, int port) {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(ip, port), networkConfig.socketTimeout());
-            return socket.isConnected();
-        } catch (IOException e) {
-            logger.debug("Could not connect to mail server on IP address: {} and port: {}, message: {}", ip, port, e.getMessage());
-            return false;
-        }
+    @Override
+    public void close() {
+        probeEngine.close();
     }
 }
@@ -0,0 +1,248 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+import com.shieldblaze.extendedemailvalidator.core.BatchValidator;
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.cache.ExpiringCache;
+import com.shieldblaze.extendedemailvalidator.core.smtp.SmtpReply;
+import com.shieldblaze.extendedemailvalidator.core.smtp.SmtpSession;
+import com.shieldblaze.extendedemailvalidator.core.smtp.SmtpSessionPool;
+import com.shieldblaze.extendedemailvalidator.core.smtp.SmtpTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Performs validation of the mailbox by asking the mail server whether it accepts mail for it,
+ * using {@code RCPT TO} without ever sending {@code DATA}.
+ * <p>
+ * All addresses of a domain are verified in as few mail transactions as possible over pooled
+ * sessions, see {@link SmtpConfig#maxRecipientsPerTransaction()}. Only a permanent refusal of the
+ * recipient fails the address; temporary failures, refusals on policy grounds and unreachable
+ * mail servers mark the mailbox as inconclusive and let the address pass.
+ * <p>
+ * The first transaction of a domain also asks for a random mailbox which can not exist. If the mail server
+ * accepts it, it is a catch-all server and its acceptance of the other mailboxes is inconclusive. The verdict
+ * is cached for {@link SmtpConfig#catchAllTtl()} per domain and mail server, since hosted mail servers serve
+ * catch-all domains next to regular ones, and later batches skip the probe while it is fresh.
+ */
+public class SmtpMailboxValidator implements BatchValidator, Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int CATCH_ALL_CACHE_SIZE = 100_000;
+
+    private final SmtpConfig smtpConfig;
+    private final SmtpSessionPool sessionPool;
+    private final ExpiringCache<String, Boolean> catchAllVerdicts = new ExpiringCache<>(CATCH_ALL_CACHE_SIZE);
+
+    public SmtpMailboxValidator(SmtpConfig smtpConfig) {
+        this.smtpConfig = requireNonNull(smtpConfig, "SmtpConfig");
+        this.sessionPool = new SmtpSessionPool(smtpConfig);
+    }
+
+    @Override
+    public boolean[] isValid(List<ValidationContext> validationContexts, List<String> emails) throws InterruptedException {
+        logger.debug("Validating mailboxes for addresses: {}", emails);
+        boolean[] valid = new boolean[emails.size()];
+
+        // Addresses of a batch share the domain and so the mail servers
+        ValidationContext first = validationContexts.get(0);
+        List<String> mailServers = new ArrayList<>(first.mailServerIpv4Addresses());
+        mailServers.addAll(first.mailServerIpv6Addresses());
+
+        if (mailServers.isEmpty()) {
+            logger.debug("No IPv4 or IPv6 address found for mail server");
+            for (ValidationContext validationContext : validationContexts) {
+                validationContext.markMailboxValidationFailed("No IPv4 or IPv6 address found for mail server");
+            }
+            return valid;
+        }
+
+        // Recipients are sent as parsed, never as given, so nothing but the address reaches the session
+        List<String> recipients = new ArrayList<>(emails.size());
+        int[] indexes = new int[emails.size()];
+        for (int i = 0; i < emails.size(); i++) {
+            String recipient = recipient(validationContexts.get(i), emails.get(i));
+            if (recipient == null) {
+                validationContexts.get(i).markMailboxValidationFailed("Invalid email address");
+            } else {
+                indexes[recipients.size()] = i;
+                recipients.add(recipient);
+            }
+        }
+
+        // Skip the catch-all probe while an earlier verdict of this domain on this mail server is fresh
+        String catchAllKey = recipients.isEmpty() ? null : catchAllKey(mailServers.get(0), recipients.get(0));
+        Boolean cachedCatchAll = catchAllKey == null ? null : catchAllVerdicts.get(catchAllKey);
+
+        int chunkSize = smtpConfig.maxRecipientsPerTransaction();
+        boolean catchAll = cachedCatchAll != null && cachedCatchAll;
+        boolean probed = cachedCatchAll != null;
+        int from = 0;
+        while (from < recipients.size()) {
+            // The catch-all probe takes a slot of the first transaction
+            boolean probe = !probed;
+            probed = true;
+            int to = Math.min(from + chunkSize - (probe ? 1 : 0), recipients.size());
+
+            List<String> chunk = recipients.subList(from, to);
+            if (probe) {
+                chunk = new ArrayList<>(chunk);
+                chunk.add(catchAllProbe(recipients.get(0)));
+            }
+
+            SmtpTransaction transaction = transact(first, mailServers, chunk);
+            if (probe && transaction != null && transaction.mailFrom().isPositive()) {
+                catchAll = transaction.recipients().get(chunk.size() - 1).isPositive();
+                if (smtpConfig.catchAllTtl() > 0) {
+                    catchAllVerdicts.put(catchAllKey, catchAll, smtpConfig.catchAllTtl(), TimeUnit.SECONDS);
+                }
+            }
+
+            for (int i = from; i < to; i++) {
+                ValidationContext validationContext = validationContexts.get(indexes[i]);
+                if (transaction == null && first.deadlineExceeded()) {
+                    // Out of budget, not a verdict on the mailbox
+                    validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+                    valid[indexes[i]] = false;
+                } else {
+                    valid[indexes[i]] = apply(validationContext, transaction, i - from, catchAll);
+                }
+            }
+            from = to;
+        }
+
+        return valid;
+    }
+
+    /**
+     * Recipient on the domain of the given recipient which no one would ever use as a mailbox
+     */
+    static String catchAllProbe(String recipient) {
+        return "eev-" + Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE)
+                + recipient.substring(recipient.lastIndexOf('@'));
+    }
+
+    /**
+     * Key of the catch-all verdict of the recipient's domain on the mail server
+     */
+    private static String catchAllKey(String mailServer, String recipient) {
+        return mailServer + ' ' + recipient.substring(recipient.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Forward-path of the email address built from its parsed local part and domain
+     *
+     * @return Recipient or {@code null} if the address can not be sent to the mail server
+     */
+    static String recipient(ValidationContext validationContext, String email) {
+        if (validationContext.localPart() == null && !AddressValidator.parse(validationContext, email)) {
+            return null;
+        }
+
+        String recipient = validationContext.localPart() + '@' + validationContext.domain();
+        return SmtpSession.isValidRecipient(recipient) ? recipient : null;
+    }
+
+    /**
+     * Run a mail transaction for the recipients on the first mail server which completes one
+     *
+     * @return {@link SmtpTransaction} or {@code null} if no mail server completed it
+     */
+    private SmtpTransaction transact(ValidationContext validationContext, List<String> mailServers, List<String> recipients)
+            throws InterruptedException {
+        for (String mailServer : mailServers) {
+            InetSocketAddress address = new InetSocketAddress(mailServer, smtpConfig.port());
+
+            // A pooled session may have been dropped by the server while idle, retry once on a new one
+            for (int attempt = 0; attempt < 2; attempt++) {
+                // Every wait is sized from what is left of the deadline
+                int timeout = (int) validationContext.remainingMillis(smtpConfig.timeout());
+                if (timeout <= 0) {
+                    return null;
+                }
+
+                SmtpSession session;
+                try {
+                    session = sessionPool.acquire(address, timeout);
+                } catch (IOException e) {
+                    logger.debug("Failed to open SMTP session with {}", address, e);
+                    break;
+                }
+
+                boolean reused = session.transactions() > 0;
+                try {
+                    SmtpTransaction transaction = session.verify(recipients, timeout);
+                    sessionPool.release(session, true);
+                    return transaction;
+                } catch (IOException e) {
+                    logger.debug("SMTP session with {} failed", address, e);
+                    sessionPool.release(session, false);
+                    if (!reused) {
+                        break;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean apply(ValidationContext validationContext, SmtpTransaction transaction, int index, boolean catchAll) {
+        if (transaction == null || !transaction.mailFrom().isPositive()) {
+            validationContext.markMailboxInconclusive();
+            return true;
+        }
+
+        SmtpReply reply = transaction.recipients().get(index);
+        if (reply.isPositive()) {
+            if (catchAll) {
+                validationContext.markMailboxCatchAll();
+            } else {
+                validationContext.markMailboxValidationPassed();
+            }
+            return true;
+        } else if (reply.isPermanentFailure() && !reply.isPolicyFailure()) {
+            validationContext.markMailboxValidationFailed("Mailbox does not exist");
+            return false;
+        } else {
+            validationContext.markMailboxInconclusive();
+            return true;
+        }
+    }
+
+    @Override
+    public int cost() {
+        return COST_SMTP;
+    }
+
+    @Override
+    public void close() {
+        sessionPool.close();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.Validator;
+import com.shieldblaze.extendedemailvalidator.core.domain.DomainTrie;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Skips network validation for domains of trusted mailbox providers.
+ * <p>
+ * When the domain matches a trusted entry (see {@link DomainTrie} for the matching rules),
+ * the MX and mail server connection stages are marked as passed with trusted provenance
+ * and {@link com.shieldblaze.extendedemailvalidator.core.ValidatingChain} stops right away.
+ * Other domains pass through to the next validator untouched.
+ * <p>
+ * This validator should run after {@link DomainBlocklistValidator} and before {@link MXRecordValidator}.
+ */
+public class TrustedDomainValidator implements Validator {
+
+    private static final Logger logger = LogManager.getLogger();
+    private final DomainTrie trustedDomains;
+
+    /**
+     * Create a new {@link TrustedDomainValidator}
+     *
+     * @param trustedDomains Trusted domain entries, such as {@code gmail.com} or {@code outlook.*}
+     */
+    public TrustedDomainValidator(Collection<String> trustedDomains) {
+        this.trustedDomains = DomainTrie.of(requireNonNull(trustedDomains, "TrustedDomains"));
+    }
+
+    @Override
+    public boolean isValid(ValidationContext validationContext, String email) {
+        if (validationContext.domain() == null && !AddressValidator.parse(validationContext, email)) {
+            logger.debug("Address validation failed, address validation should be run first");
+            validationContext.markMxValidationFailed("Address validation should be run first");
+            return false;
+        }
+
+        if (trustedDomains.matches(validationContext.domain())) {
+            logger.debug("Domain is trusted, skipping network validation: {}", validationContext.domain());
+            validationContext.markTrusted();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isDomainScoped() {
+        return true;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidatingChainTest {
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    @Test
+    void propagateBudgetToValidators() throws Exception {
+        List<Long> remaining = new CopyOnWriteArrayList<>();
+        Check check = validationContext -> {
+            remaining.add(validationContext.remainingNanos());
+            return true;
+        };
+        ValidatingChain validatingChain = new ValidatingChain(stage("first", Validator.COST_LOCAL, check),
+                stage("second", Validator.COST_DNS, check));
+
+        ValidationContext validationContext = validatingChain.validate("alice@example.com", ValidationMode.DEEP, Duration.ofSeconds(1));
+        assertTrue(validationContext.hasDeadline());
+        assertEquals(2, remaining.size());
+        assertTrue(remaining.get(0) <= TimeUnit.SECONDS.toNanos(1));
+        assertTrue(remaining.get(1) <= remaining.get(0));
+        assertFalse(validationContext.inconclusive());
+    }
+
+    @Test
+    void stopWhenDeadlineExceeded() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(stage("slow", Validator.COST_LOCAL, validationContext -> {
+            Thread.sleep(60);
+            return true;
+        }), stage("skipped", Validator.COST_DNS, validationContext -> true));
+
+        ValidationContext validationContext = validatingChain.validate("alice@example.com", ValidationMode.DEEP, Duration.ofMillis(50));
+        assertEquals(List.of("slow"), calls);
+        assertTrue(validationContext.inconclusive());
+        assertEquals(ValidationContext.INCONCLUSIVE_DEADLINE, validationContext.inconclusiveReason());
+        assertNull(validationContext.failureReason());
+    }
+
+    @Test
+    void markTimeoutInconclusive() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(
+                stage("waiting", Validator.COST_DNS, validationContext -> validationContext.await(new CompletableFuture<Boolean>())),
+                stage("skipped", Validator.COST_CONNECT, validationContext -> true));
+
+        ValidationContext validationContext = validatingChain.validate("alice@example.com", ValidationMode.DEEP, Duration.ofMillis(50));
+        assertEquals(List.of("waiting"), calls);
+        assertTrue(validationContext.inconclusive());
+        assertEquals(ValidationContext.INCONCLUSIVE_DEADLINE, validationContext.inconclusiveReason());
+    }
+
+    @Test
+    void shareDeadlineInBatch() throws Exception {
+        List<Long> deadlines = new CopyOnWriteArrayList<>();
+        ValidatingChain validatingChain = new ValidatingChain(stage("deadline", Validator.COST_LOCAL, validationContext -> {
+            deadlines.add(validationContext.deadline());
+            return true;
+        }));
+
+        List<ValidationContext> validationContexts = validatingChain.validateAll(List.of("alice@example.com", "bob@example.org"),
+                ValidationMode.DEEP, Duration.ofSeconds(1));
+        assertEquals(2, validationContexts.size());
+        assertEquals(2, deadlines.size());
+        assertEquals(deadlines.get(0), deadlines.get(1));
+    }
+
+    @Test
+    void runWithoutDeadline() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(stage("unbounded", Validator.COST_LOCAL, validationContext -> {
+            assertFalse(validationContext.hasDeadline());
+            return true;
+        }));
+
+        assertFalse(validatingChain.validate("alice@example.com").inconclusive());
+        assertEquals(List.of("unbounded"), calls);
+    }
+
+    @Test
+    void runCheapValidatorsFirst() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(
+                stage("smtp", Validator.COST_SMTP, validationContext -> true),
+                stage("syntax", Validator.COST_LOCAL, validationContext -> true),
+                stage("connect", Validator.COST_CONNECT, validationContext -> true),
+                stage("mx", Validator.COST_DNS, validationContext -> true),
+                stage("blocklist", Validator.COST_LOCAL, validationContext -> true));
+
+        validatingChain.validate("alice@example.com");
+        assertEquals(List.of("syntax", "blocklist", "mx", "connect", "smtp"), calls);
+    }
+
+    @Test
+    void runOnlyValidatorsOfMode() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(
+                stage("smtp", Validator.COST_SMTP, validationContext -> true),
+                stage("mx", Validator.COST_DNS, validationContext -> true),
+                stage("syntax", Validator.COST_LOCAL, validationContext -> true));
+
+        validatingChain.validate("alice@example.com", ValidationMode.SYNTAX);
+        assertEquals(List.of("syntax"), calls);
+
+        calls.clear();
+        validatingChain.validateAsync("alice@example.com", ValidationMode.DNS).get();
+        assertEquals(List.of("syntax", "mx"), calls);
+    }
+
+    @Test
+    void stopAtFirstFailure() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(
+                stage("syntax", Validator.COST_LOCAL, validationContext -> {
+                    validationContext.markAddressValidationFailed("Invalid email address");
+                    return false;
+                }),
+                stage("mx", Validator.COST_DNS, validationContext -> true));
+
+        assertEquals("Invalid email address", validatingChain.validate("alice").failureReason());
+        assertEquals("Invalid email address", validatingChain.validateAsync("alice", ValidationMode.DEEP).get().failureReason());
+        assertEquals(List.of("syntax", "syntax"), calls);
+    }
+
+    @Test
+    void composeAsyncValidatorsWithoutBlocking() throws Exception {
+        CompletableFuture<Boolean> lookup = new CompletableFuture<>();
+        ValidatingChain validatingChain = new ValidatingChain(
+                asyncStage("mx", Validator.COST_DNS, validationContext -> lookup),
+                stage("syntax", Validator.COST_LOCAL, validationContext -> true),
+                asyncStage("connect", Validator.COST_CONNECT, validationContext -> CompletableFuture.completedFuture(true)));
+
+        CompletableFuture<ValidationContext> result = validatingChain.validateAsync("alice@example.com", ValidationMode.DEEP);
+        assertFalse(result.isDone());
+        assertEquals(List.of("syntax", "mx"), calls);
+
+        lookup.complete(true);
+        assertFalse(result.get().inconclusive());
+        assertEquals(List.of("syntax", "mx", "connect"), calls);
+    }
+
+    @Test
+    void runBlockingValidatorsOnExecutor() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        Executor executor = task -> {
+            executed.incrementAndGet();
+            Thread.startVirtualThread(task);
+        };
+        ValidatingChain validatingChain = new ValidatingChain(executor,
+                stage("syntax", Validator.COST_LOCAL, validationContext -> true),
+                stage("mx", Validator.COST_DNS, validationContext -> true),
+                asyncStage("connect", Validator.COST_CONNECT, validationContext -> CompletableFuture.completedFuture(true)));
+
+        validatingChain.validateAsync("alice@example.com", ValidationMode.DEEP).get();
+        assertEquals(List.of("syntax", "mx", "connect"), calls);
+        assertEquals(1, executed.get());
+    }
+
+    @Test
+    void failAsyncOnException() {
+        ValidatingChain validatingChain = new ValidatingChain(
+                asyncStage("mx", Validator.COST_DNS, validationContext -> CompletableFuture.failedFuture(new IllegalStateException("Lookup failed"))),
+                stage("connect", Validator.COST_CONNECT, validationContext -> true));
+
+        CompletableFuture<ValidationContext> result = validatingChain.validateAsync("alice@example.com", ValidationMode.DEEP);
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, result::get).getCause());
+        assertEquals(List.of("mx"), calls);
+    }
+
+    @Test
+    void boundAsyncValidatorsByDeadline() throws Exception {
+        ValidatingChain validatingChain = new ValidatingChain(
+                asyncStage("mx", Validator.COST_DNS, validationContext -> validationContext.within(new CompletableFuture<>())),
+                stage("connect", Validator.COST_CONNECT, validationContext -> true));
+
+        ValidationContext validationContext = validatingChain.validateAsync("alice@example.com", ValidationMode.DEEP, Duration.ofMillis(50)).get();
+        assertTrue(validationContext.inconclusive());
+        assertEquals(ValidationContext.INCONCLUSIVE_DEADLINE, validationContext.inconclusiveReason());
+        assertEquals(List.of("mx"), calls);
+    }
+
+    /**
+     * {@link Validator} which records its name when run
+     */
+    private Validator stage(String name, int cost, Check check) {
+        return new Validator() {
+            @Override
+            public boolean isValid(ValidationContext validationContext, String email) throws Exception {
+                calls.add(name);
+                return check.isValid(validationContext);
+            }
+
+            @Override
+            public int cost() {
+                return cost;
+            }
+        };
+    }
+
+    /**
+     * {@link AsyncValidator} which records its name when run
+     */
+    private AsyncValidator asyncStage(String name, int cost, Function<ValidationContext, CompletableFuture<Boolean>> check) {
+        return new AsyncValidator() {
+            @Override
+            public CompletionStage<Boolean> isValidAsync(ValidationContext validationContext, String email) {
+                calls.add(name);
+                return check.apply(validationContext);
+            }
+
+            @Override
+            public int cost() {
+                return cost;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        boolean isValid(ValidationContext validationContext) throws Exception;
+    }
+}
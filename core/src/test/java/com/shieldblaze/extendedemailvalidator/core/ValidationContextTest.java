@@ -0,0 +1,152 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidationContextTest {
+
+    @Test
+    void noDeadline() throws Exception {
+        ValidationContext validationContext = ValidationContext.create();
+
+        assertFalse(validationContext.hasDeadline());
+        assertFalse(validationContext.deadlineExceeded());
+        assertEquals(Long.MAX_VALUE, validationContext.remainingNanos());
+        assertEquals(500, validationContext.remainingMillis(500));
+        assertEquals("value", validationContext.await(CompletableFuture.completedFuture("value")));
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        assertSame(future, validationContext.within(future));
+    }
+
+    @Test
+    void capWaitsByDeadline() {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertTrue(validationContext.hasDeadline());
+        assertFalse(validationContext.deadlineExceeded());
+        assertTrue(validationContext.remainingMillis(10_000) <= 200);
+        assertEquals(10, validationContext.remainingMillis(10));
+    }
+
+    @Test
+    void exceedDeadline() {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() - 1);
+
+        assertTrue(validationContext.deadlineExceeded());
+        assertTrue(validationContext.remainingMillis(1000) <= 0);
+    }
+
+    @Test
+    void awaitUntilDeadline() {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50));
+
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> validationContext.await(new CompletableFuture<>()));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void awaitFailure() {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        CompletableFuture<String> future = CompletableFuture.failedFuture(new IllegalStateException("Lookup failed"));
+        assertInstanceOf(IllegalStateException.class, assertThrows(RuntimeException.class, () -> validationContext.await(future)).getCause());
+    }
+
+    @Test
+    void boundCopyByDeadline() throws Exception {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50));
+
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        CompletableFuture<String> bounded = validationContext.within(shared);
+        assertInstanceOf(TimeoutException.class, assertThrows(ExecutionException.class, bounded::get).getCause());
+
+        // The timeout never completes the future shared with other callers
+        assertFalse(shared.isDone());
+        assertThrows(TimeoutException.class, () -> validationContext.await(bounded));
+    }
+
+    @Test
+    void keepResultsWhenInconclusive() {
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.markAddressValidationPassed();
+        validationContext.markInconclusive(ValidationContext.INCONCLUSIVE_DEADLINE);
+
+        assertTrue(validationContext.addressValidationPassed());
+        assertTrue(validationContext.inconclusive());
+        assertEquals(ValidationContext.INCONCLUSIVE_DEADLINE, validationContext.inconclusiveReason());
+    }
+
+    @Test
+    void modifyMailServerAddresses() {
+        List<String> resolved = List.of("192.0.2.1");
+        ValidationContext validationContext = ValidationContext.create();
+        validationContext.mailServerAddresses(resolved, List.of());
+
+        // Validators may add and remove mail servers, the resolved list stays as it is
+        validationContext.mailServerIpv4Addresses().add("192.0.2.2");
+        validationContext.mailServerIpv4Addresses().remove("192.0.2.1");
+        validationContext.mailServerIpv6Addresses().add("2001:db8::1");
+        assertEquals(List.of("192.0.2.2"), validationContext.mailServerIpv4Addresses());
+        assertEquals(List.of("2001:db8::1"), validationContext.mailServerIpv6Addresses());
+        assertEquals(List.of("192.0.2.1"), resolved);
+    }
+
+    @Test
+    void addMailServerAddressesWithoutResolution() {
+        ValidationContext validationContext = ValidationContext.create();
+        assertTrue(validationContext.mailServerIpv4Addresses().isEmpty());
+
+        validationContext.mailServerIpv4Addresses().add("192.0.2.1");
+        assertEquals(List.of("192.0.2.1"), validationContext.mailServerIpv4Addresses());
+    }
+
+    @Test
+    void copyMailServerAddressesApart() {
+        ValidationContext first = ValidationContext.create();
+        first.mailServerAddresses(List.of("192.0.2.1"), List.of());
+        first.mailServerIpv4Addresses().add("192.0.2.2");
+
+        ValidationContext second = ValidationContext.create();
+        second.copyDomainResults(first);
+        second.mailServerIpv4Addresses().add("192.0.2.3");
+        first.mailServerIpv4Addresses().clear();
+
+        assertTrue(first.mailServerIpv4Addresses().isEmpty());
+        assertEquals(List.of("192.0.2.1", "192.0.2.2", "192.0.2.3"), second.mailServerIpv4Addresses());
+    }
+}
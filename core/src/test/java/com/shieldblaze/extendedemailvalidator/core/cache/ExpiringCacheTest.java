@@ -0,0 +1,114 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringCacheTest {
+
+    @Test
+    void getBeforeExpiry() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("example.com", "mx.example.com", 1, TimeUnit.MINUTES);
+        assertEquals("mx.example.com", cache.get("example.com"));
+        assertNull(cache.get("example.org"));
+    }
+
+    @Test
+    void expireEntry() throws InterruptedException {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("example.com", "mx.example.com", 50, TimeUnit.MILLISECONDS);
+        Thread.sleep(60);
+
+        assertNull(cache.get("example.com"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void skipExpiredEntriesWhenVisiting() throws InterruptedException {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("short", "a", 50, TimeUnit.MILLISECONDS);
+        cache.put("long", "b", 1, TimeUnit.MINUTES);
+        Thread.sleep(60);
+
+        Map<String, Long> visited = new HashMap<>();
+        cache.forEach((key, value, remainingNanos) -> visited.put(key, remainingNanos));
+        assertEquals(1, visited.size());
+        assertTrue(visited.get("long") > TimeUnit.SECONDS.toNanos(50));
+    }
+
+    @Test
+    void ignoreNonPositiveTtl() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("example.com", "mx.example.com", 0, TimeUnit.SECONDS);
+        assertNull(cache.get("example.com"));
+    }
+
+    @Test
+    void disableWithZeroSize() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(0);
+        cache.put("example.com", "mx.example.com", 1, TimeUnit.MINUTES);
+        assertNull(cache.get("example.com"));
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<>(-1));
+    }
+
+    @Test
+    void evictExpiredEntriesFirst() throws InterruptedException {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(4);
+        cache.put(1, 1, 50, TimeUnit.MILLISECONDS);
+        cache.put(2, 2, 50, TimeUnit.MILLISECONDS);
+        cache.put(3, 3, 1, TimeUnit.MINUTES);
+        cache.put(4, 4, 1, TimeUnit.MINUTES);
+        Thread.sleep(60);
+
+        cache.put(5, 5, 1, TimeUnit.MINUTES);
+        assertEquals(3, cache.size());
+        assertEquals(3, cache.get(3));
+        assertEquals(4, cache.get(4));
+        assertEquals(5, cache.get(5));
+    }
+
+    @Test
+    void evictWhenFull() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(32);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i, 1, TimeUnit.MINUTES);
+            assertTrue(cache.size() <= 32);
+        }
+        assertEquals(999, cache.get(999));
+    }
+
+    @Test
+    void replaceWithoutEviction() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(2);
+        cache.put(1, 1, 1, TimeUnit.MINUTES);
+        cache.put(2, 2, 1, TimeUnit.MINUTES);
+        cache.put(2, 20, 1, TimeUnit.MINUTES);
+
+        assertEquals(1, cache.get(1));
+        assertEquals(20, cache.get(2));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cache;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NegativeCacheTest {
+
+    @Test
+    void recordFailurePerType() {
+        NegativeCache negativeCache = new NegativeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000));
+        negativeCache.put("example.com", NegativeCache.FailureType.DNS, "No MX records", 60);
+
+        assertEquals("No MX records", negativeCache.failureReason("example.com", NegativeCache.FailureType.DNS));
+        assertNull(negativeCache.failureReason("example.com", NegativeCache.FailureType.CONNECTION));
+        assertNull(negativeCache.failureReason("example.org", NegativeCache.FailureType.DNS));
+    }
+
+    @Test
+    void clampToMaximumTtl() throws InterruptedException {
+        NegativeCache negativeCache = new NegativeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000, 100, 0, 1, 60, 300));
+        negativeCache.put("example.com", NegativeCache.FailureType.DNS, "No MX records", 3600);
+        assertEquals("No MX records", negativeCache.failureReason("example.com", NegativeCache.FailureType.DNS));
+
+        Thread.sleep(1100);
+        assertNull(negativeCache.failureReason("example.com", NegativeCache.FailureType.DNS));
+    }
+
+    @Test
+    void ignoreZeroTtl() {
+        NegativeCache negativeCache = new NegativeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000, 100, 0, 3600, 0, 300));
+        negativeCache.put("example.com", NegativeCache.FailureType.DNS, "Timeout", negativeCache.timeoutTtl());
+        assertNull(negativeCache.failureReason("example.com", NegativeCache.FailureType.DNS));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void coalesceConcurrentCallers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+        CompletableFuture<String> work = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.execute("example.com", () -> {
+            started.incrementAndGet();
+            return work;
+        });
+        CompletableFuture<String> second = singleFlight.execute("example.com", () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        });
+
+        assertEquals(1, started.get());
+        assertEquals(1, singleFlight.size());
+        assertFalse(first.isDone());
+
+        work.complete("first");
+        assertEquals("first", first.get());
+        assertEquals("first", second.get());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void keepKeysApart() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+        AtomicInteger started = new AtomicInteger();
+
+        singleFlight.execute("example.com", () -> {
+            started.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        singleFlight.execute("example.org", () -> {
+            started.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        assertEquals(2, started.get());
+        assertEquals(2, singleFlight.size());
+    }
+
+    @Test
+    void startFreshWorkAfterCompletion() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>("test");
+        AtomicInteger started = new AtomicInteger();
+
+        assertEquals(1, singleFlight.execute("example.com", () -> CompletableFuture.completedFuture(started.incrementAndGet())).get());
+        assertEquals(2, singleFlight.execute("example.com", () -> CompletableFuture.completedFuture(started.incrementAndGet())).get());
+    }
+
+    @Test
+    void shareFailure() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("example.com", () -> work);
+        CompletableFuture<String> second = singleFlight.execute("example.com", () -> work);
+        work.completeExceptionally(new IllegalStateException("Lookup failed"));
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, first::get).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, second::get).getCause());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void failWhenWorkThrows() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+
+        CompletableFuture<String> result = singleFlight.execute("example.com", () -> {
+            throw new IllegalStateException("Lookup failed");
+        });
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void cancelOnlyOwnCopy() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("example.com", () -> work);
+        CompletableFuture<String> second = singleFlight.execute("example.com", () -> work);
+        first.cancel(false);
+
+        work.complete("result");
+        assertTrue(first.isCancelled());
+        assertEquals("result", second.get());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkValidationJobTest {
+
+    private static final PrintStream REPORT = new PrintStream(OutputStream.nullOutputStream());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeResultsInInputOrder() throws Exception {
+        Path input = input(1000);
+        BulkValidationOptions options = options(input, 8, 10);
+
+        assertEquals(1000, new BulkValidationJob(chain(null), options, REPORT).run());
+        assertOutput(options.output(), 1000);
+        assertEquals(new Checkpoint(Files.size(input), Files.size(options.output()), 1000), Checkpoint.read(options.checkpoint()));
+    }
+
+    @Test
+    void resumeAfterKill() throws Exception {
+        Path input = input(1000);
+        BulkValidationOptions options = options(input, 4, 10);
+
+        // The batch of user495 fails, the job stops with the batches before it written and checkpointed
+        assertThrows(CompletionException.class, () -> new BulkValidationJob(chain("user495@example.com"), options, REPORT).run());
+        Checkpoint checkpoint = Checkpoint.read(options.checkpoint());
+        assertEquals(490, checkpoint.records());
+        assertOutput(options.output(), 490);
+
+        // Results written after the last checkpoint are dropped on resume, so is a torn last line
+        Files.writeString(options.output(), "{\"emailAddress\":\"user490@exa", StandardOpenOption.APPEND);
+
+        assertEquals(510, new BulkValidationJob(chain(null), options, REPORT).run());
+        assertOutput(options.output(), 1000);
+        assertEquals(1000, Checkpoint.read(options.checkpoint()).records());
+    }
+
+    @Test
+    void resumeFinishedJob() throws Exception {
+        Path input = input(100);
+        BulkValidationOptions options = options(input, 2, 10);
+        new BulkValidationJob(chain(null), options, REPORT).run();
+
+        assertEquals(0, new BulkValidationJob(chain(null), options, REPORT).run());
+        assertOutput(options.output(), 100);
+    }
+
+    @Test
+    void stopOnFailureWithFullQueue() throws Exception {
+        // One worker and batches of one record keep the queue full while the first batch fails
+        Path input = input(1000);
+        BulkValidationOptions options = options(input, 1, 1);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThrows(CompletionException.class, () -> new BulkValidationJob(chain("user0@example.com"), options, REPORT).run()));
+        assertEquals(Checkpoint.START, Checkpoint.read(options.checkpoint()));
+
+        // The reader blocked on the full queue is let go
+        for (int i = 0; i < 100 && readerRunning(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(readerRunning());
+    }
+
+    private static boolean readerRunning() {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("bulk-validation-reader"));
+    }
+
+    /**
+     * CSV input with a header and {@code user<i>@example.com} in the second column
+     */
+    private Path input(int records) throws IOException {
+        StringBuilder csv = new StringBuilder("name,emailAddress\n");
+        for (int i = 0; i < records; i++) {
+            csv.append("User ").append(i).append(",user").append(i).append("@example.com\n");
+        }
+        return Files.writeString(directory.resolve("input.csv"), csv);
+    }
+
+    private BulkValidationOptions options(Path input, int threads, int batchSize) {
+        Path output = directory.resolve("output.ndjson");
+        return new BulkValidationOptions(input, output, directory.resolve("output.ndjson.checkpoint"), InputFormat.CSV, 1,
+                "emailAddress", true, threads, batchSize, Duration.ZERO, Duration.ofHours(1), ValidationMode.DEEP);
+    }
+
+    /**
+     * {@link ValidatingChain} which passes every address but throws on {@code failing}
+     */
+    private static ValidatingChain chain(String failing) {
+        return new ValidatingChain((validationContext, email) -> {
+            if (email.equals(failing)) {
+                throw new IOException("Validation of " + email + " failed");
+            }
+            return true;
+        });
+    }
+
+    private static void assertOutput(Path output, int records) throws IOException {
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(records, lines.size());
+        for (int i = 0; i < records; i++) {
+            assertTrue(lines.get(i).startsWith("{\"emailAddress\":\"user" + i + "@example.com\","), lines.get(i));
+            assertTrue(lines.get(i).endsWith("}"), lines.get(i));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void startWithoutFile() throws IOException {
+        assertSame(Checkpoint.START, Checkpoint.read(directory.resolve("missing.checkpoint")));
+    }
+
+    @Test
+    void writeAndRead() throws IOException {
+        Path path = directory.resolve("output.checkpoint");
+        new Checkpoint(10, 20, 3).write(path);
+        assertEquals(new Checkpoint(10, 20, 3), Checkpoint.read(path));
+
+        // Replaced as a whole, the temporary file is gone
+        new Checkpoint(30, 40, 5).write(path);
+        assertEquals(new Checkpoint(30, 40, 5), Checkpoint.read(path));
+        assertFalse(Files.exists(directory.resolve("output.checkpoint.tmp")));
+    }
+
+    @Test
+    void rejectInvalidFile() throws IOException {
+        Path path = directory.resolve("output.checkpoint");
+        Files.writeString(path, "input-offset=10\noutput-offset=20\n");
+        assertThrows(IOException.class, () -> Checkpoint.read(path));
+
+        Files.writeString(path, "input-offset=10\noutput-offset=x\nrecords=3\n");
+        assertThrows(IOException.class, () -> Checkpoint.read(path));
+
+        Files.writeString(path, "input-offset=-1\noutput-offset=20\nrecords=3\n");
+        assertThrows(IOException.class, () -> Checkpoint.read(path));
+    }
+
+    @Test
+    void rejectNegativeOffsets() {
+        assertThrows(IllegalArgumentException.class, () -> new Checkpoint(-1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Checkpoint(0, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Checkpoint(0, 0, -1));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InputFormatTest {
+
+    @Test
+    void pickFormatFromFileName() {
+        assertEquals(InputFormat.NDJSON, InputFormat.of("emails.ndjson"));
+        assertEquals(InputFormat.NDJSON, InputFormat.of("emails.JSONL"));
+        assertEquals(InputFormat.NDJSON, InputFormat.of("emails.json"));
+        assertEquals(InputFormat.CSV, InputFormat.of("emails.csv"));
+        assertEquals(InputFormat.CSV, InputFormat.of("emails"));
+    }
+
+    @Test
+    void extractCsvColumn() {
+        assertEquals("a@example.com", csv("a@example.com", 0));
+        assertEquals("b@example.com", csv("1, b@example.com ,x", 1));
+        assertEquals("", csv("1,,x", 1));
+        assertEquals("", csv("1,", 1));
+        assertNull(csv("1,b@example.com", 2));
+    }
+
+    @Test
+    void extractQuotedCsvColumn() {
+        assertEquals("Doe, John", csv("\"Doe, John\",\"john@example.com\"", 0));
+        assertEquals("john@example.com", csv("\"Doe, John\",\"john@example.com\"", 1));
+        assertEquals("say \"hi\"", csv("\"say \"\"hi\"\"\",x", 0));
+        assertEquals("x", csv("\"say \"\"hi\"\"\",x", 1));
+
+        // Unterminated quotes run to the end of the line
+        assertEquals("a,b", csv("\"a,b", 0));
+        assertNull(csv("\"a,b", 1));
+    }
+
+    @Test
+    void extractNdjsonField() {
+        assertEquals("a@example.com", ndjson("{\"emailAddress\":\"a@example.com\"}"));
+        assertEquals("a@example.com", ndjson("{ \"id\" : 1 , \"emailAddress\" : \"a@example.com\" }"));
+
+        // Only top level fields count, keys inside values do not
+        assertEquals("top@example.com", ndjson("{\"user\":{\"emailAddress\":\"nested@example.com\"},\"emailAddress\":\"top@example.com\"}"));
+        assertEquals("top@example.com", ndjson("{\"note\":\"emailAddress\",\"emailAddress\":\"top@example.com\"}"));
+        assertEquals("top@example.com", ndjson("{\"tags\":[\"emailAddress\"],\"emailAddress\":\"top@example.com\"}"));
+    }
+
+    @Test
+    void unescapeNdjsonField() {
+        assertEquals("a\"b\\c/d", ndjson("{\"emailAddress\":\"a\\\"b\\\\c\\/d\"}"));
+        assertEquals("\b\f\n\r\t", ndjson("{\"emailAddress\":\"\\b\\f\\n\\r\\t\"}"));
+        assertEquals("Aé@example.com", ndjson("{\"emailAddress\":\"\\u0041\\u00e9@example.com\"}"));
+        assertEquals("top@example.com", ndjson("{\"e\\\"mailAddress\":\"x\",\"emailAddress\":\"top@example.com\"}"));
+    }
+
+    @Test
+    void skipMissingOrMalformedNdjsonField() {
+        assertNull(ndjson("{\"email\":\"a@example.com\"}"));
+        assertNull(ndjson("{\"emailAddress\":42}"));
+        assertNull(ndjson("{\"emailAddress\":null}"));
+        assertNull(ndjson("{\"emailAddress\":\"unterminated"));
+        assertNull(ndjson("{\"emailAddress\":\"\\u00\"}"));
+        assertNull(ndjson("{\"emailAddress\":\"\\uzzzz\"}"));
+        assertNull(ndjson(""));
+    }
+
+    private static String csv(String line, int column) {
+        return InputFormat.CSV.extract(line, column, "emailAddress");
+    }
+
+    private static String ndjson(String line) {
+        return InputFormat.NDJSON.extract(line, 0, "emailAddress");
+    }
+}
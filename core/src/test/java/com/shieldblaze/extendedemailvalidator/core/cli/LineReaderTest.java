@@ -0,0 +1,91 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LineReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readLinesAndOffsets() throws IOException {
+        Path path = write("a\r\nbb\n\nccc");
+        try (LineReader lineReader = new LineReader(path, 0)) {
+            assertEquals("a", lineReader.readLine());
+            assertEquals(3, lineReader.offset());
+            assertEquals("bb", lineReader.readLine());
+            assertEquals(6, lineReader.offset());
+            assertEquals("", lineReader.readLine());
+            assertEquals(7, lineReader.offset());
+
+            // The last line has no line terminator
+            assertEquals("ccc", lineReader.readLine());
+            assertEquals(10, lineReader.offset());
+            assertNull(lineReader.readLine());
+            assertNull(lineReader.readLine());
+        }
+    }
+
+    @Test
+    void resumeAtOffset() throws IOException {
+        Path path = write("a\nbb\nccc\n");
+        long offset;
+        try (LineReader lineReader = new LineReader(path, 0)) {
+            lineReader.readLine();
+            offset = lineReader.offset();
+        }
+
+        try (LineReader lineReader = new LineReader(path, offset)) {
+            assertEquals("bb", lineReader.readLine());
+            assertEquals("ccc", lineReader.readLine());
+            assertEquals(9, lineReader.offset());
+            assertNull(lineReader.readLine());
+        }
+    }
+
+    @Test
+    void readLinesAcrossChunks() throws IOException {
+        // A line of three chunks, then a two byte character split by the end of the fourth chunk
+        String longLine = "x".repeat(3 * 1024 * 1024);
+        String splitLine = "a".repeat(1024 * 1024 - 2) + "é";
+        Path path = write(longLine + '\n' + splitLine + "\nlast\n");
+
+        try (LineReader lineReader = new LineReader(path, 0)) {
+            assertEquals(longLine, lineReader.readLine());
+            assertEquals(longLine.length() + 1, lineReader.offset());
+            assertEquals(splitLine, lineReader.readLine());
+            assertEquals("last", lineReader.readLine());
+            assertEquals(Files.size(path), lineReader.offset());
+            assertNull(lineReader.readLine());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("input.csv"), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.snapshot.CacheSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionProberTest {
+
+    @TempDir
+    Path directory;
+
+    private ProbeEngine probeEngine;
+    private ServerSocket listener;
+    private ProbeCache probeCache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        probeEngine = new ProbeEngine();
+        listener = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        probeCache = new ProbeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        listener.close();
+        probeEngine.close();
+    }
+
+    @Test
+    void recordReachable() throws Exception {
+        ConnectionProber connectionProber = new ConnectionProber(probeEngine, probeCache, new int[]{listener.getLocalPort()}, 1000);
+
+        ConnectionProber.Result result = connectionProber.probe(List.of("127.0.0.1"), List.of()).get(5, TimeUnit.SECONDS);
+        assertEquals(listener.getLocalPort(), result.address().getPort());
+        assertTrue(probeCache.verdict("127.0.0.1"));
+        assertEquals(listener.getLocalPort(), probeCache.preferredPort("127.0.0.1"));
+    }
+
+    @Test
+    void answerReachableFromCache() throws Exception {
+        // Nothing listens on the port, so only the cache can answer
+        int port = closedPort();
+        probeCache.markReachable("127.0.0.1", port);
+        ConnectionProber connectionProber = new ConnectionProber(probeEngine, probeCache, new int[]{port}, 1000);
+
+        ConnectionProber.Result result = connectionProber.probe(List.of("127.0.0.1"), List.of()).get(5, TimeUnit.SECONDS);
+        assertEquals(port, result.address().getPort());
+        assertFalse(result.unreachable());
+    }
+
+    @Test
+    void probeReachableWithoutPort() throws Exception {
+        long now = System.currentTimeMillis();
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path, Map.of(), Map.of("127.0.0.1", new CacheSnapshot.ProbeEntry(true, now + 60_000, -1, 0)));
+        probeCache.warmStart(CacheSnapshot.open(path));
+        ConnectionProber connectionProber = new ConnectionProber(probeEngine, probeCache, new int[]{listener.getLocalPort()}, 1000);
+
+        ConnectionProber.Result result = connectionProber.probe(List.of("127.0.0.1"), List.of()).get(5, TimeUnit.SECONDS);
+        assertEquals(listener.getLocalPort(), result.address().getPort());
+        assertEquals(listener.getLocalPort(), probeCache.preferredPort("127.0.0.1"));
+    }
+
+    @Test
+    void recordUnreachable() throws Exception {
+        int port = closedPort();
+        ConnectionProber connectionProber = new ConnectionProber(probeEngine, probeCache, new int[]{port}, 1000);
+
+        ConnectionProber.Result result = connectionProber.probe(List.of("127.0.0.1"), List.of()).get(5, TimeUnit.SECONDS);
+        assertNull(result.address());
+        assertTrue(result.unreachable());
+        assertFalse(probeCache.verdict("127.0.0.1"));
+
+        // Answered from the cache without connecting again
+        assertTrue(connectionProber.probe(List.of("127.0.0.1"), List.of()).isDone());
+    }
+
+    @Test
+    void staggerGroupsByAttemptDelay() throws Exception {
+        FakeClock clock = new FakeClock();
+        try (ProbeEngine fakeClockEngine = clock.probeEngine();
+             FakeTcpListener blackhole = new FakeTcpListener(FakeTcpListener.Behavior.BLACKHOLE);
+             FakeTcpListener accepting = new FakeTcpListener(FakeTcpListener.Behavior.ACCEPT)) {
+
+            // The port which last accepted goes first, alone; it no longer answers
+            int[] ports = {blackhole.address().getPort(), accepting.address().getPort()};
+            preferPort("127.0.0.1", blackhole.address().getPort());
+            ConnectionProber connectionProber = new ConnectionProber(fakeClockEngine, probeCache, ports, 5000);
+
+            CompletableFuture<ConnectionProber.Result> result = connectionProber.probe(List.of("127.0.0.1"), List.of());
+            clock.settle();
+            assertEquals(1, pendingConnects(fakeClockEngine));
+
+            clock.advance(ConnectionProber.CONNECTION_ATTEMPT_DELAY_MILLIS - 1, TimeUnit.MILLISECONDS);
+            assertFalse(result.isDone());
+            assertEquals(1, pendingConnects(fakeClockEngine));
+
+            // The second group starts after the attempt delay and wins, the first connect is aborted
+            clock.advance(1, TimeUnit.MILLISECONDS);
+            assertEquals(accepting.address().getPort(), result.get(5, TimeUnit.SECONDS).address().getPort());
+            clock.settle();
+            assertEquals(0, pendingConnects(fakeClockEngine));
+            assertEquals(accepting.address().getPort(), probeCache.preferredPort("127.0.0.1"));
+        }
+    }
+
+    @Test
+    void startNextGroupOnceAllFailed() throws Exception {
+        FakeClock clock = new FakeClock();
+        try (ProbeEngine fakeClockEngine = clock.probeEngine();
+             FakeTcpListener refusing = new FakeTcpListener(FakeTcpListener.Behavior.REFUSE);
+             FakeTcpListener accepting = new FakeTcpListener(FakeTcpListener.Behavior.ACCEPT)) {
+
+            int[] ports = {refusing.address().getPort(), accepting.address().getPort()};
+            preferPort("127.0.0.1", refusing.address().getPort());
+            ConnectionProber connectionProber = new ConnectionProber(fakeClockEngine, probeCache, ports, 5000);
+
+            // The clock never moves, the refused connect starts the second group at once
+            ConnectionProber.Result result = connectionProber.probe(List.of("127.0.0.1"), List.of()).get(5, TimeUnit.SECONDS);
+            assertEquals(accepting.address().getPort(), result.address().getPort());
+        }
+    }
+
+    @Test
+    void abortConnectsAtDeadline() throws Exception {
+        FakeClock clock = new FakeClock();
+        try (ProbeEngine fakeClockEngine = clock.probeEngine();
+             FakeTcpListener blackhole = new FakeTcpListener(FakeTcpListener.Behavior.BLACKHOLE)) {
+
+            ConnectionProber connectionProber = new ConnectionProber(fakeClockEngine, probeCache, new int[]{blackhole.address().getPort()}, 1000);
+            CompletableFuture<ConnectionProber.Result> result = connectionProber.probe(List.of("127.0.0.1"), List.of());
+            clock.advance(999, TimeUnit.MILLISECONDS);
+            assertFalse(result.isDone());
+
+            // Connects still in flight at the deadline say nothing about the mail server
+            clock.advance(1, TimeUnit.MILLISECONDS);
+            assertEquals(new ConnectionProber.Result(null, false), result.get(5, TimeUnit.SECONDS));
+            clock.settle();
+            assertEquals(0, pendingConnects(fakeClockEngine));
+            assertNull(probeCache.verdict("127.0.0.1"));
+        }
+    }
+
+    /**
+     * Restore a preferred port without a verdict, as a snapshot of a previous run may
+     */
+    private void preferPort(String ipAddress, int port) throws IOException {
+        Path path = directory.resolve("ports.snapshot");
+        CacheSnapshot.write(path, Map.of(), Map.of(ipAddress, new CacheSnapshot.ProbeEntry(null, 0, port, System.currentTimeMillis() + 60_000)));
+        probeCache.warmStart(CacheSnapshot.open(path));
+    }
+
+    private static int pendingConnects(ProbeEngine probeEngine) throws Exception {
+        CompletableFuture<Integer> pendingConnects = new CompletableFuture<>();
+        probeEngine.execute(() -> pendingConnects.complete(probeEngine.pendingConnects()));
+        return pendingConnects.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Port on the loopback address nothing listens on
+     */
+    private static int closedPort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Clock of a {@link ProbeEngine} which only moves when told to
+ */
+final class FakeClock implements LongSupplier {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private ProbeEngine probeEngine;
+
+    /**
+     * Create a {@link ProbeEngine} driven by this clock
+     */
+    ProbeEngine probeEngine() throws Exception {
+        probeEngine = new ProbeEngine(this);
+        return probeEngine;
+    }
+
+    @Override
+    public long getAsLong() {
+        return nanos.get();
+    }
+
+    /**
+     * Move the clock forward and wait until the timers due by then have run
+     */
+    void advance(long duration, TimeUnit unit) throws Exception {
+        nanos.addAndGet(unit.toNanos(duration));
+
+        // Timers run in deadline order, so a timer due now runs after every timer due before.
+        // Timers due at the same time run in no particular order, the next round of tasks waits for them.
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        probeEngine.schedule(() -> barrier.complete(null), 0, TimeUnit.NANOSECONDS);
+        barrier.get(5, TimeUnit.SECONDS);
+        settle();
+    }
+
+    /**
+     * Wait until the event loop has run every task handed to it so far
+     */
+    void settle() throws Exception {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        probeEngine.execute(() -> barrier.complete(null));
+        barrier.get(5, TimeUnit.SECONDS);
+    }
+}
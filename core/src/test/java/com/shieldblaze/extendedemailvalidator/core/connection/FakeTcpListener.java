@@ -0,0 +1,125 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TCP listener on a loopback address which accepts, refuses or never answers connects.
+ * Any address in {@code 127.0.0.0/8} works on Linux, so listeners may sit in different subnets.
+ */
+final class FakeTcpListener implements Closeable {
+
+    enum Behavior {
+        /**
+         * Connects complete, the kernel accepts them into a large backlog
+         */
+        ACCEPT,
+
+        /**
+         * Nothing listens, connects are refused right away
+         */
+        REFUSE,
+
+        /**
+         * Connects never complete, the listen backlog is full so the kernel drops every SYN
+         */
+        BLACKHOLE
+    }
+
+    private final ServerSocketChannel serverSocketChannel;
+    private final List<SocketChannel> backlogFillers = new ArrayList<>();
+    private final InetSocketAddress address;
+
+    FakeTcpListener(Behavior behavior) throws IOException {
+        this("127.0.0.1", behavior);
+    }
+
+    FakeTcpListener(String ipAddress, Behavior behavior) throws IOException {
+        InetAddress inetAddress = InetAddress.getByName(ipAddress);
+        switch (behavior) {
+            case REFUSE -> {
+                // Reserve a port, then let go of it so nothing listens there
+                try (ServerSocket serverSocket = new ServerSocket(0, 1, inetAddress)) {
+                    address = new InetSocketAddress(inetAddress, serverSocket.getLocalPort());
+                }
+                serverSocketChannel = null;
+            }
+            case BLACKHOLE -> {
+                serverSocketChannel = ServerSocketChannel.open();
+                serverSocketChannel.bind(new InetSocketAddress(inetAddress, 0), 1);
+                address = new InetSocketAddress(inetAddress, serverSocketChannel.socket().getLocalPort());
+                fillBacklog();
+            }
+            default -> {
+                serverSocketChannel = ServerSocketChannel.open();
+                serverSocketChannel.bind(new InetSocketAddress(inetAddress, 0), 1024);
+                address = new InetSocketAddress(inetAddress, serverSocketChannel.socket().getLocalPort());
+            }
+        }
+    }
+
+    InetSocketAddress address() {
+        return address;
+    }
+
+    private void fillBacklog() throws IOException {
+        try (Selector selector = Selector.open()) {
+            // Connect until one does not complete, the accept queue is then full
+            for (int i = 0; i < 64; i++) {
+                SocketChannel socketChannel = SocketChannel.open();
+                socketChannel.configureBlocking(false);
+                if (socketChannel.connect(address)) {
+                    backlogFillers.add(socketChannel);
+                    continue;
+                }
+
+                SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT);
+                if (selector.select(200) > 0 && socketChannel.finishConnect()) {
+                    selectionKey.cancel();
+                    selector.selectNow();
+                    backlogFillers.add(socketChannel);
+                    continue;
+                }
+
+                socketChannel.close();
+                return;
+            }
+        }
+        throw new IOException("Listen backlog did not fill up, SYNs to " + address + " would not be dropped");
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SocketChannel socketChannel : backlogFillers) {
+            socketChannel.close();
+        }
+        if (serverSocketChannel != null) {
+            serverSocketChannel.close();
+        }
+    }
+}
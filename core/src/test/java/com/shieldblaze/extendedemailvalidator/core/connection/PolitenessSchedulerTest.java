@@ -0,0 +1,224 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolitenessSchedulerTest {
+
+    private final FakeClock clock = new FakeClock();
+    private final List<FakeTcpListener> listeners = new ArrayList<>();
+    private ProbeEngine probeEngine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        probeEngine = clock.probeEngine();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        probeEngine.close();
+        for (FakeTcpListener listener : listeners) {
+            listener.close();
+        }
+    }
+
+    @Test
+    void waitForTokenOfHost() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(0, 1, 0, 0));
+        FakeTcpListener listener = listener("127.0.0.1", FakeTcpListener.Behavior.ACCEPT);
+
+        assertTrue(scheduler.connect(listener.address()).get(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = scheduler.connect(listener.address());
+        assertWaiting(second);
+
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        assertWaiting(second);
+
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitForTokenOfSubnet() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(0, 0, 0, 1));
+        FakeTcpListener first = listener("127.0.0.1", FakeTcpListener.Behavior.ACCEPT);
+        FakeTcpListener sameSubnet = listener("127.0.0.2", FakeTcpListener.Behavior.ACCEPT);
+        FakeTcpListener otherSubnet = listener("127.0.1.1", FakeTcpListener.Behavior.ACCEPT);
+
+        assertTrue(scheduler.connect(first.address()).get(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> waiting = scheduler.connect(sameSubnet.address());
+        assertTrue(scheduler.connect(otherSubnet.address()).get(5, TimeUnit.SECONDS));
+        assertWaiting(waiting);
+
+        clock.advance(1, TimeUnit.SECONDS);
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void limitConcurrencyOfHost() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(1, 0, 0, 0));
+        FakeTcpListener blackhole = listener("127.0.0.1", FakeTcpListener.Behavior.BLACKHOLE);
+        FakeTcpListener accept = listener("127.0.0.1", FakeTcpListener.Behavior.ACCEPT);
+
+        CompletableFuture<Boolean> inFlight = scheduler.connect(blackhole.address());
+        CompletableFuture<Boolean> waiting = scheduler.connect(accept.address());
+        assertWaiting(waiting);
+        assertFalse(inFlight.isDone());
+
+        // Aborting the connect in flight makes room for the waiting one
+        inFlight.cancel(false);
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void limitConcurrencyOfSubnet() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(0, 0, 1, 0));
+        FakeTcpListener blackhole = listener("127.0.0.1", FakeTcpListener.Behavior.BLACKHOLE);
+        FakeTcpListener sameSubnet = listener("127.0.0.2", FakeTcpListener.Behavior.ACCEPT);
+        FakeTcpListener otherSubnet = listener("127.0.1.1", FakeTcpListener.Behavior.ACCEPT);
+
+        CompletableFuture<Boolean> inFlight = scheduler.connect(blackhole.address());
+        CompletableFuture<Boolean> waiting = scheduler.connect(sameSubnet.address());
+        assertTrue(scheduler.connect(otherSubnet.address()).get(5, TimeUnit.SECONDS));
+        assertWaiting(waiting);
+
+        inFlight.cancel(false);
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deferConnectsBeyondMaxWaiting() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(1, 0, 0, 0, 2));
+        FakeTcpListener blackhole = listener("127.0.0.1", FakeTcpListener.Behavior.BLACKHOLE);
+        FakeTcpListener accept = listener("127.0.0.1", FakeTcpListener.Behavior.ACCEPT);
+
+        CompletableFuture<Boolean> inFlight = scheduler.connect(blackhole.address());
+        CompletableFuture<Boolean> first = scheduler.connect(accept.address());
+        CompletableFuture<Boolean> second = scheduler.connect(accept.address());
+        CompletableFuture<Boolean> rejected = scheduler.connect(accept.address());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+
+        // A cancelled connect gives up its place in the queue
+        second.cancel(false);
+        CompletableFuture<Boolean> third = scheduler.connect(accept.address());
+        assertWaiting(third);
+
+        inFlight.cancel(false);
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(third.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void sweepIdleHostsAndSubnets() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(0, 1, 0, 1));
+        FakeTcpListener first = listener("127.0.0.1", FakeTcpListener.Behavior.ACCEPT);
+        FakeTcpListener second = listener("127.0.1.1", FakeTcpListener.Behavior.ACCEPT);
+
+        assertTrue(scheduler.connect(first.address()).get(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.connect(second.address()).get(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> waiting = scheduler.connect(first.address());
+        assertWaiting(waiting);
+        assertEquals(List.of(2, 2), counts(scheduler));
+
+        // The waiting connect goes out after a second, afterwards both hosts are idle
+        clock.advance(1, TimeUnit.SECONDS);
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        clock.advance(59, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 0), counts(scheduler));
+    }
+
+    @Test
+    void keepBusyHostsWhenSweeping() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(1, 0, 0, 0));
+        FakeTcpListener blackhole = listener("127.0.0.1", FakeTcpListener.Behavior.BLACKHOLE);
+
+        CompletableFuture<Boolean> inFlight = scheduler.connect(blackhole.address());
+        clock.advance(60, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 1), counts(scheduler));
+        assertFalse(inFlight.isDone());
+    }
+
+    @Test
+    void groupIpv4By24AndIpv6By64() throws Exception {
+        assertEquals(subnet("192.0.2.1"), subnet("192.0.2.254"));
+        assertNotEquals(subnet("192.0.2.1"), subnet("192.0.3.1"));
+        assertEquals(subnet("2001:db8::1"), subnet("2001:db8::ffff:ffff:ffff:1"));
+        assertNotEquals(subnet("2001:db8::1"), subnet("2001:db8:0:1::1"));
+        assertNotEquals(subnet("0.0.0.1"), subnet("::1"));
+    }
+
+    @Test
+    void failWaitingConnectsOnClose() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(probeEngine, new PolitenessConfig(0, 1, 0, 0));
+        FakeTcpListener listener = listener("127.0.0.1", FakeTcpListener.Behavior.ACCEPT);
+
+        assertTrue(scheduler.connect(listener.address()).get(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> waiting = scheduler.connect(listener.address());
+        assertWaiting(waiting);
+
+        probeEngine.close();
+        assertFalse(waiting.get(5, TimeUnit.SECONDS));
+        assertFalse(scheduler.connect(listener.address()).get(5, TimeUnit.SECONDS));
+    }
+
+    private FakeTcpListener listener(String ipAddress, FakeTcpListener.Behavior behavior) throws IOException {
+        FakeTcpListener listener = new FakeTcpListener(ipAddress, behavior);
+        listeners.add(listener);
+        return listener;
+    }
+
+    /**
+     * Check that the connect is still waiting once the event loop had a chance to dispatch it
+     */
+    private void assertWaiting(CompletableFuture<Boolean> future) throws Exception {
+        clock.settle();
+        Thread.sleep(50);
+        clock.settle();
+        assertFalse(future.isDone());
+    }
+
+    private List<Integer> counts(PolitenessScheduler scheduler) throws Exception {
+        CompletableFuture<List<Integer>> counts = new CompletableFuture<>();
+        probeEngine.execute(() -> counts.complete(List.of(scheduler.hostCount(), scheduler.subnetCount())));
+        return counts.get(5, TimeUnit.SECONDS);
+    }
+
+    private static PolitenessScheduler.Subnet subnet(String ipAddress) throws IOException {
+        return PolitenessScheduler.Subnet.of(InetAddress.getByName(ipAddress));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.snapshot.CacheSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rememberReachableWithPort() {
+        ProbeCache probeCache = new ProbeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000));
+        assertNull(probeCache.verdict("192.0.2.1"));
+        assertEquals(-1, probeCache.preferredPort("192.0.2.1"));
+
+        probeCache.markReachable("192.0.2.1", 587);
+        assertTrue(probeCache.verdict("192.0.2.1"));
+        assertEquals(587, probeCache.preferredPort("192.0.2.1"));
+    }
+
+    @Test
+    void keepPortAfterUnreachable() {
+        ProbeCache probeCache = new ProbeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000));
+        probeCache.markReachable("192.0.2.1", 587);
+        probeCache.markUnreachable("192.0.2.1");
+
+        assertFalse(probeCache.verdict("192.0.2.1"));
+        assertEquals(587, probeCache.preferredPort("192.0.2.1"));
+    }
+
+    @Test
+    void keepPortAsLongAsVerdict() throws InterruptedException {
+        // Probe cache TTL above the maximum DNS cache TTL
+        ProbeCache probeCache = new ProbeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000, 100, 0, 1, 60, 3));
+        probeCache.markReachable("192.0.2.1", 587);
+
+        Thread.sleep(1100);
+        assertTrue(probeCache.verdict("192.0.2.1"));
+        assertEquals(587, probeCache.preferredPort("192.0.2.1"));
+    }
+
+    @Test
+    void warmVerdictWithoutPort() throws IOException {
+        long now = System.currentTimeMillis();
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path, Map.of(), Map.of(
+                "192.0.2.1", new CacheSnapshot.ProbeEntry(true, now + 60_000, -1, 0),
+                "192.0.2.2", new CacheSnapshot.ProbeEntry(null, 0, 25, now + 60_000)));
+
+        ProbeCache probeCache = new ProbeCache(new NetworkConfig(List.of("127.0.0.1"), 1000, 1000));
+        probeCache.warmStart(CacheSnapshot.open(path));
+
+        assertTrue(probeCache.verdict("192.0.2.1"));
+        assertEquals(-1, probeCache.preferredPort("192.0.2.1"));
+        assertNull(probeCache.verdict("192.0.2.2"));
+        assertEquals(25, probeCache.preferredPort("192.0.2.2"));
+    }
+}
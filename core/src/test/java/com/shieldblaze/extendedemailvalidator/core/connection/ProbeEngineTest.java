@@ -0,0 +1,152 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.connection;
+
+import com.shieldblaze.extendedemailvalidator.core.connection.FakeTcpListener.Behavior;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeEngineTest {
+
+    private final List<FakeTcpListener> listeners = new ArrayList<>();
+    private final FakeClock clock = new FakeClock();
+    private ProbeEngine probeEngine;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (probeEngine != null) {
+            probeEngine.close();
+        }
+        for (FakeTcpListener listener : listeners) {
+            listener.close();
+        }
+    }
+
+    @Test
+    void connectToAcceptingListener() throws Exception {
+        probeEngine = clock.probeEngine();
+        assertTrue(probeEngine.connect(listener(Behavior.ACCEPT).address()).get(5, TimeUnit.SECONDS));
+        assertEquals(0, pendingConnects());
+    }
+
+    @Test
+    void failOnRefusingListener() throws Exception {
+        probeEngine = clock.probeEngine();
+        assertFalse(probeEngine.connect(listener(Behavior.REFUSE).address()).get(5, TimeUnit.SECONDS));
+        assertEquals(0, pendingConnects());
+    }
+
+    @Test
+    void abortCancelledConnect() throws Exception {
+        probeEngine = clock.probeEngine();
+        CompletableFuture<Boolean> connect = probeEngine.connect(listener(Behavior.BLACKHOLE).address());
+        clock.settle();
+        assertEquals(1, pendingConnects());
+        assertFalse(connect.isDone());
+
+        // Cancelling closes the channel on the event loop
+        connect.cancel(false);
+        clock.settle();
+        assertEquals(0, pendingConnects());
+
+        // Another connect on the same engine still works
+        assertTrue(probeEngine.connect(listener(Behavior.ACCEPT).address()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runTimersInDeadlineOrder() throws Exception {
+        probeEngine = clock.probeEngine();
+        List<String> fired = new CopyOnWriteArrayList<>();
+        probeEngine.schedule(() -> fired.add("30"), 30, TimeUnit.MILLISECONDS);
+        probeEngine.schedule(() -> fired.add("10"), 10, TimeUnit.MILLISECONDS);
+        probeEngine.schedule(() -> fired.add("20"), 20, TimeUnit.MILLISECONDS);
+        probeEngine.schedule(() -> fired.add("0"), 0, TimeUnit.MILLISECONDS);
+
+        clock.advance(0, TimeUnit.MILLISECONDS);
+        assertEquals(List.of("0"), fired);
+        clock.advance(9, TimeUnit.MILLISECONDS);
+        assertEquals(List.of("0"), fired);
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertEquals(List.of("0", "10"), fired);
+
+        // Timers due by the same advance run in deadline order
+        clock.advance(20, TimeUnit.MILLISECONDS);
+        assertEquals(List.of("0", "10", "20", "30"), fired);
+    }
+
+    @Test
+    void runTasksOnEventLoop() throws Exception {
+        probeEngine = clock.probeEngine();
+        CompletableFuture<String> task = new CompletableFuture<>();
+        CompletableFuture<String> timer = new CompletableFuture<>();
+        probeEngine.execute(() -> {
+            throw new IllegalStateException("Task failed");
+        });
+        probeEngine.execute(() -> task.complete(Thread.currentThread().getName()));
+        probeEngine.schedule(() -> timer.complete(Thread.currentThread().getName()), 0, TimeUnit.MILLISECONDS);
+
+        // A failing task does not stop the event loop
+        assertEquals("probe-engine", task.get(5, TimeUnit.SECONDS));
+        assertEquals("probe-engine", timer.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void firePendingTimersOnClose() throws Exception {
+        probeEngine = clock.probeEngine();
+        CompletableFuture<Boolean> connect = probeEngine.connect(listener(Behavior.BLACKHOLE).address());
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        CompletableFuture<Void> rescheduled = new CompletableFuture<>();
+        probeEngine.schedule(() -> {
+            pending.complete(null);
+            probeEngine.schedule(() -> rescheduled.complete(null), 0, TimeUnit.MILLISECONDS);
+        }, 1, TimeUnit.HOURS);
+        clock.settle();
+
+        // The timer due in an hour runs once, early, and the timer it schedules is dropped
+        probeEngine.close();
+        pending.get(5, TimeUnit.SECONDS);
+        assertFalse(connect.get(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertFalse(rescheduled.isDone());
+
+        assertFalse(probeEngine.isRunning());
+        assertFalse(probeEngine.connect(listener(Behavior.ACCEPT).address()).get(5, TimeUnit.SECONDS));
+    }
+
+    private FakeTcpListener listener(Behavior behavior) throws IOException {
+        FakeTcpListener listener = new FakeTcpListener(behavior);
+        listeners.add(listener);
+        return listener;
+    }
+
+    private int pendingConnects() throws Exception {
+        CompletableFuture<Integer> pendingConnects = new CompletableFuture<>();
+        probeEngine.execute(() -> pendingConnects.complete(probeEngine.pendingConnects()));
+        return pendingConnects.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import com.shieldblaze.extendedemailvalidator.core.dns.FakeDnsUpstream.Behavior;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveResolverTest {
+
+    private static final int TIMEOUT = 2000;
+
+    private final List<FakeDnsUpstream> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(FakeDnsUpstream::close);
+    }
+
+    @Test
+    void preferFasterServer() throws Exception {
+        FakeDnsUpstream slow = server(Behavior.ANSWER);
+        slow.responseDelay(200);
+        FakeDnsUpstream fast = server(Behavior.ANSWER);
+        AdaptiveResolver resolver = resolver(slow, fast);
+
+        // Both start unscored, the first one listed is tried once and loses to the faster one after.
+        // The slow one may still get queries hedged from the fast one.
+        for (int i = 0; i < 20; i++) {
+            assertAnswered(resolver.send(query()).get());
+        }
+        assertEquals(19, fast.queries());
+    }
+
+    @Test
+    void hedgeAfterHalfTimeoutUntilEnoughSamples() throws Exception {
+        FakeDnsUpstream blackhole = server(Behavior.BLACKHOLE);
+        FakeDnsUpstream healthy = server(Behavior.ANSWER);
+        AdaptiveResolver resolver = resolver(blackhole, healthy);
+
+        long start = System.nanoTime();
+        assertAnswered(resolver.send(query()).get());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= TIMEOUT / 2 - 50 && elapsedMillis < TIMEOUT, "Answered after " + elapsedMillis + " ms");
+        assertEquals(1, blackhole.queries());
+        assertEquals(1, healthy.queries());
+    }
+
+    @Test
+    void hedgeAfterPercentileOfLatencies() throws Exception {
+        FakeDnsUpstream primary = server(Behavior.ANSWER);
+        FakeDnsUpstream secondary = server(Behavior.ANSWER);
+        secondary.responseDelay(200);
+        AdaptiveResolver resolver = resolver(primary, secondary);
+
+        // The primary learns its latencies from 32 answers, the slow secondary only gets the first
+        // query after the primary and queries hedged once the percentile is known
+        for (int i = 0; i < 33; i++) {
+            resolver.send(query()).get();
+        }
+
+        primary.behavior(Behavior.BLACKHOLE);
+        secondary.responseDelay(0);
+        long start = System.nanoTime();
+        assertAnswered(resolver.send(query()).get());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Hedged after the 95th percentile of loopback latencies, long before half the timeout
+        assertTrue(elapsedMillis < TIMEOUT / 4, "Answered after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void failOverAtOnceOnServerFailure() throws Exception {
+        FakeDnsUpstream failing = server(Behavior.SERVFAIL);
+        FakeDnsUpstream healthy = server(Behavior.ANSWER);
+        AdaptiveResolver resolver = resolver(failing, healthy);
+
+        long start = System.nanoTime();
+        assertAnswered(resolver.send(query()).get());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < TIMEOUT / 4, "Answered after " + elapsedMillis + " ms");
+        assertEquals(1, failing.queries());
+        assertEquals(1, healthy.queries());
+    }
+
+    @Test
+    void ejectServersFailingInARow() throws Exception {
+        FakeDnsUpstream first = server(Behavior.SERVFAIL);
+        FakeDnsUpstream second = server(Behavior.SERVFAIL);
+        AdaptiveResolver resolver = resolver(first, second);
+
+        // Every query fails on both servers and completes with the last server failure
+        for (int i = 1; i < DnsUpstream.FAILURE_THRESHOLD; i++) {
+            assertEquals(Rcode.SERVFAIL, resolver.send(query()).get().getRcode());
+        }
+        assertEquals(List.of(false, false), ejected(resolver));
+
+        assertEquals(Rcode.SERVFAIL, resolver.send(query()).get().getRcode());
+        assertEquals(List.of(true, true), ejected(resolver));
+
+        // With every server ejected, the one coming back first gets a trial query and fails again,
+        // then the other one answers and is let back in
+        second.behavior(Behavior.ANSWER);
+        assertAnswered(resolver.send(query()).get());
+        assertEquals(List.of(true, false), ejected(resolver));
+
+        int firstQueries = first.queries();
+        for (int i = 0; i < 10; i++) {
+            assertAnswered(resolver.send(query()).get());
+        }
+        assertEquals(firstQueries, first.queries());
+    }
+
+    @Test
+    void retrySingleServer() throws Exception {
+        FakeDnsUpstream lossy = server(Behavior.DROP_FIRST);
+        AdaptiveResolver resolver = resolver(lossy);
+
+        long start = System.nanoTime();
+        assertAnswered(resolver.send(query()).get());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // The lost query is sent again after half the timeout instead of timing out
+        assertTrue(elapsedMillis < TIMEOUT, "Answered after " + elapsedMillis + " ms");
+        assertEquals(2, lossy.queries());
+    }
+
+    private FakeDnsUpstream server(Behavior behavior) throws IOException {
+        FakeDnsUpstream server = new FakeDnsUpstream(behavior);
+        servers.add(server);
+        return server;
+    }
+
+    private static AdaptiveResolver resolver(FakeDnsUpstream... servers) throws IOException {
+        return new AdaptiveResolver(Arrays.stream(servers).map(FakeDnsUpstream::address).toList(), TIMEOUT);
+    }
+
+    private static List<Boolean> ejected(AdaptiveResolver resolver) {
+        return resolver.upstreams().stream().map(upstream -> upstream.contains("ejected=true")).toList();
+    }
+
+    private static Message query() {
+        return Message.newQuery(Record.newRecord(Name.fromConstantString("example.com."), Type.A, DClass.IN));
+    }
+
+    private static void assertAnswered(Message response) {
+        assertEquals(Rcode.NOERROR, response.getRcode());
+        assertEquals(1, response.getSection(Section.ANSWER).size());
+    }
+}
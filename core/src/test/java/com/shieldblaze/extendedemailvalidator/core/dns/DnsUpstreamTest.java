@@ -0,0 +1,118 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DnsUpstreamTest {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void averageLatencyAndErrorRate() {
+        DnsUpstream upstream = new DnsUpstream("127.0.0.1", null, TIMEOUT_NANOS);
+        assertEquals(0, upstream.score(TIMEOUT_NANOS));
+
+        // The first sample is taken as is, later ones move the average by ALPHA
+        upstream.success(100);
+        assertEquals(100, upstream.score(TIMEOUT_NANOS), 1e-6);
+        upstream.success(200);
+        assertEquals(120, upstream.score(TIMEOUT_NANOS), 1e-6);
+
+        upstream.failure(0);
+        assertEquals(120 + DnsUpstream.ALPHA * TIMEOUT_NANOS, upstream.score(TIMEOUT_NANOS), 1e-6);
+        upstream.success(120);
+        assertEquals(120 + (1 - DnsUpstream.ALPHA) * DnsUpstream.ALPHA * TIMEOUT_NANOS, upstream.score(TIMEOUT_NANOS), 1e-6);
+    }
+
+    @Test
+    void hedgeAfterHalfTimeoutUntilEnoughSamples() {
+        DnsUpstream upstream = new DnsUpstream("127.0.0.1", null, TIMEOUT_NANOS);
+        assertEquals(TIMEOUT_NANOS / 2, upstream.hedgeDelay(TIMEOUT_NANOS));
+
+        for (int i = 1; i < 16; i++) {
+            upstream.success(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(TIMEOUT_NANOS / 2, upstream.hedgeDelay(TIMEOUT_NANOS));
+
+        // 16 samples of 1 to 16 ms, the 95th percentile is the second slowest
+        upstream.success(TimeUnit.MILLISECONDS.toNanos(16));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(15), upstream.hedgeDelay(TIMEOUT_NANOS));
+    }
+
+    @Test
+    void capHedgeDelayAtTimeout() {
+        DnsUpstream upstream = new DnsUpstream("127.0.0.1", null, TIMEOUT_NANOS);
+        for (int i = 0; i < 16; i++) {
+            upstream.success(TimeUnit.MILLISECONDS.toNanos(800));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(800), upstream.hedgeDelay(TIMEOUT_NANOS));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), upstream.hedgeDelay(TimeUnit.MILLISECONDS.toNanos(500)));
+    }
+
+    @Test
+    void ejectAfterConsecutiveFailures() {
+        DnsUpstream upstream = new DnsUpstream("127.0.0.1", null, TIMEOUT_NANOS);
+        long now = 1000;
+        for (int i = 1; i < DnsUpstream.FAILURE_THRESHOLD; i++) {
+            assertFalse(upstream.failure(now));
+            assertTrue(upstream.available(now));
+        }
+
+        assertTrue(upstream.failure(now));
+        assertFalse(upstream.available(now));
+        assertFalse(upstream.available(now + DnsUpstream.EJECTION_NANOS - 1));
+        assertEquals(now + DnsUpstream.EJECTION_NANOS, upstream.ejectedUntil());
+
+        // After 30 seconds a trial query is let through
+        assertTrue(upstream.available(now + DnsUpstream.EJECTION_NANOS));
+    }
+
+    @Test
+    void ejectAgainWhenTrialFails() {
+        DnsUpstream upstream = new DnsUpstream("127.0.0.1", null, TIMEOUT_NANOS);
+        for (int i = 0; i < DnsUpstream.FAILURE_THRESHOLD; i++) {
+            upstream.failure(0);
+        }
+
+        assertTrue(upstream.failure(DnsUpstream.EJECTION_NANOS));
+        assertFalse(upstream.available(DnsUpstream.EJECTION_NANOS));
+        assertTrue(upstream.available(2 * DnsUpstream.EJECTION_NANOS));
+    }
+
+    @Test
+    void closeCircuitBreakerOnSuccess() {
+        DnsUpstream upstream = new DnsUpstream("127.0.0.1", null, TIMEOUT_NANOS);
+        for (int i = 0; i < DnsUpstream.FAILURE_THRESHOLD; i++) {
+            upstream.failure(0);
+        }
+        upstream.success(100);
+        assertTrue(upstream.available(0));
+
+        // The count of consecutive failures starts over
+        for (int i = 1; i < DnsUpstream.FAILURE_THRESHOLD; i++) {
+            assertFalse(upstream.failure(0));
+        }
+        assertTrue(upstream.available(0));
+    }
+}
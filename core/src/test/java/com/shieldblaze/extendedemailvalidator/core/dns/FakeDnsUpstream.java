@@ -0,0 +1,169 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DNS server on the loopback address which answers every query with {@code 127.0.0.1}, fails it or
+ * never answers it. The behavior and the response delay can be switched while the server runs.
+ */
+final class FakeDnsUpstream implements Closeable {
+
+    enum Behavior {
+        /**
+         * Queries are answered with an A record
+         */
+        ANSWER,
+
+        /**
+         * Queries are answered with SERVFAIL
+         */
+        SERVFAIL,
+
+        /**
+         * Queries are dropped, the client times out
+         */
+        BLACKHOLE,
+
+        /**
+         * The first copy of every query is dropped, copies sent again are answered
+         */
+        DROP_FIRST
+    }
+
+    private final DatagramSocket socket;
+    private final ScheduledExecutorService delayedResponses;
+    private final Set<Integer> seenIds = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger queries = new AtomicInteger();
+    private volatile Behavior behavior;
+    private volatile long responseDelayMillis;
+
+    FakeDnsUpstream(Behavior behavior) throws IOException {
+        this.behavior = behavior;
+        socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        delayedResponses = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fake-dns-upstream-delay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread thread = new Thread(this::run, "fake-dns-upstream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Address of this server as {@code host:port}
+     */
+    String address() {
+        return socket.getLocalAddress().getHostAddress() + ':' + socket.getLocalPort();
+    }
+
+    void behavior(Behavior behavior) {
+        this.behavior = behavior;
+    }
+
+    void responseDelay(long millis) {
+        responseDelayMillis = millis;
+    }
+
+    /**
+     * Number of queries received, including dropped ones
+     */
+    int queries() {
+        return queries.get();
+    }
+
+    private void run() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                queries.incrementAndGet();
+
+                Message query = new Message(Arrays.copyOf(packet.getData(), packet.getLength()));
+                Behavior current = behavior;
+                if (current == Behavior.BLACKHOLE || current == Behavior.DROP_FIRST && seenIds.add(query.getHeader().getID())) {
+                    continue;
+                }
+
+                byte[] response = answer(query, current).toWire();
+                SocketAddress client = packet.getSocketAddress();
+                long delay = responseDelayMillis;
+                if (delay == 0) {
+                    send(response, client);
+                } else {
+                    delayedResponses.schedule(() -> send(response, client), delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException e) {
+                // Socket closed or malformed query, keep serving until closed
+            }
+        }
+    }
+
+    private void send(byte[] response, SocketAddress client) {
+        try {
+            socket.send(new DatagramPacket(response, response.length, client));
+        } catch (IOException e) {
+            // Socket closed, the client times out
+        }
+    }
+
+    private static Message answer(Message query, Behavior behavior) throws IOException {
+        Message response = new Message(query.getHeader().getID());
+        response.getHeader().setFlag(Flags.QR);
+        response.getHeader().setFlag(Flags.RA);
+
+        Record question = query.getQuestion();
+        response.addRecord(question, Section.QUESTION);
+        if (behavior == Behavior.SERVFAIL) {
+            response.getHeader().setRcode(Rcode.SERVFAIL);
+        } else {
+            response.addRecord(new ARecord(question.getName(), DClass.IN, 300, InetAddress.getByName("127.0.0.1")), Section.ANSWER);
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        delayedResponses.shutdownNow();
+    }
+}
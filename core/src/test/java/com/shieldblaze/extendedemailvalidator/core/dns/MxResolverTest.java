@@ -0,0 +1,229 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.dns;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.MXRecord;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MxResolverTest {
+
+    private DatagramSocket socket;
+    private final Map<String, AtomicInteger> mxQueries = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread thread = new Thread(this::serve, "mx-resolver-test-dns");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        socket.close();
+    }
+
+    @Test
+    void resolveMailServers() throws Exception {
+        MxResolver mxResolver = mxResolver(3600, 60);
+        MxResolution resolution = mxResolver.resolve("example.com").get();
+
+        assertTrue(resolution.isSuccess());
+        assertEquals(List.of("mx.example.com"), resolution.resolvedDomain().mxTargets());
+        assertEquals(List.of("127.0.0.1"), resolution.resolvedDomain().ipv4Addresses());
+
+        mxResolver.resolve("example.com").get();
+        assertEquals(1, mxQueries("example.com"));
+    }
+
+    @Test
+    void cacheNegativeAnswerForSoaMinimum() throws Exception {
+        // SOA TTL of 3600 seconds but a minimum of 1 second, the lower one wins
+        MxResolver mxResolver = mxResolver(3600, 60);
+        assertFalse(mxResolver.resolve("min-1.nxdomain.test").get().isSuccess());
+        assertFalse(mxResolver.resolve("min-1.nxdomain.test").get().isSuccess());
+        assertEquals(1, mxQueries("min-1.nxdomain.test"));
+
+        Thread.sleep(1100);
+        mxResolver.resolve("min-1.nxdomain.test").get();
+        assertEquals(2, mxQueries("min-1.nxdomain.test"));
+    }
+
+    @Test
+    void cacheNegativeAnswerForSoaTtl() throws Exception {
+        // SOA TTL of 1 second with a minimum of 3600 seconds
+        MxResolver mxResolver = mxResolver(3600, 60);
+        assertFalse(mxResolver.resolve("ttl-1.nxdomain.test").get().isSuccess());
+
+        Thread.sleep(1100);
+        mxResolver.resolve("ttl-1.nxdomain.test").get();
+        assertEquals(2, mxQueries("ttl-1.nxdomain.test"));
+    }
+
+    @Test
+    void clampNegativeAnswerToMaximumTtl() throws Exception {
+        MxResolver mxResolver = mxResolver(1, 60);
+        assertFalse(mxResolver.resolve("long.nxdomain.test").get().isSuccess());
+
+        Thread.sleep(1100);
+        mxResolver.resolve("long.nxdomain.test").get();
+        assertEquals(2, mxQueries("long.nxdomain.test"));
+    }
+
+    @Test
+    void cacheServerFailureForTimeoutTtl() throws Exception {
+        // Server failures carry no negative TTL, the configured one applies instead of the SOA of other answers
+        MxResolver mxResolver = mxResolver(3600, 1);
+        assertFalse(mxResolver.resolve("servfail.test").get().isSuccess());
+        assertFalse(mxResolver.resolve("long.nxdomain.test").get().isSuccess());
+
+        // The resolver retries server failures, so count the queries of one resolution
+        int queries = mxQueries("servfail.test");
+        mxResolver.resolve("servfail.test").get();
+        assertEquals(queries, mxQueries("servfail.test"));
+
+        Thread.sleep(1100);
+        mxResolver.resolve("servfail.test").get();
+        mxResolver.resolve("long.nxdomain.test").get();
+        assertEquals(queries * 2, mxQueries("servfail.test"));
+        assertEquals(1, mxQueries("long.nxdomain.test"));
+    }
+
+    @Test
+    void cacheMissingAddressForSoaTtl() throws Exception {
+        // The MX target has no A record, NODATA and NXDOMAIN answers carry a negative TTL of 1 second
+        MxResolver mxResolver = mxResolver(3600, 3600);
+        for (String domain : List.of("nodata.noaddress.test", "nxdomain.noaddress.test")) {
+            assertFalse(mxResolver.resolve(domain).get().isSuccess());
+            assertFalse(mxResolver.resolve(domain).get().isSuccess());
+            assertEquals(1, mxQueries(domain));
+        }
+
+        Thread.sleep(1100);
+        for (String domain : List.of("nodata.noaddress.test", "nxdomain.noaddress.test")) {
+            mxResolver.resolve(domain).get();
+            assertEquals(2, mxQueries(domain));
+        }
+    }
+
+    @Test
+    void cacheUnansweredAddressForTimeoutTtl() throws Exception {
+        // The A query of the MX target fails, the configured TTL applies
+        MxResolver mxResolver = mxResolver(3600, 3600);
+        assertFalse(mxResolver.resolve("servfail.noaddress.test").get().isSuccess());
+
+        Thread.sleep(1100);
+        assertFalse(mxResolver.resolve("servfail.noaddress.test").get().isSuccess());
+        assertEquals(1, mxQueries("servfail.noaddress.test"));
+    }
+
+    private MxResolver mxResolver(int maxTtl, int negativeCacheTtl) throws IOException {
+        String server = socket.getLocalAddress().getHostAddress() + ':' + socket.getLocalPort();
+        return new MxResolver(new NetworkConfig(List.of(server), 1000, 1000, 100, 0, maxTtl, negativeCacheTtl, 300));
+    }
+
+    private int mxQueries(String domain) {
+        return mxQueries.getOrDefault(domain + '.', new AtomicInteger()).get();
+    }
+
+    /**
+     * Answer {@code *.nxdomain.test} with NXDOMAIN and an SOA record picked by the first label,
+     * {@code servfail.test} with SERVFAIL and everything else with one MX record and one A record.
+     * The MX targets of {@code *.noaddress.test} have no A record, their address queries are answered
+     * with NODATA, NXDOMAIN or SERVFAIL picked by the first label of the domain.
+     */
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                Message query = new Message(Arrays.copyOf(packet.getData(), packet.getLength()));
+                Record question = query.getQuestion();
+                Name name = question.getName();
+
+                Message response = new Message(query.getHeader().getID());
+                response.getHeader().setFlag(Flags.QR);
+                response.getHeader().setFlag(Flags.RA);
+                response.addRecord(question, Section.QUESTION);
+
+                if (question.getType() == Type.MX) {
+                    mxQueries.computeIfAbsent(name.toString(), key -> new AtomicInteger()).incrementAndGet();
+                }
+
+                String label = name.getLabelString(0);
+                if (name.subdomain(Name.fromConstantString("nxdomain.test."))) {
+                    long ttl = label.equals("ttl-1") ? 1 : 3600;
+                    long minimum = label.equals("min-1") ? 1 : 3600;
+                    Name zone = Name.fromConstantString("nxdomain.test.");
+                    response.getHeader().setRcode(Rcode.NXDOMAIN);
+                    response.addRecord(new SOARecord(zone, DClass.IN, ttl, Name.fromConstantString("ns.nxdomain.test."),
+                            Name.fromConstantString("hostmaster.nxdomain.test."), 1, 3600, 600, 86400, minimum), Section.AUTHORITY);
+                } else if (name.equals(Name.fromConstantString("servfail.test."))) {
+                    response.getHeader().setRcode(Rcode.SERVFAIL);
+                } else if (name.subdomain(Name.fromConstantString("noaddress.test.")) && question.getType() != Type.MX) {
+                    String kind = name.getLabelString(1);
+                    if (kind.equals("servfail")) {
+                        response.getHeader().setRcode(Rcode.SERVFAIL);
+                    } else {
+                        Name zone = Name.fromConstantString("noaddress.test.");
+                        response.getHeader().setRcode(kind.equals("nxdomain") ? Rcode.NXDOMAIN : Rcode.NOERROR);
+                        response.addRecord(new SOARecord(zone, DClass.IN, 1, Name.fromConstantString("ns.noaddress.test."),
+                                Name.fromConstantString("hostmaster.noaddress.test."), 1, 3600, 600, 86400, 1), Section.AUTHORITY);
+                    }
+                } else if (question.getType() == Type.MX) {
+                    response.addRecord(new MXRecord(name, DClass.IN, 300, 10, Name.concatenate(Name.fromConstantString("mx"), name)), Section.ANSWER);
+                } else if (question.getType() == Type.A) {
+                    response.addRecord(new ARecord(name, DClass.IN, 300, InetAddress.getByName("127.0.0.1")), Section.ANSWER);
+                }
+
+                byte[] wire = response.toWire();
+                socket.send(new DatagramPacket(wire, wire.length, packet.getSocketAddress()));
+            } catch (IOException e) {
+                // Socket closed
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void containsExactEntries() throws IOException {
+        DomainIndex domainIndex = build("mailinator.com", "Tempmail.ORG.", "", "# comment", "  spaces.example  ");
+
+        assertEquals(3, domainIndex.size());
+        assertTrue(domainIndex.contains("mailinator.com"));
+        assertTrue(domainIndex.contains("tempmail.org"));
+        assertTrue(domainIndex.contains("spaces.example"));
+        assertFalse(domainIndex.contains("sub.mailinator.com"));
+        assertFalse(domainIndex.contains("mailinator.co"));
+        assertFalse(domainIndex.contains("# comment"));
+    }
+
+    @Test
+    void containsSubdomainsOfWildcardEntries() throws IOException {
+        DomainIndex domainIndex = build("*.throwaway.example");
+
+        assertTrue(domainIndex.contains("a.throwaway.example"));
+        assertTrue(domainIndex.contains("a.b.throwaway.example"));
+        assertFalse(domainIndex.contains("throwaway.example"));
+        assertFalse(domainIndex.contains("notthrowaway.example"));
+    }
+
+    @Test
+    void dropDuplicates() throws IOException {
+        DomainIndex domainIndex = build("example.com", "EXAMPLE.com", "*.example.com", "*.example.com");
+
+        assertEquals(2, domainIndex.size());
+        assertTrue(domainIndex.contains("example.com"));
+        assertTrue(domainIndex.contains("www.example.com"));
+    }
+
+    @Test
+    void buildEmptyIndex() throws IOException {
+        DomainIndex domainIndex = build();
+
+        assertEquals(0, domainIndex.size());
+        assertFalse(domainIndex.contains("example.com"));
+    }
+
+    @Test
+    void replaceIndexFile() throws IOException {
+        DomainIndex first = build("first.example");
+        DomainIndex second = build("second.example");
+
+        // The open index keeps its mapping of the replaced file
+        assertTrue(first.contains("first.example"));
+        assertFalse(second.contains("first.example"));
+        assertTrue(second.contains("second.example"));
+    }
+
+    @Test
+    void rejectInvalidFiles() throws IOException {
+        Path notAnIndex = directory.resolve("not-an-index");
+        Files.writeString(notAnIndex, "example.com\nexample.org\n");
+        assertThrows(IOException.class, () -> DomainIndex.open(notAnIndex));
+
+        build("example.com", "example.org");
+        Path truncated = directory.resolve("truncated");
+        byte[] bytes = Files.readAllBytes(directory.resolve("index"));
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> DomainIndex.open(truncated));
+    }
+
+    private DomainIndex build(String... lines) throws IOException {
+        Path listPath = directory.resolve("list.txt");
+        Path indexPath = directory.resolve("index");
+        Files.write(listPath, List.of(lines));
+        DomainIndex.build(listPath, indexPath);
+        return DomainIndex.open(indexPath);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainTrieTest {
+
+    @Test
+    void matchDomainAndSubdomains() {
+        DomainTrie domainTrie = DomainTrie.of(List.of("gmail.com", "yahoo.co.uk"));
+
+        assertTrue(domainTrie.matches("gmail.com"));
+        assertTrue(domainTrie.matches("mail.gmail.com"));
+        assertTrue(domainTrie.matches("a.b.gmail.com"));
+        assertTrue(domainTrie.matches("yahoo.co.uk"));
+        assertFalse(domainTrie.matches("com"));
+        assertFalse(domainTrie.matches("co.uk"));
+        assertFalse(domainTrie.matches("notgmail.com"));
+        assertFalse(domainTrie.matches("gmail.co"));
+        assertFalse(domainTrie.matches("gmail.com.evil.example"));
+    }
+
+    @Test
+    void matchWildcardLabel() {
+        DomainTrie domainTrie = DomainTrie.of(List.of("outlook.*"));
+
+        assertTrue(domainTrie.matches("outlook.com"));
+        assertTrue(domainTrie.matches("outlook.de"));
+        assertTrue(domainTrie.matches("eu.outlook.com"));
+        assertFalse(domainTrie.matches("outlook.co.uk"));
+        assertFalse(domainTrie.matches("hotmail.com"));
+    }
+
+    @Test
+    void preferExactLabelButFallBackToWildcard() {
+        DomainTrie domainTrie = DomainTrie.of(List.of("mail.example.com", "*.example.org", "web.*.example.net"));
+
+        assertTrue(domainTrie.matches("mail.example.com"));
+        assertFalse(domainTrie.matches("www.example.com"));
+        assertTrue(domainTrie.matches("www.example.org"));
+        assertFalse(domainTrie.matches("example.org"));
+        assertTrue(domainTrie.matches("web.eu.example.net"));
+        assertFalse(domainTrie.matches("app.eu.example.net"));
+    }
+
+    @Test
+    void normalizeEntries() {
+        DomainTrie domainTrie = DomainTrie.of(List.of("  GMail.COM. ", "", "   "));
+
+        assertTrue(domainTrie.matches("gmail.com"));
+        assertFalse(domainTrie.matches(""));
+    }
+
+    @Test
+    void matchNothingWhenEmpty() {
+        DomainTrie domainTrie = DomainTrie.of(List.of());
+
+        assertFalse(domainTrie.matches("gmail.com"));
+        assertFalse(domainTrie.matches(""));
+    }
+
+    @Test
+    void rejectEmptyLabels() {
+        assertThrows(IllegalArgumentException.class, () -> DomainTrie.of(List.of("gmail..com")));
+        assertThrows(IllegalArgumentException.class, () -> DomainTrie.of(List.of(".gmail.com")));
+    }
+}
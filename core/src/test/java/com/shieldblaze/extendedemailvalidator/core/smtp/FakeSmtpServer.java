@@ -0,0 +1,204 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process SMTP server which knows a fixed set of mailboxes, for tests.
+ * <p>
+ * It records every command it receives and counts commands which arrived before the reply to the
+ * previous one was written, which only happens when the client pipelines.
+ */
+public final class FakeSmtpServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final Set<String> mailboxes = ConcurrentHashMap.newKeySet();
+    private final List<Socket> sessions = new CopyOnWriteArrayList<>();
+    private final Queue<String> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger pipelinedCommands = new AtomicInteger();
+    private final boolean pipelining;
+    private volatile boolean catchAll;
+
+    /**
+     * Start a server on a random loopback port
+     *
+     * @param pipelining {@code true} to announce the {@code PIPELINING} extension
+     * @param mailboxes  Email addresses of the mailboxes which exist
+     */
+    public FakeSmtpServer(boolean pipelining, String... mailboxes) throws IOException {
+        this.pipelining = pipelining;
+        for (String mailbox : mailboxes) {
+            this.mailboxes.add(mailbox.toLowerCase(Locale.ROOT));
+        }
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(this::accept, "fake-smtp-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Accept mail for any recipient
+     */
+    public void catchAll(boolean catchAll) {
+        this.catchAll = catchAll;
+    }
+
+    public InetSocketAddress address() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Number of connections accepted
+     */
+    public int connections() {
+        return connections.get();
+    }
+
+    /**
+     * Number of commands which arrived while the reply to an earlier command was still due
+     */
+    public int pipelinedCommands() {
+        return pipelinedCommands.get();
+    }
+
+    /**
+     * Commands received in order, across all sessions
+     */
+    public List<String> commands() {
+        return List.copyOf(commands);
+    }
+
+    /**
+     * Drop all open sessions, like a server closing idle connections
+     *
+     * @param reply {@code true} to send {@code 421} before closing
+     */
+    public void dropSessions(boolean reply) throws IOException {
+        for (Socket session : sessions) {
+            if (reply) {
+                session.getOutputStream().write("421 4.4.2 Idle timeout\r\n".getBytes(StandardCharsets.US_ASCII));
+                session.getOutputStream().flush();
+            }
+            session.close();
+        }
+        sessions.clear();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                sessions.add(socket);
+
+                Thread thread = new Thread(() -> serve(socket), "fake-smtp-session");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 fake.localhost ESMTP");
+
+            String command;
+            while ((command = readLine(in)) != null) {
+                commands.add(command);
+                if (in.available() > 0) {
+                    pipelinedCommands.incrementAndGet();
+                }
+
+                String verb = command.length() < 4 ? command : command.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (verb) {
+                    case "EHLO" -> reply(out, pipelining
+                            ? "250-fake.localhost\r\n250-PIPELINING\r\n250 SIZE 1000000"
+                            : "250-fake.localhost\r\n250 SIZE 1000000");
+                    case "HELO", "MAIL", "RSET" -> reply(out, "250 OK");
+                    case "RCPT" -> {
+                        String recipient = command.substring(command.indexOf('<') + 1, command.lastIndexOf('>'));
+                        reply(out, catchAll || mailboxes.contains(recipient.toLowerCase(Locale.ROOT))
+                                ? "250 OK"
+                                : "550 5.1.1 No such user");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "500 Unknown command");
+                }
+            }
+        } catch (IOException e) {
+            // Session dropped
+        } finally {
+            sessions.remove(socket);
+        }
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                String value = line.toString(StandardCharsets.UTF_8);
+                return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropSessions(false);
+    }
+}
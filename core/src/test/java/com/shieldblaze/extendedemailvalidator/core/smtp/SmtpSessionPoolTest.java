@@ -0,0 +1,97 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpSessionPoolTest {
+
+    @Test
+    void reuseReleasedSession() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, "alice@example.com");
+             SmtpSessionPool pool = new SmtpSessionPool(config(server, 30))) {
+            SmtpSession session = pool.acquire(server.address());
+            session.verify(List.of("alice@example.com"));
+            pool.release(session, true);
+            assertEquals(1, pool.idleSessions());
+
+            assertSame(session, pool.acquire(server.address()));
+            assertEquals(1, server.connections());
+        }
+    }
+
+    @Test
+    void closeUnhealthySession() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true);
+             SmtpSessionPool pool = new SmtpSessionPool(config(server, 30))) {
+            SmtpSession session = pool.acquire(server.address());
+            pool.release(session, false);
+            assertEquals(0, pool.idleSessions());
+
+            assertNotSame(session, pool.acquire(server.address()));
+            assertEquals(2, server.connections());
+        }
+    }
+
+    @Test
+    void limitSessionsPerHost() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true);
+             SmtpSessionPool pool = new SmtpSessionPool(config(server, 30))) {
+            pool.acquire(server.address(), 1000);
+            pool.acquire(server.address(), 1000);
+            assertThrows(IOException.class, () -> pool.acquire(server.address(), 100));
+        }
+    }
+
+    @Test
+    void reapIdleSessions() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true);
+             SmtpSessionPool pool = new SmtpSessionPool(config(server, 1))) {
+            SmtpSession idle = pool.acquire(server.address());
+            SmtpSession busy = pool.acquire(server.address());
+            pool.release(idle, true);
+
+            Thread.sleep(1100);
+            pool.reap();
+            assertEquals(0, pool.idleSessions());
+            assertEquals(1, pool.hosts(), "Host with a session in use is kept");
+
+            pool.release(busy, false);
+            pool.reap();
+            assertEquals(0, pool.hosts());
+
+            // Forgotten hosts start over
+            pool.release(pool.acquire(server.address()), true);
+            assertEquals(1, pool.hosts());
+            assertTrue(server.connections() >= 3);
+        }
+    }
+
+    private static SmtpConfig config(FakeSmtpServer server, int sessionIdleTimeout) {
+        return new SmtpConfig("test.localhost", "", server.port(), 1000, 2, 50, sessionIdleTimeout);
+    }
+}
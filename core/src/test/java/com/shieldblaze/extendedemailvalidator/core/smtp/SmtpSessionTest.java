@@ -0,0 +1,101 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.smtp;
+
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpSessionTest {
+
+    private static final SmtpConfig SMTP_CONFIG = new SmtpConfig("test.localhost", "probe@test.localhost");
+
+    @Test
+    void verifyPipelined() throws IOException {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, "alice@example.com");
+             SmtpSession session = SmtpSession.open(server.address(), SMTP_CONFIG)) {
+            assertTrue(session.pipelining());
+
+            SmtpTransaction transaction = session.verify(List.of("alice@example.com", "bob@example.com", "ALICE@example.com"));
+            assertTrue(transaction.mailFrom().isPositive());
+            assertEquals(List.of(250, 550, 250), transaction.recipients().stream().map(SmtpReply::code).toList());
+
+            // MAIL FROM, RCPT TO and RSET went out in a single write
+            assertTrue(server.pipelinedCommands() > 0);
+        }
+    }
+
+    @Test
+    void verifyLockStep() throws IOException {
+        try (FakeSmtpServer server = new FakeSmtpServer(false, "alice@example.com");
+             SmtpSession session = SmtpSession.open(server.address(), SMTP_CONFIG)) {
+            assertFalse(session.pipelining());
+
+            SmtpTransaction transaction = session.verify(List.of("alice@example.com", "bob@example.com"));
+            assertTrue(transaction.mailFrom().isPositive());
+            assertEquals(List.of(250, 550), transaction.recipients().stream().map(SmtpReply::code).toList());
+
+            // Every command waited for the reply to the one before
+            assertEquals(0, server.pipelinedCommands());
+        }
+    }
+
+    @Test
+    void reuseAfterReset() throws IOException {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, "alice@example.com", "bob@example.com");
+             SmtpSession session = SmtpSession.open(server.address(), SMTP_CONFIG)) {
+            assertTrue(session.verify(List.of("alice@example.com")).recipients().get(0).isPositive());
+            assertTrue(session.verify(List.of("bob@example.com")).recipients().get(0).isPositive());
+            assertFalse(session.verify(List.of("carol@example.com")).recipients().get(0).isPositive());
+
+            assertEquals(3, session.transactions());
+            assertEquals(1, server.connections());
+            assertEquals(3, server.commands().stream().filter(command -> command.equals("RSET")).count());
+        }
+    }
+
+    @Test
+    void rejectControlCharacters() throws IOException {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, "alice@example.com");
+             SmtpSession session = SmtpSession.open(server.address(), SMTP_CONFIG)) {
+            assertThrows(IllegalArgumentException.class, () -> session.verify(List.of("alice@example.com", "a\r\nDATA@example.com")));
+            assertThrows(IllegalArgumentException.class, () -> session.verify(List.of("a\n@example.com")));
+            assertFalse(server.commands().stream().anyMatch(command -> command.startsWith("MAIL")));
+
+            // Nothing was written, the session is still in step
+            assertTrue(session.verify(List.of("alice@example.com")).recipients().get(0).isPositive());
+        }
+    }
+
+    @Test
+    void isValidRecipient() {
+        assertTrue(SmtpSession.isValidRecipient("alice@example.com"));
+        assertTrue(SmtpSession.isValidRecipient("\"alice smith\"@example.com"));
+        assertFalse(SmtpSession.isValidRecipient("alice\r\n@example.com"));
+        assertFalse(SmtpSession.isValidRecipient("alice\t@example.com"));
+        assertFalse(SmtpSession.isValidRecipient("alice\u007F@example.com"));
+        assertFalse(SmtpSession.isValidRecipient(""));
+        assertFalse(SmtpSession.isValidRecipient(null));
+    }
+}
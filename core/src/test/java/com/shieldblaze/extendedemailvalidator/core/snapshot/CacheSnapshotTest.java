@@ -0,0 +1,217 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.snapshot;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.dns.MxResolver;
+import com.shieldblaze.extendedemailvalidator.core.dns.ResolvedDomain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheSnapshotTest {
+
+    private static final ResolvedDomain EXAMPLE_COM = new ResolvedDomain(List.of("mx.example.com"), List.of("192.0.2.1"), List.of("2001:db8::1"));
+    private static final ResolvedDomain EXAMPLE_ORG = new ResolvedDomain(List.of("mx.example.org"), List.of("192.0.2.2"), List.of());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTrip() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path,
+                Map.of("example.com", new CacheSnapshot.Entry<>(EXAMPLE_COM, expiresAt), "example.org", new CacheSnapshot.Entry<>(EXAMPLE_ORG, expiresAt)),
+                Map.of("192.0.2.1", new CacheSnapshot.ProbeEntry(true, expiresAt, 25, expiresAt)));
+
+        CacheSnapshot snapshot = CacheSnapshot.open(path);
+        assertEquals(2, snapshot.domainCount());
+        assertEquals(1, snapshot.probeCount());
+
+        CacheSnapshot.Entry<ResolvedDomain> entry = snapshot.takeResolvedDomain("example.com");
+        assertEquals(EXAMPLE_COM, entry.value());
+        assertEquals(expiresAt, entry.expiresAt());
+        assertEquals(EXAMPLE_ORG, snapshot.takeResolvedDomain("example.org").value());
+        assertNull(snapshot.takeResolvedDomain("example.net"));
+        assertEquals(new CacheSnapshot.ProbeEntry(true, expiresAt, 25, expiresAt), snapshot.takeProbe("192.0.2.1"));
+        assertNull(snapshot.takeProbe("192.0.2.2"));
+    }
+
+    @Test
+    void takeOnce() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path,
+                Map.of("example.com", new CacheSnapshot.Entry<>(EXAMPLE_COM, expiresAt), "example.org", new CacheSnapshot.Entry<>(EXAMPLE_ORG, expiresAt)),
+                Map.of("192.0.2.1", new CacheSnapshot.ProbeEntry(false, expiresAt, -1, 0)));
+
+        CacheSnapshot snapshot = CacheSnapshot.open(path);
+        assertEquals(EXAMPLE_COM, snapshot.takeResolvedDomain("example.com").value());
+        assertNull(snapshot.takeResolvedDomain("example.com"));
+        assertFalse(snapshot.takeProbe("192.0.2.1").verdict());
+        assertNull(snapshot.takeProbe("192.0.2.1"));
+
+        // Only entries which were not taken are left to carry over
+        Map<String, CacheSnapshot.Entry<ResolvedDomain>> domains = new HashMap<>();
+        snapshot.forEachUntakenResolvedDomain(domains::put);
+        assertEquals(Map.of("example.org", new CacheSnapshot.Entry<>(EXAMPLE_ORG, expiresAt)), domains);
+
+        Map<String, CacheSnapshot.ProbeEntry> probes = new HashMap<>();
+        snapshot.forEachUntakenProbe(probes::put);
+        assertTrue(probes.isEmpty());
+    }
+
+    @Test
+    void dropExpiredEntries() throws IOException {
+        long now = System.currentTimeMillis();
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path,
+                Map.of("example.com", new CacheSnapshot.Entry<>(EXAMPLE_COM, now - 1), "example.org", new CacheSnapshot.Entry<>(EXAMPLE_ORG, now + 60_000)),
+                Map.of("192.0.2.1", new CacheSnapshot.ProbeEntry(true, now - 1, 25, now + 60_000),
+                        "192.0.2.2", new CacheSnapshot.ProbeEntry(false, now - 1, -1, 0)));
+
+        CacheSnapshot snapshot = CacheSnapshot.open(path);
+        Map<String, CacheSnapshot.Entry<ResolvedDomain>> domains = new HashMap<>();
+        snapshot.forEachUntakenResolvedDomain(domains::put);
+        assertEquals(List.of("example.org"), List.copyOf(domains.keySet()));
+        Map<String, CacheSnapshot.ProbeEntry> probes = new HashMap<>();
+        snapshot.forEachUntakenProbe(probes::put);
+        assertEquals(Map.of("192.0.2.1", new CacheSnapshot.ProbeEntry(null, 0, 25, now + 60_000)), probes);
+
+        assertNull(snapshot.takeResolvedDomain("example.com"));
+        // The verdict expired, the port did not
+        assertEquals(new CacheSnapshot.ProbeEntry(null, 0, 25, now + 60_000), snapshot.takeProbe("192.0.2.1"));
+        assertNull(snapshot.takeProbe("192.0.2.2"));
+    }
+
+    @Test
+    void startColdOnExpiredFile() throws IOException {
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path, Map.of("example.com", new CacheSnapshot.Entry<>(EXAMPLE_COM, System.currentTimeMillis() - 1)), Map.of());
+        assertSame(CacheSnapshot.EMPTY, CacheSnapshot.open(path));
+    }
+
+    @Test
+    void startColdOnMissingOrForeignFile() throws IOException {
+        Path path = directory.resolve("cache.snapshot");
+        assertSame(CacheSnapshot.EMPTY, CacheSnapshot.open(path));
+
+        Files.writeString(path, "Not a cache snapshot, but long enough for a header");
+        assertSame(CacheSnapshot.EMPTY, CacheSnapshot.open(path));
+    }
+
+    @Test
+    void startColdOnTruncatedIndex() throws IOException {
+        Path path = writeTwoDomains();
+        truncate(path, 24 + 16);
+        assertSame(CacheSnapshot.EMPTY, CacheSnapshot.open(path));
+    }
+
+    @Test
+    void ignoreTruncatedEntry() throws IOException {
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path, Map.of("example.com", new CacheSnapshot.Entry<>(EXAMPLE_COM, System.currentTimeMillis() + 60_000)), Map.of());
+        truncate(path, Files.size(path) - 4);
+
+        // The entry is only read, and found to be cut short, when it is taken
+        CacheSnapshot snapshot = CacheSnapshot.open(path);
+        assertEquals(1, snapshot.domainCount());
+        assertNull(snapshot.takeResolvedDomain("example.com"));
+    }
+
+    @Test
+    void ignoreRestAfterCorruptOffset() throws IOException {
+        Path path = writeTwoDomains();
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // Offset of the first index entry
+            fileChannel.write(ByteBuffer.allocate(8).putLong(0, Long.MAX_VALUE), 24 + 8);
+        }
+
+        CacheSnapshot snapshot = CacheSnapshot.open(path);
+        assertEquals(2, snapshot.domainCount());
+
+        // Entries are visited in index order, so the corrupt one comes first
+        Map<String, CacheSnapshot.Entry<ResolvedDomain>> domains = new HashMap<>();
+        snapshot.forEachUntakenResolvedDomain(domains::put);
+        assertTrue(domains.isEmpty());
+        assertNull(snapshot.takeResolvedDomain("example.com"));
+        assertNull(snapshot.takeResolvedDomain("example.org"));
+    }
+
+    @Test
+    void writeLiveAndUntakenEntries() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        Path path = writeTwoDomains();
+        CacheSnapshot previous = CacheSnapshot.open(path);
+        assertEquals(EXAMPLE_COM, previous.takeResolvedDomain("example.com").value());
+
+        NetworkConfig networkConfig = new NetworkConfig(List.of("127.0.0.1"), 1000, 1000);
+        ProbeCache probeCache = new ProbeCache(networkConfig);
+        probeCache.markReachable("192.0.2.1", 587);
+        probeCache.markUnreachable("192.0.2.2");
+
+        Path nextPath = directory.resolve("next.snapshot");
+        new SnapshotWriter(nextPath, previous, new MxResolver(networkConfig), probeCache).write();
+
+        // The taken domain belongs to the live cache now, which has since dropped it
+        CacheSnapshot next = CacheSnapshot.open(nextPath);
+        assertEquals(1, next.domainCount());
+        assertNull(next.takeResolvedDomain("example.com"));
+        assertEquals(EXAMPLE_ORG, next.takeResolvedDomain("example.org").value());
+
+        CacheSnapshot.ProbeEntry reachable = next.takeProbe("192.0.2.1");
+        assertTrue(reachable.verdict());
+        assertEquals(587, reachable.preferredPort());
+        assertTrue(reachable.verdictExpiresAt() <= expiresAt + NetworkConfig.DEFAULT_PROBE_CACHE_TTL * 1000L);
+
+        CacheSnapshot.ProbeEntry unreachable = next.takeProbe("192.0.2.2");
+        assertFalse(unreachable.verdict());
+        assertEquals(-1, unreachable.preferredPort());
+    }
+
+    private Path writeTwoDomains() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshot.write(path,
+                Map.of("example.com", new CacheSnapshot.Entry<>(EXAMPLE_COM, expiresAt), "example.org", new CacheSnapshot.Entry<>(EXAMPLE_ORG, expiresAt)),
+                Map.of());
+        return path;
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            fileChannel.truncate(size);
+        }
+    }
+}
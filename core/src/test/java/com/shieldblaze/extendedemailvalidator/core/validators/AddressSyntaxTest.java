@@ -0,0 +1,141 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+import com.sanctionco.jmail.JMail;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AddressSyntaxTest {
+
+    private static final String LOCAL_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!#$%&'*+-/=?^_`{|}~";
+    private static final String DOMAIN_CHARACTERS = "abcdefghijklmnopqrstuvwxyz0123456789-";
+    private static final String DAMAGE_CHARACTERS = ".@-\" ()[]_\\,;:<>ä0a";
+
+    @Test
+    void acceptCommonAddresses() {
+        assertEquals(5, AddressSyntax.check("alice@example.com"));
+        assertEquals(9, AddressSyntax.check("alice.bob@mail.example.co.uk"));
+        assertEquals(15, AddressSyntax.check("first+tag_2024-@example-mail.com"));
+        assertEquals(19, AddressSyntax.check("!#$%&'*+-/=?^_`{|}~@example.com"));
+        assertEquals(5, AddressSyntax.check("Alice@Example.COM"));
+        assertEquals(1, AddressSyntax.check("a@b.io"));
+        assertEquals(5, AddressSyntax.check("alice@123.example.com"));
+    }
+
+    @Test
+    void rejectMalformedAddresses() {
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check(null));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check(""));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice.example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("@example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check(".alice@example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice.@example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice..bob@example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@@example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@bob@example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@.example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@example..com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@example.com."));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@-example.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@example-.com"));
+        assertEquals(AddressSyntax.INVALID, AddressSyntax.check("alice@" + "a".repeat(64) + ".com"));
+    }
+
+    @Test
+    void leaveUnusualAddressesUndecided() {
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("\"alice bob\"@example.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice(comment)@example.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice@[192.0.2.1]"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice@192.0.2.1"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice@example.123"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice@exämple.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice@example_mail.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("älice@example.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice bob@example.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("a".repeat(65) + "@example.com"));
+        assertEquals(AddressSyntax.UNDECIDED, AddressSyntax.check("alice@" + ("a".repeat(60) + ".").repeat(5) + "com"));
+    }
+
+    @Test
+    void agreeWithJMail() {
+        // Mostly well-formed addresses with random damage, so all three outcomes come up often
+        Random random = new Random(20231017);
+        int decided = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String email = mutate(random, address(random));
+            int result = AddressSyntax.check(email);
+            if (result == AddressSyntax.UNDECIDED) {
+                continue;
+            }
+
+            decided++;
+            assertEquals(JMail.isValid(email), result >= 0, email);
+            if (result >= 0) {
+                assertEquals(email.indexOf('@'), result, email);
+            }
+        }
+        assertTrue(decided > 50_000, "Only " + decided + " addresses were decided");
+    }
+
+    private static String address(Random random) {
+        StringBuilder email = new StringBuilder();
+        int atoms = 1 + random.nextInt(3);
+        for (int i = 0; i < atoms; i++) {
+            if (i > 0) {
+                email.append('.');
+            }
+            appendRandom(random, email, LOCAL_CHARACTERS, 1 + random.nextInt(12));
+        }
+
+        email.append('@');
+        int labels = 1 + random.nextInt(4);
+        for (int i = 0; i < labels; i++) {
+            if (i > 0) {
+                email.append('.');
+            }
+            appendRandom(random, email, DOMAIN_CHARACTERS, 1 + random.nextInt(i == labels - 1 ? 6 : 20));
+        }
+        return email.toString();
+    }
+
+    private static String mutate(Random random, String email) {
+        StringBuilder mutated = new StringBuilder(email);
+        int mutations = random.nextInt(3);
+        for (int i = 0; i < mutations && !mutated.isEmpty(); i++) {
+            int index = random.nextInt(mutated.length());
+            switch (random.nextInt(3)) {
+                case 0 -> mutated.deleteCharAt(index);
+                case 1 -> mutated.insert(index, DAMAGE_CHARACTERS.charAt(random.nextInt(DAMAGE_CHARACTERS.length())));
+                default -> mutated.setCharAt(index, DAMAGE_CHARACTERS.charAt(random.nextInt(DAMAGE_CHARACTERS.length())));
+            }
+        }
+        return mutated.toString();
+    }
+
+    private static void appendRandom(Random random, StringBuilder builder, String characters, int count) {
+        for (int i = 0; i < count; i++) {
+            builder.append(characters.charAt(random.nextInt(characters.length())));
+        }
+    }
+}
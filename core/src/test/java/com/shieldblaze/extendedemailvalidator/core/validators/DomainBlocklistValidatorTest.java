@@ -0,0 +1,73 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainBlocklistValidatorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rejectBlocklistedDomains() throws Exception {
+        Path listPath = Files.writeString(directory.resolve("blocklist.txt"), "disposable.test\n");
+        try (DomainBlocklistValidator validator = new DomainBlocklistValidator(listPath)) {
+            assertFalse(validator.isValid(ValidationContext.create(), "a@disposable.test"));
+            assertTrue(validator.isValid(ValidationContext.create(), "a@example.com"));
+        }
+    }
+
+    @Test
+    void reloadWhileWatchingUntilClosed() throws Exception {
+        Path listPath = Files.writeString(directory.resolve("blocklist.txt"), "disposable.test\n");
+        DomainBlocklistValidator validator = new DomainBlocklistValidator(listPath);
+        validator.watch();
+        assertTrue(watcherRunning());
+
+        replace(listPath, "disposable.test\nexample.com\n");
+        for (int i = 0; i < 200 && validator.isValid(ValidationContext.create(), "a@example.com"); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(validator.isValid(ValidationContext.create(), "a@example.com"));
+
+        // Closing stops the watcher thread
+        validator.close();
+        for (int i = 0; i < 100 && watcherRunning(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(watcherRunning());
+    }
+
+    private void replace(Path listPath, String content) throws Exception {
+        Path temporaryPath = Files.writeString(directory.resolve("blocklist.tmp"), content);
+        Files.move(temporaryPath, listPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean watcherRunning() {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("blocklist-watcher"));
+    }
+}
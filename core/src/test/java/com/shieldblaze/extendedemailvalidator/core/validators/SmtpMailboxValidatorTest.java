@@ -0,0 +1,197 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.core.validators;
+
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import com.shieldblaze.extendedemailvalidator.core.ValidationContext;
+import com.shieldblaze.extendedemailvalidator.core.smtp.FakeSmtpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpMailboxValidatorTest {
+
+    private FakeSmtpServer server;
+    private SmtpMailboxValidator validator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeSmtpServer(true, "alice@example.com", "bob@example.com");
+        validator = new SmtpMailboxValidator(new SmtpConfig("test.localhost", "", server.port(), 1000, 2, 3, 30));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        validator.close();
+        server.close();
+    }
+
+    @Test
+    void verifyMailboxes() throws Exception {
+        List<ValidationContext> contexts = contexts("alice@example.com", "nobody@example.com");
+        assertArrayEquals(new boolean[]{true, false}, validator.isValid(contexts, List.of("alice@example.com", "nobody@example.com")));
+
+        assertTrue(contexts.get(0).mailboxValidationPassed());
+        assertFalse(contexts.get(0).catchAll());
+        assertFalse(contexts.get(1).mailboxValidationPassed());
+        assertEquals("Mailbox does not exist", contexts.get(1).failureReason());
+    }
+
+    @Test
+    void splitTransactions() throws Exception {
+        List<String> emails = List.of("alice@example.com", "bob@example.com", "x@example.com", "y@example.com", "alice@example.com");
+        assertArrayEquals(new boolean[]{true, true, false, false, true}, validator.isValid(contexts(emails.toArray(String[]::new)), emails));
+
+        // Three recipients per transaction, the catch-all probe takes a slot of the first one
+        List<String> commands = server.commands();
+        assertEquals(2, commands.stream().filter(command -> command.startsWith("MAIL FROM")).count());
+        assertEquals(6, commands.stream().filter(command -> command.startsWith("RCPT TO")).count());
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void detectCatchAll() throws Exception {
+        server.catchAll(true);
+        List<ValidationContext> contexts = contexts("alice@example.com", "nobody@example.com");
+        assertArrayEquals(new boolean[]{true, true}, validator.isValid(contexts, List.of("alice@example.com", "nobody@example.com")));
+
+        for (ValidationContext validationContext : contexts) {
+            assertTrue(validationContext.catchAll());
+            assertTrue(validationContext.mailboxInconclusive());
+            assertFalse(validationContext.mailboxValidationPassed());
+        }
+        assertEquals(1, server.commands().stream().filter(command -> command.startsWith("RCPT TO:<eev-")).count());
+    }
+
+    @Test
+    void reuseCatchAllVerdict() throws Exception {
+        server.catchAll(true);
+        validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"));
+
+        // The second batch is not probed and still marked as catch-all
+        List<ValidationContext> contexts = contexts("bob@example.com", "nobody@example.com");
+        assertArrayEquals(new boolean[]{true, true}, validator.isValid(contexts, List.of("bob@example.com", "nobody@example.com")));
+        assertTrue(contexts.get(0).catchAll());
+        assertTrue(contexts.get(1).catchAll());
+        assertEquals(1, probes());
+
+        // Verdicts are kept per domain
+        validator.isValid(contexts("alice@example.org"), List.of("alice@example.org"));
+        assertEquals(2, probes());
+    }
+
+    @Test
+    void reuseRegularVerdict() throws Exception {
+        validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"));
+
+        // Without the probe, the first transaction has room for all three recipients
+        List<String> emails = List.of("alice@example.com", "bob@example.com", "nobody@example.com");
+        List<ValidationContext> contexts = contexts(emails.toArray(String[]::new));
+        assertArrayEquals(new boolean[]{true, true, false}, validator.isValid(contexts, emails));
+        assertFalse(contexts.get(0).catchAll());
+        assertTrue(contexts.get(0).mailboxValidationPassed());
+        assertEquals(1, probes());
+        assertEquals(2, server.commands().stream().filter(command -> command.startsWith("MAIL FROM")).count());
+    }
+
+    @Test
+    void probeAgainOnceVerdictExpired() throws Exception {
+        validator.close();
+        validator = new SmtpMailboxValidator(new SmtpConfig("test.localhost", "", server.port(), 1000, 2, 3, 30, 1));
+
+        validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"));
+        validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"));
+        assertEquals(1, probes());
+
+        // The mail server turned catch-all meanwhile
+        server.catchAll(true);
+        Thread.sleep(1100);
+        List<ValidationContext> contexts = contexts("alice@example.com");
+        validator.isValid(contexts, List.of("alice@example.com"));
+        assertTrue(contexts.get(0).catchAll());
+        assertEquals(2, probes());
+    }
+
+    @Test
+    void probeEveryBatchWithoutTtl() throws Exception {
+        validator.close();
+        validator = new SmtpMailboxValidator(new SmtpConfig("test.localhost", "", server.port(), 1000, 2, 3, 30, 0));
+
+        validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"));
+        validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"));
+        assertEquals(2, probes());
+    }
+
+    @Test
+    void retryAfterServiceClosing() throws Exception {
+        assertTrue(validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"))[0]);
+
+        // The pooled session is dropped with 421 while idle, the next batch retries on a new session
+        server.dropSessions(true);
+        List<ValidationContext> contexts = contexts("bob@example.com");
+        assertTrue(validator.isValid(contexts, List.of("bob@example.com"))[0]);
+        assertTrue(contexts.get(0).mailboxValidationPassed());
+        assertEquals(2, server.connections());
+    }
+
+    @Test
+    void retryAfterConnectionClosed() throws Exception {
+        assertTrue(validator.isValid(contexts("alice@example.com"), List.of("alice@example.com"))[0]);
+
+        server.dropSessions(false);
+        List<ValidationContext> contexts = contexts("nobody@example.com");
+        assertFalse(validator.isValid(contexts, List.of("nobody@example.com"))[0]);
+        assertEquals("Mailbox does not exist", contexts.get(0).failureReason());
+        assertEquals(2, server.connections());
+    }
+
+    @Test
+    void sendParsedAddress() throws Exception {
+        List<String> emails = List.of("alice(\r\nDATA)@example.com", "bob\n@example.com");
+        List<ValidationContext> contexts = contexts(emails.toArray(String[]::new));
+        assertArrayEquals(new boolean[]{true, false}, validator.isValid(contexts, emails));
+
+        assertTrue(contexts.get(0).mailboxValidationPassed());
+        assertFalse(contexts.get(1).mailboxValidationPassed());
+        assertTrue(server.commands().contains("RCPT TO:<alice@example.com>"));
+        assertFalse(server.commands().stream().anyMatch(command -> command.startsWith("DATA") || command.startsWith("RCPT TO:<bob")));
+    }
+
+    private long probes() {
+        return server.commands().stream().filter(command -> command.startsWith("RCPT TO:<eev-")).count();
+    }
+
+    private static List<ValidationContext> contexts(String... emails) {
+        List<ValidationContext> contexts = new ArrayList<>();
+        for (String email : emails) {
+            ValidationContext validationContext = ValidationContext.create();
+            new AddressValidator().isValid(validationContext, email);
+            validationContext.mailServerAddresses(List.of("127.0.0.1"), List.of());
+            contexts.add(validationContext);
+        }
+        return contexts;
+    }
+}
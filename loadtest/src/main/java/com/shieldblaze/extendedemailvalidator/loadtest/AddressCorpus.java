@@ -0,0 +1,98 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates realistic email address corpora.
+ * <p>
+ * Domains are drawn from a Zipf distribution: the {@code k}-th most popular domain is picked with
+ * probability proportional to {@code 1 / k^skew}. The most popular domains are the large mailbox
+ * providers, the long tail is made of synthetic domains. A skew of {@code 0} picks domains uniformly.
+ */
+public final class AddressCorpus {
+
+    private static final String[] PROVIDERS = {
+            "gmail.com", "yahoo.com", "outlook.com", "hotmail.com", "icloud.com",
+            "aol.com", "protonmail.com", "gmx.de", "mail.ru", "yandex.ru"
+    };
+
+    private static final String[] NAMES = {
+            "james", "mary", "robert", "patricia", "john", "jennifer", "michael", "linda",
+            "david", "elizabeth", "william", "barbara", "richard", "susan", "joseph", "jessica"
+    };
+
+    /**
+     * Generate a corpus
+     *
+     * @param size         Number of email addresses
+     * @param domains      Number of distinct domains
+     * @param skew         Zipf exponent of the domain distribution
+     * @param invalidRatio Ratio of syntactically invalid addresses, between 0 and 1
+     * @param seed         Random seed, the same seed yields the same corpus
+     * @return List of email addresses
+     */
+    public static List<String> generate(int size, int domains, double skew, double invalidRatio, long seed) {
+        Random random = new Random(seed);
+
+        double[] cumulative = new double[domains];
+        double sum = 0;
+        for (int k = 0; k < domains; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+
+        List<String> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            int rank = index >= 0 ? index : Math.min(-index - 1, domains - 1);
+            String domain = rank < PROVIDERS.length ? PROVIDERS[rank] : "domain" + rank + ".example";
+
+            String address = localPart(random) + '@' + domain;
+            corpus.add(random.nextDouble() < invalidRatio ? invalidate(address, random) : address);
+        }
+        return corpus;
+    }
+
+    private static String localPart(Random random) {
+        String first = NAMES[random.nextInt(NAMES.length)];
+        String last = NAMES[random.nextInt(NAMES.length)];
+        return switch (random.nextInt(4)) {
+            case 0 -> first + '.' + last;
+            case 1 -> first + random.nextInt(10_000);
+            case 2 -> first + '+' + last;
+            default -> first.charAt(0) + last + random.nextInt(100);
+        };
+    }
+
+    private static String invalidate(String address, Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> address.replace('@', '.');
+            case 1 -> address.replace("@", "@@");
+            case 2 -> '.' + address;
+            default -> address.replace("@", " @");
+        };
+    }
+
+    private AddressCorpus() {
+        // Prevent outside initialization
+    }
+}
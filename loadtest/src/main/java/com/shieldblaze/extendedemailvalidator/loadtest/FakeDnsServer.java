@@ -0,0 +1,235 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.loadtest;
+
+import org.xbill.DNS.AAAARecord;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.MXRecord;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-process authoritative DNS server which answers every domain with a synthetic zone:
+ * <pre>
+ *     example.com.     MX   10 mx.example.com.
+ *     mx.example.com.  A    127.0.0.1
+ *     mx.example.com.  AAAA ::1
+ * </pre>
+ * Domains under a suffix registered with {@link #zone(String, List)} resolve to the addresses of that
+ * zone instead, the most specific suffix wins. Domains under {@code .invalid} are answered with NXDOMAIN.
+ */
+public final class FakeDnsServer implements Closeable {
+
+    private static final Name SOA_NAME = Name.fromConstantString("invalid.");
+    private static final List<InetAddress> DEFAULT_ADDRESSES = List.of(InetAddress.getLoopbackAddress(), loopbackV6());
+
+    private final DatagramSocket socket;
+    private final long ttl;
+    private final long responseDelayNanos;
+    private final ScheduledExecutorService delayedResponses;
+    private final List<Zone> zones = new CopyOnWriteArrayList<>();
+
+    /**
+     * Start a new {@link FakeDnsServer} on an ephemeral port of the loopback address
+     *
+     * @param ttl TTL in seconds of all records
+     */
+    public FakeDnsServer(long ttl) throws IOException {
+        this(ttl, Duration.ZERO);
+    }
+
+    /**
+     * Start a new {@link FakeDnsServer} on an ephemeral port of the loopback address
+     *
+     * @param ttl           TTL in seconds of all records
+     * @param responseDelay Delay of every response, to simulate a distant resolver
+     */
+    public FakeDnsServer(long ttl, Duration responseDelay) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), ttl, responseDelay);
+    }
+
+    /**
+     * Start a new {@link FakeDnsServer}
+     *
+     * @param bindAddress   Address to listen on
+     * @param ttl           TTL in seconds of all records
+     * @param responseDelay Delay of every response, to simulate a distant resolver
+     */
+    public FakeDnsServer(InetSocketAddress bindAddress, long ttl, Duration responseDelay) throws IOException {
+        this.ttl = ttl;
+        this.responseDelayNanos = requireNonNull(responseDelay, "ResponseDelay").toNanos();
+        socket = new DatagramSocket(requireNonNull(bindAddress, "BindAddress"));
+
+        if (responseDelayNanos > 0) {
+            delayedResponses = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fake-dns-server-delay");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            delayedResponses = null;
+        }
+
+        Thread thread = new Thread(this::run, "fake-dns-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Resolve the mail servers of every domain under the suffix to the addresses
+     *
+     * @param suffix    Domain suffix, such as {@code accept.test}
+     * @param addresses IPv4 and IPv6 addresses of the mail servers, none for an MX record without addresses
+     * @return This {@link FakeDnsServer}
+     */
+    public FakeDnsServer zone(String suffix, List<InetAddress> addresses) {
+        try {
+            zones.add(new Zone(Name.fromString(suffix, Name.root), List.copyOf(addresses)));
+        } catch (TextParseException e) {
+            throw new IllegalArgumentException("Invalid zone suffix: " + suffix, e);
+        }
+        return this;
+    }
+
+    /**
+     * Address of this server as {@code host:port}, suitable for {@code NetworkConfig#dnsServers()}
+     */
+    public String address() {
+        return socket.getLocalAddress().getHostAddress() + ':' + socket.getLocalPort();
+    }
+
+    private void run() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+
+                Message query = new Message(Arrays.copyOf(packet.getData(), packet.getLength()));
+                byte[] response = answer(query).toWire();
+                SocketAddress client = packet.getSocketAddress();
+                if (delayedResponses == null) {
+                    send(response, client);
+                } else {
+                    delayedResponses.schedule(() -> send(response, client), responseDelayNanos, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException e) {
+                // Socket closed or malformed query, keep serving until closed
+            }
+        }
+    }
+
+    private void send(byte[] response, SocketAddress client) {
+        try {
+            socket.send(new DatagramPacket(response, response.length, client));
+        } catch (IOException e) {
+            // Socket closed, the client times out
+        }
+    }
+
+    private Message answer(Message query) throws IOException {
+        Message response = new Message(query.getHeader().getID());
+        response.getHeader().setFlag(Flags.QR);
+        response.getHeader().setFlag(Flags.AA);
+        response.getHeader().setFlag(Flags.RA);
+
+        Record question = query.getQuestion();
+        response.addRecord(question, Section.QUESTION);
+
+        Name name = question.getName();
+        if (name.subdomain(SOA_NAME)) {
+            response.getHeader().setRcode(Rcode.NXDOMAIN);
+            response.addRecord(new SOARecord(SOA_NAME, DClass.IN, ttl, Name.fromConstantString("ns.invalid."),
+                    Name.fromConstantString("hostmaster.invalid."), 1, 3600, 600, 86400, ttl), Section.AUTHORITY);
+            return response;
+        }
+
+        switch (question.getType()) {
+            case Type.MX -> response.addRecord(new MXRecord(name, DClass.IN, ttl, 10, Name.concatenate(Name.fromConstantString("mx"), name)), Section.ANSWER);
+            case Type.A, Type.AAAA -> {
+                for (InetAddress address : addresses(name)) {
+                    if (address instanceof Inet4Address) {
+                        if (question.getType() == Type.A) {
+                            response.addRecord(new ARecord(name, DClass.IN, ttl, address), Section.ANSWER);
+                        }
+                    } else if (question.getType() == Type.AAAA) {
+                        response.addRecord(new AAAARecord(name, DClass.IN, ttl, address), Section.ANSWER);
+                    }
+                }
+            }
+            default -> {
+                // NODATA
+            }
+        }
+        return response;
+    }
+
+    private List<InetAddress> addresses(Name name) {
+        Zone match = null;
+        for (Zone zone : zones) {
+            if (name.subdomain(zone.suffix()) && (match == null || zone.suffix().labels() > match.suffix().labels())) {
+                match = zone;
+            }
+        }
+        return match == null ? DEFAULT_ADDRESSES : match.addresses();
+    }
+
+    private static InetAddress loopbackV6() {
+        try {
+            return InetAddress.getByName("::1");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        if (delayedResponses != null) {
+            delayedResponses.shutdownNow();
+        }
+    }
+
+    private record Zone(Name suffix, List<InetAddress> addresses) {
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.loadtest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * TCP server standing in for a mail server, with a fixed {@link Behavior}.
+ * Servers of different behaviors may share a port on different loopback addresses,
+ * such as {@code 127.0.0.2} and {@code 127.0.0.3}, which Linux routes to the loopback interface.
+ */
+public final class FakeTcpServer implements Closeable {
+
+    /**
+     * How a {@link FakeTcpServer} treats connections
+     */
+    public enum Behavior {
+        /**
+         * Accept connections and speak enough SMTP for mailbox validation. Recipients whose
+         * local part starts with {@code unknown} are rejected with {@code 550 5.1.1}.
+         */
+        ACCEPT,
+
+        /**
+         * Nothing listens, connections are refused right away
+         */
+        REFUSE,
+
+        /**
+         * Connections are never established and time out. The listen backlog is filled
+         * and never drained, so the kernel drops every further SYN.
+         */
+        BLACKHOLE,
+
+        /**
+         * Like {@link #ACCEPT}, but the greeting and every reply are sent after a delay
+         */
+        DELAY
+    }
+
+    private final Behavior behavior;
+    private final long delayMillis;
+    private final ServerSocketChannel serverSocketChannel;
+    private final List<SocketChannel> backlogFillers = new ArrayList<>();
+    private final int port;
+
+    /**
+     * Start a new {@link FakeTcpServer} on an ephemeral port of the loopback address
+     *
+     * @param behavior {@link Behavior} of the server
+     */
+    public FakeTcpServer(Behavior behavior) throws IOException {
+        this(InetAddress.getLoopbackAddress(), 0, behavior, Duration.ZERO);
+    }
+
+    /**
+     * Start a new {@link FakeTcpServer}
+     *
+     * @param address  Address to listen on
+     * @param port     Port to listen on, {@code 0} for an ephemeral one
+     * @param behavior {@link Behavior} of the server
+     * @param delay    Delay of every reply of {@link Behavior#DELAY}
+     */
+    public FakeTcpServer(InetAddress address, int port, Behavior behavior, Duration delay) throws IOException {
+        this.behavior = requireNonNull(behavior, "Behavior");
+        this.delayMillis = requireNonNull(delay, "Delay").toMillis();
+
+        switch (behavior) {
+            case REFUSE -> {
+                // Reserve a port, then let go of it so nothing listens there
+                try (ServerSocket serverSocket = new ServerSocket(port, 1, address)) {
+                    this.port = serverSocket.getLocalPort();
+                }
+                serverSocketChannel = null;
+            }
+            case BLACKHOLE -> {
+                serverSocketChannel = ServerSocketChannel.open();
+                serverSocketChannel.bind(new InetSocketAddress(address, port), 1);
+                this.port = serverSocketChannel.socket().getLocalPort();
+                fillBacklog(new InetSocketAddress(address, this.port));
+            }
+            default -> {
+                serverSocketChannel = ServerSocketChannel.open();
+                serverSocketChannel.bind(new InetSocketAddress(address, port), 1024);
+                this.port = serverSocketChannel.socket().getLocalPort();
+
+                Thread thread = new Thread(this::run, "fake-tcp-server-" + behavior.name().toLowerCase(Locale.ROOT));
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    public Behavior behavior() {
+        return behavior;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    private void fillBacklog(InetSocketAddress address) throws IOException {
+        try (Selector selector = Selector.open()) {
+            // Connect until one does not complete, the accept queue is then full
+            for (int i = 0; i < 64; i++) {
+                SocketChannel socketChannel = SocketChannel.open();
+                socketChannel.configureBlocking(false);
+                if (socketChannel.connect(address)) {
+                    backlogFillers.add(socketChannel);
+                    continue;
+                }
+
+                SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT);
+                if (selector.select(200) > 0 && socketChannel.finishConnect()) {
+                    selectionKey.cancel();
+                    selector.selectNow();
+                    backlogFillers.add(socketChannel);
+                    continue;
+                }
+
+                socketChannel.close();
+                return;
+            }
+        }
+        throw new IOException("Listen backlog did not fill up, SYNs to " + address + " would not be dropped");
+    }
+
+    private void run() {
+        while (serverSocketChannel.isOpen()) {
+            try {
+                Socket socket = serverSocketChannel.accept().socket();
+                Thread.startVirtualThread(() -> serve(socket));
+            } catch (IOException e) {
+                // Listener closed, or the client gave up before we accepted
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            reply(writer, "220 fake ESMTP");
+            writer.flush();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(writer, "250-fake\r\n250 PIPELINING");
+                    case "HELO", "RSET", "NOOP" -> reply(writer, "250 2.0.0 OK");
+                    case "MAIL" -> reply(writer, "250 2.1.0 OK");
+                    case "RCPT" -> reply(writer, line.toLowerCase(Locale.ROOT).contains("<unknown")
+                            ? "550 5.1.1 No such user"
+                            : "250 2.1.5 OK");
+                    case "QUIT" -> {
+                        reply(writer, "221 2.0.0 Bye");
+                        writer.flush();
+                        return;
+                    }
+                    default -> reply(writer, "502 5.5.2 Command not recognized");
+                }
+
+                // Flush once the pipelined commands read so far are answered
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client went away
+        }
+    }
+
+    private void reply(Writer writer, String reply) throws IOException, InterruptedException {
+        if (behavior == Behavior.DELAY) {
+            writer.flush();
+            Thread.sleep(delayMillis);
+        }
+        writer.write(reply);
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SocketChannel backlogFiller : backlogFillers) {
+            backlogFiller.close();
+        }
+        if (serverSocketChannel != null) {
+            serverSocketChannel.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Open-loop load generator: requests are started on a fixed schedule regardless of how fast
+ * earlier ones complete, like independent clients would.
+ * <p>
+ * Latency is measured from the time a request was scheduled to start, not from the time it was
+ * sent, so a generator falling behind shows up as latency instead of hiding it (coordinated omission).
+ */
+public final class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final Function<String, CompletionStage<?>> target;
+    private final List<String> addresses;
+    private final int maxOutstanding;
+
+    /**
+     * Create a new {@link LoadGenerator}
+     *
+     * @param target         Starts the validation of an email address, the stage completes once it is done
+     *                       and completes exceptionally if it failed
+     * @param addresses      Email addresses to validate, in a loop
+     * @param maxOutstanding Maximum number of requests in flight; requests due beyond it are dropped
+     *                       and counted instead of piling up without bound
+     */
+    public LoadGenerator(Function<String, CompletionStage<?>> target, List<String> addresses, int maxOutstanding) {
+        this.target = requireNonNull(target, "Target");
+        this.addresses = List.copyOf(addresses);
+
+        if (this.addresses.isEmpty()) {
+            throw new IllegalArgumentException("addresses must not be empty");
+        } else if (maxOutstanding <= 0) {
+            throw new IllegalArgumentException("maxOutstanding must be greater than 0");
+        }
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * Generate load at a fixed rate and wait for the outstanding requests to complete
+     *
+     * @param rate     Requests per second
+     * @param duration Duration to generate load for
+     * @return {@link LoadReport} of the run
+     */
+    public LoadReport run(double rate, Duration duration) throws InterruptedException {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be greater than 0");
+        }
+
+        Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        LongAdder errors = new LongAdder();
+        long dropped = 0;
+
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = (long) (rate * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+        long start = System.nanoTime();
+
+        for (long i = 0; i < requests; i++) {
+            long scheduled = start + (long) (i * intervalNanos);
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            if (!outstanding.tryAcquire()) {
+                dropped++;
+                continue;
+            }
+
+            String address = addresses.get((int) (i % addresses.size()));
+            CompletionStage<?> stage;
+            try {
+                stage = target.apply(address);
+            } catch (RuntimeException e) {
+                errors.increment();
+                outstanding.release();
+                continue;
+            }
+
+            stage.whenComplete((result, throwable) -> {
+                recorder.recordValue(Math.min(System.nanoTime() - scheduled, HIGHEST_TRACKABLE_NANOS));
+                if (throwable != null) {
+                    errors.increment();
+                }
+                outstanding.release();
+            });
+        }
+
+        // Drain
+        outstanding.acquire(maxOutstanding);
+        long elapsed = System.nanoTime() - start;
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        return new LoadReport(requests, errors.sum(), dropped, elapsed, histogram);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Outcome of a {@link LoadGenerator} run
+ *
+ * @param requests     Number of requests due
+ * @param errors       Number of requests which failed
+ * @param dropped      Number of requests not sent because too many were in flight
+ * @param elapsedNanos Duration of the run, until the last request completed
+ * @param histogram    Latency histogram in nanoseconds, of the requests which were sent
+ */
+public record LoadReport(long requests, long errors, long dropped, long elapsedNanos, Histogram histogram) {
+
+    public LoadReport {
+        requireNonNull(histogram, "Histogram");
+    }
+
+    /**
+     * Completed requests per second
+     */
+    public double throughput() {
+        return histogram.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Latency in milliseconds at the percentile
+     *
+     * @param percentile Percentile, between 0 and 100
+     */
+    public double latencyMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    /**
+     * Print a summary of the run
+     *
+     * @param out {@link PrintStream} to print to
+     */
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "requests=%d completed=%d errors=%d dropped=%d throughput=%.1f/s%n",
+                requests, histogram.getTotalCount(), errors, dropped, throughput());
+        out.printf(Locale.ROOT, "latency ms: p50=%.2f p90=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                latencyMillis(50), latencyMillis(90), latencyMillis(99), latencyMillis(99.9), histogram.getMaxValue() / 1e6);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ *    Copyright (c) 2023, ShieldBlaze
+ *
+ *    Extended Email Validator licenses this file to you under the
+ *     Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.shieldblaze.extendedemailvalidator.loadtest;
+
+import com.shieldblaze.extendedemailvalidator.core.NetworkConfig;
+import com.shieldblaze.extendedemailvalidator.core.PolitenessConfig;
+import com.shieldblaze.extendedemailvalidator.core.SmtpConfig;
+import com.shieldblaze.extendedemailvalidator.core.ValidatingChain;
+import com.shieldblaze.extendedemailvalidator.core.ValidationMode;
+import com.shieldblaze.extendedemailvalidator.core.cache.NegativeCache;
+import com.shieldblaze.extendedemailvalidator.core.connection.ProbeCache;
+import com.shieldblaze.extendedemailvalidator.core.dns.MxResolver;
+import com.shieldblaze.extendedemailvalidator.core.validators.AddressValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.MXRecordValidator;
+import com.shieldblaze.extendedemailvalidator.core.validators.MailServerConnection;
+import com.shieldblaze.extendedemailvalidator.core.validators.SmtpMailboxValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Command line entry point load testing the validating chain, in-process or through the HTTP API,
+ * against fake DNS and mail servers so no traffic leaves the machine.
+ * <p>
+ * Every domain of the generated corpus is assigned a {@link FakeTcpServer.Behavior} according to the mix,
+ * or NXDOMAIN. Mail servers of each behavior listen on their own loopback address, {@code 127.0.0.2}
+ * to {@code 127.0.0.5}, all on the same port.
+ */
+public final class LoadTest {
+
+    private static final String USAGE = """
+            Usage: java -jar loadtest-1.0.0-cli.jar [options]
+
+              --target <chain|http>          Drive a ValidatingChain in-process or the HTTP API (default: chain)
+              --url <url>                    Base URL of the HTTP API (default: http://localhost:8080)
+              --rate <count>                 Requests per second (default: 1000)
+              --duration <secs>              Seconds to measure for (default: 30)
+              --warmup <secs>                Seconds to generate load before measuring (default: 5)
+              --mode <mode>                  syntax, dns, connect or deep (default: deep)
+              --deadline <millis>            Deadline of a validation, 0 for none (default: 2000)
+              --max-outstanding <count>      Requests in flight beyond which requests are dropped (default: 10000)
+              --mix <behavior=weight,...>    Weights of accept, refuse, blackhole, delay and nxdomain domains
+                                             (default: accept=80,refuse=5,blackhole=5,delay=5,nxdomain=5)
+              --delay <millis>               Reply delay of delay mail servers (default: 200)
+              --dns-delay <millis>           Response delay of the DNS server (default: 0)
+              --dns-port <port>              Port of the DNS server (default: ephemeral)
+              --smtp-port <port>             Port of the mail servers (default: ephemeral)
+              --domains <count>              Number of distinct domains (default: 1000)
+              --skew <exponent>              Zipf exponent of the domain distribution (default: 1.1)
+              --invalid-ratio <ratio>        Ratio of syntactically invalid addresses (default: 0.02)
+              --servers-only                 Only start the fake servers, to point an API instance at them
+            """;
+
+    private static final Set<String> OPTIONS = Set.of("--target", "--url", "--rate", "--duration", "--warmup", "--mode",
+            "--deadline", "--max-outstanding", "--mix", "--delay", "--dns-delay", "--dns-port", "--smtp-port", "--domains",
+            "--skew", "--invalid-ratio");
+    private static final Set<String> FLAGS = Set.of("--help", "--servers-only");
+
+    private static final String NXDOMAIN = "nxdomain";
+    private static final String NXDOMAIN_SUFFIX = "invalid";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments;
+        try {
+            arguments = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (arguments.containsKey("--help")) {
+            System.err.print(USAGE);
+            System.exit(0);
+            return;
+        }
+
+        List<Closeable> servers = new ArrayList<>();
+        try {
+            FakeDnsServer fakeDnsServer = new FakeDnsServer(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(arguments.getOrDefault("--dns-port", "0"))),
+                    300, Duration.ofMillis(Long.parseLong(arguments.getOrDefault("--dns-delay", "0"))));
+            servers.add(fakeDnsServer);
+
+            // Mail servers of all behaviors share a port, each on its own loopback address
+            int port = Integer.parseInt(arguments.getOrDefault("--smtp-port", "0"));
+            Duration delay = Duration.ofMillis(Long.parseLong(arguments.getOrDefault("--delay", "200")));
+            int host = 2;
+            for (FakeTcpServer.Behavior behavior : FakeTcpServer.Behavior.values()) {
+                InetAddress address = InetAddress.getByName("127.0.0." + host++);
+                FakeTcpServer fakeTcpServer = new FakeTcpServer(address, port, behavior, delay);
+                servers.add(fakeTcpServer);
+                port = fakeTcpServer.port();
+                fakeDnsServer.zone(suffix(behavior), List.of(address));
+            }
+
+            System.err.printf("DNS server: %s, mail servers on port: %d%n", fakeDnsServer.address(), port);
+            if (arguments.containsKey("--servers-only")) {
+                System.err.printf("Run the API with dns-servers=%s and smtp-port=%d, press Ctrl+C to stop%n", fakeDnsServer.address(), port);
+                Thread.currentThread().join();
+                return;
+            }
+
+            Map<String, Integer> mix = mix(arguments.getOrDefault("--mix", "accept=80,refuse=5,blackhole=5,delay=5,nxdomain=5"));
+            List<String> addresses = AddressCorpus.generate(65_536,
+                            Integer.parseInt(arguments.getOrDefault("--domains", "1000")),
+                            Double.parseDouble(arguments.getOrDefault("--skew", "1.1")),
+                            Double.parseDouble(arguments.getOrDefault("--invalid-ratio", "0.02")), 42)
+                    .stream()
+                    .map(address -> assign(address, mix))
+                    .toList();
+
+            ValidationMode mode = ValidationMode.of(arguments.getOrDefault("--mode", "deep"));
+            long deadline = Long.parseLong(arguments.getOrDefault("--deadline", "2000"));
+            Function<String, CompletionStage<?>> target = switch (arguments.getOrDefault("--target", "chain")) {
+                case "chain" -> chainTarget(fakeDnsServer.address(), port, mode, deadline);
+                case "http" -> httpTarget(arguments.getOrDefault("--url", "http://localhost:8080"), mode);
+                default -> throw new IllegalArgumentException("Unknown target: " + arguments.get("--target"));
+            };
+
+            double rate = Double.parseDouble(arguments.getOrDefault("--rate", "1000"));
+            LoadGenerator loadGenerator = new LoadGenerator(target, addresses,
+                    Integer.parseInt(arguments.getOrDefault("--max-outstanding", "10000")));
+
+            long warmup = Long.parseLong(arguments.getOrDefault("--warmup", "5"));
+            if (warmup > 0) {
+                System.err.println("Warming up");
+                loadGenerator.run(rate, Duration.ofSeconds(warmup));
+            }
+
+            System.err.println("Measuring");
+            loadGenerator.run(rate, Duration.ofSeconds(Long.parseLong(arguments.getOrDefault("--duration", "30")))).print(System.out);
+        } finally {
+            for (Closeable server : servers) {
+                server.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Function<String, CompletionStage<?>> chainTarget(String dnsServer, int port, ValidationMode mode, long deadline)
+            throws IOException {
+        NetworkConfig networkConfig = new NetworkConfig(List.of(dnsServer), 1000, 1000);
+        NegativeCache negativeCache = new NegativeCache(networkConfig);
+        ValidatingChain validatingChain = new ValidatingChain(
+                new AddressValidator(),
+                new MXRecordValidator(new MxResolver(networkConfig, negativeCache)),
+                new MailServerConnection(networkConfig, PolitenessConfig.UNLIMITED, negativeCache, new ProbeCache(networkConfig), new int[]{port}),
+                new SmtpMailboxValidator(new SmtpConfig("loadtest.localhost", "", port, 1000, 16, 50, 30)));
+
+        Duration budget = deadline > 0 ? Duration.ofMillis(deadline) : null;
+        return email -> budget == null ? validatingChain.validateAsync(email, mode) : validatingChain.validateAsync(email, mode, budget);
+    }
+
+    private static Function<String, CompletionStage<?>> httpTarget(String url, ValidationMode mode) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI uri = URI.create(url).resolve("/api/v1/validate/email");
+        String modeName = mode.name().toLowerCase(Locale.ROOT);
+
+        return email -> {
+            HttpRequest httpRequest = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"emailAddress\":\"" + escape(email) + "\",\"mode\":\"" + modeName + "\"}"))
+                    .build();
+
+            return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding()).thenApply(httpResponse -> {
+                if (httpResponse.statusCode() != 200) {
+                    throw new IllegalStateException("Unexpected status code: " + httpResponse.statusCode());
+                }
+                return httpResponse;
+            });
+        };
+    }
+
+    /**
+     * Move the domain of the address under the suffix of the behavior it is assigned to.
+     * The assignment depends only on the domain, so caches see every domain behave consistently.
+     */
+    private static String assign(String address, Map<String, Integer> mix) {
+        int at = address.lastIndexOf('@');
+        String domain = address.substring(at + 1);
+
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = Math.floorMod(domain.hashCode(), total);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return address + '.' + entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Mix is empty");
+    }
+
+    /**
+     * Parse the mix into weights by domain suffix
+     */
+    private static Map<String, Integer> mix(String value) {
+        Map<FakeTcpServer.Behavior, Integer> behaviors = new EnumMap<>(FakeTcpServer.Behavior.class);
+        int nxdomain = 0;
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix: " + value);
+            }
+
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("weight must be greater than or equal to 0");
+            }
+
+            String name = pair[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(NXDOMAIN)) {
+                nxdomain = weight;
+            } else {
+                behaviors.put(FakeTcpServer.Behavior.valueOf(name.toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+
+        // Keep a stable order, so the same mix assigns the same domains
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        behaviors.forEach((behavior, weight) -> mix.put(suffix(behavior), weight));
+        mix.put(NXDOMAIN_SUFFIX, nxdomain);
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Mix must have a weight greater than 0");
+        }
+        return mix;
+    }
+
+    private static String suffix(FakeTcpServer.Behavior behavior) {
+        return behavior.name().toLowerCase(Locale.ROOT) + ".test";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (FLAGS.contains(name)) {
+                arguments.put(name, "");
+            } else if (OPTIONS.contains(name)) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                arguments.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + name);
+            }
+        }
+        return arguments;
+    }
+
+    private LoadTest() {
+        // Prevent outside initialization
+    }
+}